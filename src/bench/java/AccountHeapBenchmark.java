@@ -0,0 +1,112 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures heap bytes per account.
+ *
+ * Loads accounts the way recovery does (Email.restore from decoded strings, each account
+ * with its own String instances), first into a plain array and then into an
+ * AccountRegistry with its indexes. After each load it forces a full GC and reports
+ * retained heap per account, then prints the top of a class histogram taken with
+ * jcmd GC.class_histogram so the bytes can be attributed by type. Run with -Xmx large
+ * enough for the account count, e.g. -Xmx3g for 1M accounts.
+ *
+ * Usage: java -Xmx3g -cp out AccountHeapBenchmark [accounts] [histogramRows]
+ */
+public class AccountHeapBenchmark {
+
+    private static final String[] FIRST = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael",
+            "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Christopher", "Lisa", "Daniel", "Nancy", "Matthew", "Betty", "Anthony",
+            "Margaret", "Mark", "Sandra", "Donald", "Ashley", "Steven", "Kimberly", "Paul", "Emily", "Andrew",
+            "Donna", "Joshua", "Michelle"};
+
+    public static void main(String[] args) throws Exception {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int rows = (args.length > 1) ? Integer.parseInt(args[1]) : 15;
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+
+        long baseline = usedHeap();
+        Email[] plain = new Email[count];
+        for (int i = 0; i < count; i++) {
+            plain[i] = account(i, hash);
+        }
+        long withAccounts = usedHeap();
+        System.out.printf("accounts=%,d%n", count);
+        System.out.printf("%-28s %8.1f bytes/account%n", "Email objects only", (withAccounts - baseline) / (double) count);
+        plain = null;
+
+        baseline = usedHeap();
+        AccountRegistry registry = new AccountRegistry();
+        for (int i = 0; i < count; i++) {
+            registry.add(account(i, hash));
+        }
+        long withRegistry = usedHeap();
+        System.out.printf("%-28s %8.1f bytes/account%n", "registry with indexes", (withRegistry - baseline) / (double) count);
+        System.out.println();
+        histogram(rows, count);
+        System.out.printf("%n(%,d accounts registered)%n", registry.size());
+    }
+
+    // Names repeat as in a real directory; every account gets its own copies, as decoding does
+    private static Email account(int i, String hash) {
+        String first = copy(FIRST[i % FIRST.length]);
+        String last = "Surname" + (i / FIRST.length % 20_000);
+        String address = first.toLowerCase() + "-" + last.toLowerCase() + (i / FIRST.length / 20_000 + 1)
+                + "@dev-company-com";
+        String alternate = (i % 4 == 0) ? first.toLowerCase() + i + "@example.com" : null;
+        return Email.restore(first, last, "dev", address, copy(hash), 500 + i % 500, alternate);
+    }
+
+    // new String(String) would share the original's bytes
+    private static String copy(String value) {
+        return new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    // Top classes by retained bytes, from the running JVM's own class histogram
+    private static void histogram(int rows, int count) throws IOException, InterruptedException {
+        String jcmd = Path.of(System.getProperty("java.home"), "bin", "jcmd").toString();
+        long pid = ManagementFactory.getRuntimeMXBean().getPid();
+        Process process = new ProcessBuilder(jcmd, Long.toString(pid), "GC.class_histogram").redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        process.waitFor();
+
+        System.out.printf("%-44s %12s %12s %10s%n", "class", "instances", "bytes", "per account");
+        int printed = 0;
+        for (String line : lines) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 4 || !fields[0].endsWith(":")) {
+                continue;
+            }
+            long instances = Long.parseLong(fields[1]);
+            long bytes = Long.parseLong(fields[2]);
+            System.out.printf("%-44s %,12d %,12d %10.1f%n", fields[3], instances, bytes, bytes / (double) count);
+            if (++printed == rows) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures AddressAllocator throughput when many threads create accounts at once, with
+ * a small pool of names so most allocations collide and need initials or suffixes.
+ * Each run allocates the given number of addresses into a fresh allocator, registering
+ * every address as the registry would, then checks that no address was handed out twice.
+ *
+ * Usage: java AddressAllocationBenchmark [addressesPerRun] [distinctNames]
+ */
+public class AddressAllocationBenchmark {
+
+    private static final String[] FIRST = {"Mary", "Jos\u00e9", "Anne Marie", "Chlo\u00eb", "John Paul", "Zo\u00eb", "\u0141ukasz"};
+    private static final String[] LAST = {"Smith", "O'Brien", "Garc\u00eda", "van der Berg", "Nguy\u1ec5n", "M\u00fcller-L\u00fcdenscheidt"};
+
+    public static void main(String[] args) throws Exception {
+        int perRun = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int distinctNames = (args.length > 1) ? Integer.parseInt(args[1]) : 1_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("addresses/run=%,d distinct names=%,d cores=%d%n", perRun, distinctNames, cores);
+        System.out.printf("%-8s %15s %12s %10s%n", "threads", "allocs/sec", "suffixed", "unique");
+
+        run(1, perRun / 10, distinctNames);
+        for (int threads = 1; threads <= Math.max(2, cores * 2); threads *= 2) {
+            run(threads, perRun, distinctNames);
+        }
+    }
+
+    private static void run(int threads, int total, int distinctNames) throws InterruptedException {
+        Set<String> registry = ConcurrentHashMap.newKeySet();
+        AddressAllocator allocator = new AddressAllocator(registry::contains);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger suffixed = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    int name = i % distinctNames;
+                    String first = FIRST[name % FIRST.length] + ((name < FIRST.length) ? "" : " " + name);
+                    String address = allocator.allocate(first, LAST[name % LAST.length], Department.DEV);
+                    if (!registry.add(address)) {
+                        duplicates.incrementAndGet();
+                    }
+                    allocator.registered(address);
+                    if (Character.isDigit(address.charAt(address.indexOf('@') - 1))) {
+                        suffixed.incrementAndGet();
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("%-8d %,15.0f %,12d %10s%n", threads, total / seconds, suffixed.get(),
+                (duplicates.get() == 0 && registry.size() == total) ? "yes" : "NO (" + duplicates.get() + ")");
+    }
+}
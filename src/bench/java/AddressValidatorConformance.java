@@ -0,0 +1,204 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conformance corpus and differential fuzzer for AddressValidator.
+ *
+ * Checks a fixed corpus of valid and invalid addresses, then fuzzes random strings and
+ * mutations of the valid corpus, comparing every verdict with an independent regex
+ * reference of the same grammar. Also checks that normalize(), which memoizes valid
+ * domains, accepts exactly the same addresses and only lower-cases the domain, that a
+ * rejected domain whose lower case folds onto a valid one does not poison the cache, and
+ * that nothing accepted would have been rejected by the old Email pattern. Exits with
+ * status 1 on any disagreement.
+ *
+ * Usage: java AddressValidatorConformance [fuzzCases] [seed]
+ */
+public class AddressValidatorConformance {
+
+    private static final Pattern LEGACY = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+
+    private static final String LABEL = "[A-Za-z0-9](?:[A-Za-z0-9-]*[A-Za-z0-9])?";
+    private static final Pattern REFERENCE = Pattern.compile(
+            "([A-Za-z0-9+_-]+(?:\\.[A-Za-z0-9+_-]+)*)@((?:" + LABEL + "\\.)+" + LABEL + ")");
+
+    private static final String[] VALID = {
+        "a@b.co", "john@example.com", "John.Smith@Example.COM", "first.last@sub.example.org",
+        "user+tag@example.com", "user_name@example.com", "user-name@example.com",
+        "x@a.io", "1234@example.com", "a.b.c.d@e.f.gh", "o-k@xn--bcher-kva.example",
+        "mail@a-b-c.d-e-f.com", "_@example.com", "+@example.com", "-@example.com",
+        "a@1.com", "a@123.example", "a@example.c0m", "a@x1.y2", "UPPER@UPPER.CASE",
+        "a@" + "l".repeat(63) + ".com", "l".repeat(64) + "@example.com",
+        "a@" + ("d".repeat(63) + ".").repeat(3) + "d".repeat(60),
+        "a".repeat(64) + "@" + ("d".repeat(60) + ".").repeat(3) + "dddddd",
+        "john.doe+newsletter@mail.example.co.uk", "a@b-c.de", "test@localhost.localdomain",
+        "x@sub-domain.example-site.museum", "o@o.oo", "q__q@w--w.ee", "a+b+c@d.ef",
+    };
+
+    private static final String[] INVALID = {
+        "", "@", "a", "a@", "@b.com", "plainaddress", "a@b", "a@localhost", "a@.com",
+        "a@b.", "a@b..com", ".a@b.com", "a.@b.com", "a..b@c.com", "a@b@c.com", "a@@b.com",
+        "a b@c.com", "a@b c.com", " a@b.com", "a@b.com ", "a@-b.com", "a@b-.com",
+        "a@b.com-", "a@b.-com", "a@1.2.3.4", "a@[127.0.0.1]", "a@123.456", "\"a\"@b.com",
+        "a!b@c.com", "a#b@c.com", "a$b@c.com", "a%b@c.com", "a&b@c.com", "a'b@c.com",
+        "a*b@c.com", "a/b@c.com", "a=b@c.com", "a?b@c.com", "a^b@c.com", "a`b@c.com",
+        "a{b@c.com", "a|b@c.com", "a}b@c.com", "a~b@c.com", "a@b_c.com", "a@b+c.com",
+        "a@b!.com", "\u00e9@b.com", "a@b\u00e9.com", "a@\u212Aelvin.com", "a@b.com\n",
+        "a\t@b.com", "a@b.com.", "a@.", "a@b.c.", "a@(comment)b.com", "a@b,com", "a;b@c.com",
+        "a@" + "l".repeat(64) + ".com", "l".repeat(65) + "@example.com",
+        "a@" + ("d".repeat(63) + ".").repeat(3) + "d".repeat(61),
+        "a".repeat(64) + "@" + ("d".repeat(60) + ".").repeat(3) + "ddddddd",
+        "javascript:alert(1)@x.com", "a@b.com<script>", "a@b\u0000.com",
+    };
+
+    // An invalid domain, then the valid ASCII spelling it lower-cases to (U+212A KELVIN SIGN is 'k')
+    private static final String[][] FOLDED = {
+        {"x@\u212Aellogg-company-mail.com", "bob@kellogg-company-mail.com"},
+        {"x@kellogg-company-mail.co\u212A", "bob@kellogg-company-mail.cok"},
+        {"x@\u212AELLOGG.com", "bob@KELLOGG.com"},
+        {"x@\u0130stanbul.com", "bob@i\u0307stanbul.com"},
+    };
+
+    private static final char[] ALPHABET =
+            "aAzZ09+_-.@.@-..!\"#[] \u00e9\u212A".toCharArray();
+
+    public static void main(String[] args) {
+        int fuzzCases = (args.length > 0) ? Integer.parseInt(args[0]) : 5_000_000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 2026L;
+
+        List<String> failures = new ArrayList<>();
+        // A tiny cache, so fuzzing constantly evicts and re-checks domains
+        AddressValidator memoized = new AddressValidator(16);
+
+        for (String address : VALID) {
+            if (!AddressValidator.isValid(address)) failures.add("valid rejected: " + show(address));
+            check(address, memoized, failures);
+        }
+        for (String address : INVALID) {
+            if (AddressValidator.isValid(address)) failures.add("invalid accepted: " + show(address));
+            check(address, memoized, failures);
+        }
+        for (String[] pair : FOLDED) {
+            AddressValidator fresh = new AddressValidator(4096);
+            for (AddressValidator validator : new AddressValidator[] {fresh, memoized, AddressValidator.shared()}) {
+                checkFolded(pair[0], pair[1], validator, failures);
+            }
+        }
+        System.out.printf("corpus: %d valid, %d invalid, %d folded pairs%n", VALID.length, INVALID.length, FOLDED.length);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long accepted = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < fuzzCases && failures.size() < 20; i++) {
+            String candidate = (i % 2 == 0) ? randomString(random) : mutate(VALID[random.nextInt(VALID.length)], random);
+            if (check(candidate, memoized, failures)) {
+                accepted++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("fuzz: %,d cases (%,d accepted) in %.1f s, seed %d%n", fuzzCases, accepted, seconds, seed);
+
+        if (!failures.isEmpty()) {
+            failures.forEach(f -> System.out.println("FAIL " + f));
+            System.exit(1);
+        }
+        System.out.println("all checks passed");
+    }
+
+    // Runs every cross-check for one address; returns the verdict
+    private static boolean check(String address, AddressValidator memoized, List<String> failures) {
+        boolean valid = AddressValidator.isValid(address);
+        if (valid != reference(address)) {
+            failures.add("reference disagrees (validator says " + valid + "): " + show(address));
+        }
+        if (valid && !LEGACY.matcher(address).matches()) {
+            failures.add("accepted but legacy pattern rejects: " + show(address));
+        }
+        if (valid) {
+            String normalized = memoized.normalize(address);
+            int at = address.indexOf('@');
+            String expected = address.substring(0, at + 1) + address.substring(at + 1).toLowerCase();
+            if (!normalized.equals(expected)) {
+                failures.add("normalize gave " + show(normalized) + " for " + show(address));
+            }
+        } else {
+            try {
+                memoized.normalize(address);
+                failures.add("normalize accepted: " + show(address));
+            } catch (IllegalArgumentException expected) {
+                // rejected as it should be
+            }
+        }
+        return valid;
+    }
+
+    // Rejecting invalid must leave the verdict for valid exactly what it is without it
+    private static void checkFolded(String invalid, String valid, AddressValidator validator, List<String> failures) {
+        try {
+            validator.normalize(invalid);
+            failures.add("normalize accepted: " + show(invalid));
+        } catch (IllegalArgumentException expected) {
+            // rejected as it should be
+        }
+        boolean expected = AddressValidator.isValid(valid);
+        boolean accepted;
+        try {
+            validator.normalize(valid);
+            accepted = true;
+        } catch (IllegalArgumentException e) {
+            accepted = false;
+        }
+        if (accepted != expected) {
+            failures.add("after " + show(invalid) + ", normalize " + (accepted ? "accepted " : "rejected ") + show(valid));
+        }
+    }
+
+    private static boolean reference(String address) {
+        Matcher m = REFERENCE.matcher(address);
+        if (address.length() > AddressValidator.MAX_ADDRESS_LENGTH || !m.matches()) {
+            return false;
+        }
+        String domain = m.group(2);
+        if (m.group(1).length() > AddressValidator.MAX_LOCAL_LENGTH || domain.length() > AddressValidator.MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        String[] labels = domain.split("\\.");
+        for (String label : labels) {
+            if (label.length() > AddressValidator.MAX_LABEL_LENGTH) {
+                return false;
+            }
+        }
+        return !labels[labels.length - 1].chars().allMatch(Character::isDigit);
+    }
+
+    private static String randomString(SplittableRandom random) {
+        int length = random.nextInt(1, 24);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String mutate(String address, SplittableRandom random) {
+        StringBuilder sb = new StringBuilder(address);
+        int edits = random.nextInt(1, 4);
+        for (int e = 0; e < edits; e++) {
+            int at = random.nextInt(sb.length() + 1);
+            switch (random.nextInt(4)) {
+                case 0 -> sb.insert(at, ALPHABET[random.nextInt(ALPHABET.length)]);
+                case 1 -> { if (at < sb.length()) sb.deleteCharAt(at); }
+                case 2 -> { if (at < sb.length()) sb.setCharAt(at, ALPHABET[random.nextInt(ALPHABET.length)]); }
+                default -> sb.insert(at, "x".repeat(random.nextInt(1, 70)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String show(String s) {
+        return "\"" + s.replace("\n", "\\n").replace("\t", "\\t").replace("\u0000", "\\0") + "\"";
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures what the audit log adds to the mutation path, then how fast its sparse index
+ * answers account and time-range queries.
+ * Capacity changes are timed on a registry without an audit log and again with one;
+ * the difference is the cost of publishing into the ring, which for a long run includes
+ * waiting (at most 2 ms per event) for the writer whenever the ring fills; events still not
+ * admitted are dropped, and the count is reported. Queries run after a flush, so
+ * the writer's batching and fsync are paid before the query timings start.
+ *
+ * Usage: java AuditLogBenchmark [accounts] [mutations]
+ */
+public class AuditLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int mutations = (args.length > 1) ? Integer.parseInt(args[1]) : 5_000_000;
+        Path dir = Files.createTempDirectory("audit-bench");
+
+        try {
+            AccountRegistry plain = populate(accountCount);
+            AccountRegistry audited = populate(accountCount);
+            System.out.printf("accounts=%,d mutations=%,d%n", accountCount, mutations);
+
+            mutate(plain.snapshot(), mutations / 10);
+            double baseline = mutate(plain.snapshot(), mutations);
+            System.out.printf("%-24s %10.1f ns/op%n", "no audit log", baseline);
+
+            AuditLog audit = AuditLog.open(dir, audited);
+            try {
+                List<Email> accounts = audited.snapshot();
+                mutate(accounts, mutations / 10);
+                long from = System.currentTimeMillis();
+                double withAudit = mutate(accounts, mutations);
+                long to = System.currentTimeMillis() + 1;
+                System.out.printf("%-24s %10.1f ns/op%n", "audit log (publish)", withAudit);
+
+                long t0 = System.nanoTime();
+                audit.flush();
+                System.out.printf("%-24s %10.1f ms%n", "flush to disk", (System.nanoTime() - t0) / 1e6);
+
+                // A burst that fits in the ring never waits for the writer
+                double burst = mutate(accounts, 32_768);
+                System.out.printf("%-24s %10.1f ns/op%n", "audit log (burst)", burst);
+                audit.flush();
+
+                Email probe = accounts.get(accountCount / 2);
+                t0 = System.nanoTime();
+                int hits = audit.query(probe, Long.MIN_VALUE, Long.MAX_VALUE).size();
+                System.out.printf("%-24s %10.1f ms (%,d events)%n", "query one account", (System.nanoTime() - t0) / 1e6, hits);
+
+                long middle = from + (to - from) / 2;
+                t0 = System.nanoTime();
+                hits = audit.query(null, middle, middle + 100).size();
+                System.out.printf("%-24s %10.1f ms (%,d events)%n", "query 100 ms window", (System.nanoTime() - t0) / 1e6, hits);
+
+                t0 = System.nanoTime();
+                hits = audit.query(null, Long.MIN_VALUE, Long.MAX_VALUE).size();
+                System.out.printf("%-24s %10.1f ms (%,d events)%n", "query everything", (System.nanoTime() - t0) / 1e6, hits);
+                long published = mutations / 10 + mutations + 32_768;
+                System.out.printf("%-24s %,10d of %,d%n", "dropped (ring full)", published - hits, published);
+            } finally {
+                audit.close();
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(AuditLogBenchmark::delete);
+            }
+        }
+    }
+
+    private static AccountRegistry populate(int count) {
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        for (int i = 0; i < count; i++) {
+            int first = i % 1_000;
+            int last = i / 1_000;
+            registry.add(Email.restore("First" + first, "Last" + last, "dev",
+                    "first" + first + "-last" + last + "@dev-company-com", hash, 500, null));
+        }
+        return registry;
+    }
+
+    // Average nanoseconds per capacity change
+    private static double mutate(List<Email> accounts, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            accounts.get(i % accounts.size()).setMailboxCapacity(100 + (i & 1023));
+        }
+        return (System.nanoTime() - start) / (double) count;
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Starts AccountHttpApi in-process over a synthetic registry and drives it with
+ * concurrent clients, reporting requests/sec and latency percentiles per scenario:
+ * single-account GET, 20-row page GET, conditional GET answered with 304, a full
+ * streamed list, and capacity updates.
+ *
+ * Usage: java -Xmx2g HttpApiBenchmark [accounts] [clients] [requestsPerClient]
+ */
+public class HttpApiBenchmark {
+
+    private static final String KEY = "bench-key";
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int clients = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        int requests = (args.length > 2) ? Integer.parseInt(args[2]) : 2_000;
+
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        for (int i = 0; i < accountCount; i++) {
+            registry.add(Email.restore("First" + i, "Last" + i, "dev",
+                    "first" + i + "-last" + i + "@dev-company-com", hash, 500, null));
+        }
+
+        try (AccountHttpApi api = new AccountHttpApi(registry, KEY, 0, Math.max(4, clients))) {
+            api.start();
+            String base = "http://127.0.0.1:" + api.getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            Random random = new Random(7);
+
+            String etag = client.send(get(base + "/accounts?offset=0&limit=20").build(),
+                    HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag").orElseThrow();
+
+            System.out.printf("accounts=%,d clients=%d requests/client=%,d%n", accountCount, clients, requests);
+            System.out.printf("%-16s %10s %10s %10s %10s%n", "scenario", "req/s", "p50 us", "p99 us", "max us");
+            run("get one", client, clients, requests, i -> {
+                int n = random.nextInt(accountCount);
+                return get(base + "/accounts/first" + n + "-last" + n + "@dev-company-com").build();
+            }, 200);
+            run("page of 20", client, clients, requests, i ->
+                    get(base + "/accounts?offset=" + random.nextInt(accountCount) + "&limit=20").build(), 200);
+            run("page 304", client, clients, requests, i ->
+                    get(base + "/accounts?offset=0&limit=20").header("If-None-Match", etag).build(), 304);
+            run("full list", client, 1, 5, i -> get(base + "/accounts").build(), 200);
+            run("put capacity", client, clients, requests, i -> {
+                int n = random.nextInt(accountCount);
+                return HttpRequest.newBuilder(URI.create(base + "/accounts/first" + n + "-last" + n + "@dev-company-com/capacity"))
+                        .header("X-Admin-Key", KEY)
+                        .PUT(HttpRequest.BodyPublishers.ofString("{\"capacity\": " + (1 + n % 1000) + "}"))
+                        .build();
+            }, 200);
+        }
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).header("X-Admin-Key", KEY).GET();
+    }
+
+    private static void run(String name, HttpClient client, int clients, int requests,
+                            IntFunction<HttpRequest> request, int expectedStatus) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            futures.add(pool.submit(() -> {
+                long[] nanos = new long[requests];
+                for (int i = 0; i < requests; i++) {
+                    HttpRequest r = request.apply(i);
+                    long t0 = System.nanoTime();
+                    HttpResponse<byte[]> response = client.send(r, HttpResponse.BodyHandlers.ofByteArray());
+                    nanos[i] = System.nanoTime() - t0;
+                    if (response.statusCode() != expectedStatus) {
+                        throw new IllegalStateException(name + ": HTTP " + response.statusCode());
+                    }
+                }
+                return nanos;
+            }));
+        }
+        long[] all = new long[clients * requests];
+        int filled = 0;
+        for (Future<long[]> future : futures) {
+            long[] nanos = future.get();
+            System.arraycopy(nanos, 0, all, filled, nanos.length);
+            filled += nanos.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("%-16s %10.0f %10.0f %10.0f %10.0f%n", name,
+                filled / (elapsed / 1e9), percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3,
+                all[all.length - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures password-age sweeps against a full scan of the registry.
+ *
+ * Builds two identical registries whose password ages are spread evenly over the maximum
+ * age, then advances a simulated clock an hour per tick. Each tick one registry is swept by
+ * LifecycleSweeper and the other by checking every account, so both lock the same accounts;
+ * the sweeper only visits the accounts that are due.
+ *
+ * Usage: java LifecycleSweepBenchmark [accounts] [ticks]
+ */
+public class LifecycleSweepBenchmark {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(LifecycleSweeper.DEFAULT_MAX_PASSWORD_AGE_DAYS);
+
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+        int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 48;
+
+        long start = System.currentTimeMillis();
+        long[] now = {start};
+        AccountRegistry swept = populate(count, start);
+        AccountRegistry scanned = populate(count, start);
+
+        long t0 = System.nanoTime();
+        LifecycleSweeper sweeper = new LifecycleSweeper(swept, MAX_AGE, 0, () -> now[0]);
+        sweeper.attach();
+        System.out.printf("accounts=%,d ticks=%d (1 h each) attach=%.1f ms%n",
+                count, ticks, (System.nanoTime() - t0) / 1e6);
+
+        // Warm up both paths on the first ticks, then time the rest
+        int warmup = Math.min(ticks / 4, 8);
+        long sweepNanos = 0;
+        long scanNanos = 0;
+        long sweepLocked = 0;
+        long scanLocked = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            now[0] += HOUR;
+
+            t0 = System.nanoTime();
+            int locked = sweeper.sweep();
+            long sweepTime = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            int lockedByScan = scan(scanned, now[0]);
+            long scanTime = System.nanoTime() - t0;
+
+            if (locked != lockedByScan) {
+                throw new IllegalStateException("Tick " + tick + ": sweep locked " + locked + ", scan " + lockedByScan);
+            }
+            if (tick >= warmup) {
+                sweepNanos += sweepTime;
+                scanNanos += scanTime;
+                sweepLocked += locked;
+                scanLocked += lockedByScan;
+            }
+        }
+
+        int timed = ticks - warmup;
+        System.out.printf("%-22s %10.3f ms/tick (%,d locked per tick)%n", "LifecycleSweeper",
+                sweepNanos / 1e6 / timed, sweepLocked / timed);
+        System.out.printf("%-22s %10.3f ms/tick (%,d locked per tick)%n", "full scan",
+                scanNanos / 1e6 / timed, scanLocked / timed);
+        System.out.printf("still scheduled: %,d%n", sweeper.scheduled());
+    }
+
+    // Password ages spread evenly over [0, max age)
+    private static AccountRegistry populate(int count, long now) {
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        for (int i = 0; i < count; i++) {
+            long changed = now - (MAX_AGE * i / count);
+            int first = i % 1_000;
+            int last = i / 1_000;
+            registry.add(Email.restore("First" + first, "Last" + last, "dev",
+                    "first" + first + "-last" + last + "@dev-company-com", hash, Email.DEFAULT_CAPACITY, null,
+                    AccountState.ACTIVE, changed, changed, changed));
+        }
+        return registry;
+    }
+
+    // What a sweep costs without a deadline queue: check every account on every tick
+    private static int scan(AccountRegistry registry, long now) {
+        List<Email> accounts = registry.snapshot();
+        int locked = 0;
+        for (Email account : accounts) {
+            if (account.getState() == AccountState.ACTIVE && account.getPasswordChangedMillis() + MAX_AGE <= now) {
+                registry.setState(account, AccountState.LOCKED);
+                locked++;
+            }
+        }
+        return locked;
+    }
+}
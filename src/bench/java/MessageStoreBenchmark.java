@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Measures MessageStore ingest and fetch throughput over many mailboxes in a scratch directory.
+ *
+ * Ingest appends messagesPerMailbox messages on average to random 1 MB mailboxes from several
+ * threads; above about 250 messages of 4 KB a mailbox is full and appends evict its oldest
+ * messages. Fetch reads random live messages with read() (copy plus checksum) and with
+ * transferTo() into /dev/null.
+ *
+ * Usage: java MessageStoreBenchmark [mailboxes] [messagesPerMailbox] [messageBytes] [threads] [fetches]
+ */
+public class MessageStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int mailboxCount = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int perMailbox = (args.length > 1) ? Integer.parseInt(args[1]) : 40;
+        int messageBytes = (args.length > 2) ? Integer.parseInt(args[2]) : 4_096;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : 4;
+        int fetches = (args.length > 4) ? Integer.parseInt(args[4]) : 200_000;
+
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        List<String> addresses = new ArrayList<>(mailboxCount);
+        for (int i = 0; i < mailboxCount; i++) {
+            String address = "user" + i + "-bench@dev-company-com";
+            registry.add(Email.restore("User" + i, "Bench", "dev", address, hash, 1, null));
+            addresses.add(address);
+        }
+
+        Path dir = Files.createTempDirectory("message-store-bench");
+        int messages = (int) Math.min(Integer.MAX_VALUE, (long) mailboxCount * perMailbox);
+        System.out.printf("mailboxes=%,d messageBytes=%,d threads=%d messages=%,d%n",
+                mailboxCount, messageBytes, threads, messages);
+
+        try (MessageStore store = MessageStore.open(dir, registry, MessageStore.OverflowPolicy.EVICT_OLDEST)) {
+            long elapsed = parallel(threads, messages, (random, i) -> {
+                byte[] body = new byte[messageBytes];
+                random.nextBytes(body);
+                store.append(addresses.get(random.nextInt(mailboxCount)), body);
+            });
+            report("ingest", messages, (long) messages * messageBytes, elapsed);
+
+            elapsed = parallel(threads, fetches, (random, i) -> {
+                String address = addresses.get(random.nextInt(mailboxCount));
+                long first = store.getFirstId(address);
+                long next = store.getNextId(address);
+                if (next > first) {
+                    store.read(address, first + random.nextInt((int) (next - first)));
+                }
+            });
+            report("fetch read()", fetches, (long) fetches * messageBytes, elapsed);
+
+            elapsed = parallel(threads, fetches, (random, i) -> {
+                String address = addresses.get(random.nextInt(mailboxCount));
+                long first = store.getFirstId(address);
+                long next = store.getNextId(address);
+                if (next > first) {
+                    try (FileChannel sink = FileChannel.open(Path.of("/dev/null"), StandardOpenOption.WRITE)) {
+                        store.transferTo(address, first + random.nextInt((int) (next - first)), sink);
+                    }
+                }
+            });
+            report("fetch transferTo", fetches, (long) fetches * messageBytes, elapsed);
+
+            System.out.printf("quota: %,d mailboxes full, %,d near full%n",
+                    registry.getQuotas().overQuotaCount(), registry.getQuotas().nearQuotaCount());
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private interface Operation {
+        void run(Random random, int index) throws IOException;
+    }
+
+    private static long parallel(int threads, int operations, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) operations * t / threads);
+            int to = (int) ((long) operations * (t + 1) / threads);
+            Random random = new Random(t);
+            futures.add(pool.submit(() -> {
+                try {
+                    for (int i = from; i < to; i++) {
+                        operation.run(random, i);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    private static void report(String name, int operations, long bytes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-18s %,12.0f msg/s %10.1f MB/s %10.0f ms%n",
+                name, operations / seconds, bytes / seconds / (1_024 * 1_024), nanos / 1e6);
+    }
+}
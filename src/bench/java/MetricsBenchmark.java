@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the cost of one Metrics.start()/Timer.stop() pair around an empty operation,
+ * per thread count. Run twice, with and without -Demail.metrics=true, to compare the
+ * disabled path (which should be indistinguishable from no instrumentation) with recording.
+ *
+ * Usage: java [-Demail.metrics=true] MetricsBenchmark [secondsPerRun]
+ */
+public class MetricsBenchmark {
+
+    private static final Metrics.Timer TIMER = Metrics.timer("benchmark");
+
+    public static void main(String[] args) throws Exception {
+        int seconds = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("metrics enabled=%b cores=%d seconds/run=%d%n", Metrics.ENABLED, cores, seconds);
+        System.out.printf("%-8s %15s %12s%n", "threads", "timings/sec", "ns/timing");
+
+        run(1, 1);
+        for (int threads = 1; threads <= Math.max(2, cores * 2); threads *= 2) {
+            double perSecond = run(threads, seconds);
+            System.out.printf("%-8d %,15.0f %12.1f%n", threads, perSecond, threads * 1e9 / perSecond);
+        }
+
+        LatencyHistogram.Snapshot s = TIMER.snapshot();
+        System.out.printf("recorded=%,d p50=%dns p99=%dns max=%dns%n",
+                s.getCount(), s.percentileNanos(0.5), s.percentileNanos(0.99), s.getMaxNanos());
+    }
+
+    private static double run(int threads, int seconds) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L + 100_000_000L;
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < deadline) {
+                    long begin = Metrics.start();
+                    TIMER.stop(begin);
+                    local++;
+                }
+                ops.add(local);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Arrays;
+
+/**
+ * Reports password verification latency percentiles for a range of PBKDF2 iteration counts,
+ * and the resulting verifications per second on a single core.
+ *
+ * Usage: java PasswordHashBenchmark [samplesPerCost] [iterations...]
+ */
+public class PasswordHashBenchmark {
+
+    public static void main(String[] args) {
+        int samples = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        int[] costs = (args.length > 1)
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 60_000, Pbkdf2PasswordHasher.DEFAULT_ITERATIONS, 310_000, 600_000};
+
+        String password = PasswordGenerator.shared().generateDirect();
+
+        System.out.printf("samples/cost=%d%n", samples);
+        System.out.printf("%-11s %10s %10s %10s %10s %14s%n",
+                "iterations", "p50 ms", "p90 ms", "p99 ms", "max ms", "verify/s/core");
+
+        for (int cost : costs) {
+            Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(cost);
+            String encoded = hasher.hash(password);
+
+            // Warm-up, and a wrong password so both outcomes are exercised
+            for (int i = 0; i < 3; i++) {
+                hasher.verify(password, encoded);
+                hasher.verify("wrong-" + password, encoded);
+            }
+
+            long[] nanos = new long[samples];
+            long total = 0;
+            for (int i = 0; i < samples; i++) {
+                long start = System.nanoTime();
+                if (!hasher.verify(password, encoded)) {
+                    throw new IllegalStateException("Verification failed at " + cost + " iterations");
+                }
+                nanos[i] = System.nanoTime() - start;
+                total += nanos[i];
+            }
+            Arrays.sort(nanos);
+
+            System.out.printf("%-11d %10.2f %10.2f %10.2f %10.2f %14.1f%n",
+                    cost,
+                    percentile(nanos, 0.50) / 1e6,
+                    percentile(nanos, 0.90) / 1e6,
+                    percentile(nanos, 0.99) / 1e6,
+                    nanos[nanos.length - 1] / 1e6,
+                    samples / (total / 1e9));
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures QuotaEngine reserve/release throughput as the thread count grows, then compares
+ * reading the over-quota index with scanning every account's level.
+ * Each thread reserves 1-20 MB on a random account and releases it again when the
+ * reservation is refused, so accounts drift into and out of the near/over thresholds.
+ *
+ * Usage: java [-Demail.quota.offheap=true] QuotaBenchmark [accounts] [secondsPerRun]
+ */
+public class QuotaBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        for (int i = 0; i < accountCount; i++) {
+            // Names repeat so the search index stays small; addresses stay unique
+            int first = i % 1_000;
+            int last = i / 1_000;
+            registry.add(Email.restore("First" + first, "Last" + last, "dev",
+                    "first" + first + "-last" + last + "@dev-company-com", hash, 100 + i % 400, null));
+        }
+        List<Email> accounts = registry.snapshot();
+        QuotaEngine quotas = registry.getQuotas();
+
+        System.out.printf("accounts=%,d cores=%d seconds/run=%d offHeap=%b%n",
+                accountCount, cores, seconds, Boolean.getBoolean(QuotaEngine.OFF_HEAP_PROPERTY));
+        System.out.printf("%-8s %15s %10s%n", "threads", "ops/sec", "scaling");
+
+        run(quotas, accounts, 1, 1);
+
+        double baseline = 0;
+        for (int threads = 1; threads <= Math.max(2, cores * 2); threads *= 2) {
+            double opsPerSec = run(quotas, accounts, threads, seconds);
+            if (threads == 1) baseline = opsPerSec;
+            System.out.printf("%-8d %,15.0f %9.2fx%n", threads, opsPerSec, opsPerSec / baseline);
+        }
+
+        long t0 = System.nanoTime();
+        int indexed = quotas.overQuota().size();
+        long indexNanos = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        int scanned = 0;
+        for (Email account : accounts) {
+            if (quotas.getLevel(account) == QuotaEngine.Level.OVER) scanned++;
+        }
+        long scanNanos = System.nanoTime() - t0;
+
+        System.out.printf("over quota: %,d (index %.2f ms, full scan %,d found in %.2f ms)%n",
+                indexed, indexNanos / 1e6, scanned, scanNanos / 1e6);
+        System.out.printf("near quota: %,d%n", quotas.nearQuotaCount());
+    }
+
+    private static double run(QuotaEngine quotas, List<Email> accounts,
+                              int threads, int seconds) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L + 100_000_000L;
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < deadline) {
+                    Email account = accounts.get(random.nextInt(accounts.size()));
+                    int megabytes = 1 + random.nextInt(20);
+                    if (!quotas.reserve(account, megabytes)) {
+                        try {
+                            quotas.release(account, Math.min(megabytes * 10, quotas.getUsed(account)));
+                        } catch (IllegalArgumentException e) {
+                            // Another thread released first
+                        }
+                    }
+                    local++;
+                }
+                ops.add(local);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Measures startup recovery time: snapshot load plus journal-tail replay.
+ * Builds the data set in a temporary directory, then recovers it into a fresh registry.
+ *
+ * Usage: java RecoveryBenchmark [accounts] [journalTailRecords]
+ */
+public class RecoveryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int tailRecords = (args.length > 1) ? Integer.parseInt(args[1]) : 100_000;
+        Path dir = Files.createTempDirectory("recovery-bench");
+
+        try {
+            // Realistic hash length without paying for PBKDF2 on a million accounts
+            String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+
+            AccountRegistry source = new AccountRegistry();
+            AccountJournal writer = AccountJournal.open(dir, source);
+            String[] departments = {"sales", "dev", "acct", "none"};
+            for (int i = 0; i < accountCount; i++) {
+                String first = "User" + i;
+                String last = "Bench" + (i % 1000);
+                String dept = departments[i & 3];
+                String address = first.toLowerCase() + "-" + last.toLowerCase()
+                        + ("none".equals(dept) ? "@company-com" : "@" + dept + "-company-com");
+                source.add(Email.restore(first, last, dept, address, hash, Email.DEFAULT_CAPACITY, null));
+            }
+            writer.compact();
+
+            List<Email> accounts = source.snapshot();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < tailRecords; i++) {
+                Email account = accounts.get(random.nextInt(accounts.size()));
+                if ((i & 1) == 0) {
+                    source.setMailboxCapacity(account, 1 + random.nextInt(Email.MAX_CAPACITY));
+                } else {
+                    source.setAlternateEmail(account, "alt" + i + "@example.com");
+                }
+            }
+
+            long snapshotBytes = Files.size(dir.resolve("accounts.snapshot"));
+            long journalBytes;
+            try (Stream<Path> files = Files.list(dir)) {
+                journalBytes = files.filter(p -> p.getFileName().toString().startsWith("journal-"))
+                        .mapToLong(RecoveryBenchmark::sizeOf).sum();
+            }
+
+            source = null;
+            accounts = null;
+            System.gc();
+
+            AccountRegistry recovered = new AccountRegistry();
+            AccountJournal reader = AccountJournal.open(dir, recovered);
+
+            System.out.printf("accounts          : %,d%n", recovered.size());
+            System.out.printf("snapshot size     : %,d bytes%n", snapshotBytes);
+            System.out.printf("journal tail      : %,d records, %,d bytes%n", reader.getRecoveredRecords(), journalBytes);
+            System.out.printf("recovery time     : %,d ms%n", reader.getRecoveryMillis());
+            System.out.printf("throughput        : %,.0f accounts/sec%n",
+                    recovered.size() / Math.max(0.001, reader.getRecoveryMillis() / 1000.0));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
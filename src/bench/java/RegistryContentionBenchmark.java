@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures AccountRegistry mutation throughput as the thread count grows.
+ * Each thread applies random capacity / alternate-email updates to random accounts.
+ * Password updates are left out: their cost is dominated by hashing (see PasswordHashBenchmark).
+ *
+ * Usage: java RegistryContentionBenchmark [accounts] [secondsPerRun]
+ */
+public class RegistryContentionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Email.setPasswordHasher(new Pbkdf2PasswordHasher(1));
+        AccountRegistry registry = new AccountRegistry();
+        for (int i = 0; i < accountCount; i++) {
+            registry.add(new Email("User" + i, "Bench", (i % 2 == 0) ? "dev" : "sales"));
+        }
+        List<Email> accounts = registry.snapshot();
+
+        System.out.printf("accounts=%d cores=%d seconds/run=%d%n", accountCount, cores, seconds);
+        System.out.printf("%-8s %15s %10s%n", "threads", "ops/sec", "scaling");
+
+        // Warm-up pass so the first measured run is not dominated by JIT
+        run(registry, accounts, 1, 1);
+
+        double baseline = 0;
+        for (int threads = 1; threads <= Math.max(2, cores * 2); threads *= 2) {
+            double opsPerSec = run(registry, accounts, threads, seconds);
+            if (threads == 1) baseline = opsPerSec;
+            System.out.printf("%-8d %,15.0f %9.2fx%n", threads, opsPerSec, opsPerSec / baseline);
+        }
+    }
+
+    private static double run(AccountRegistry registry, List<Email> accounts,
+                              int threads, int seconds) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L + 100_000_000L;
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < deadline) {
+                    Email account = accounts.get(random.nextInt(accounts.size()));
+                    if (random.nextBoolean()) {
+                        registry.setMailboxCapacity(account, 1 + random.nextInt(Email.MAX_CAPACITY));
+                    } else {
+                        registry.setAlternateEmail(account, "alt" + (local & 15) + "@example.com");
+                    }
+                    local++;
+                }
+                ops.add(local);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        return ops.sum() / elapsed;
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.stream.Stream;
+
+/**
+ * Measures replaying an admin script through the menus.
+ *
+ * First compares the two line readers on their own: Scanner, as InputValidator used it
+ * (hasNextInt, nextInt, nextLine), against CommandInput. Then runs EmailApp in a child JVM
+ * on a generated script of creates, admin resets, department summaries and invalid
+ * choices, once as --script and once piped into the interactive menus (with the extra
+ * ENTER lines the pauses need). Output is discarded and PBKDF2 runs one iteration, so the
+ * timings are the input and console handling rather than hashing.
+ *
+ * Usage: java -cp out ScriptReplayBenchmark [commands]
+ */
+public class ScriptReplayBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int commands = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = Files.createTempDirectory("script-bench");
+
+        try {
+            Path script = dir.resolve("script.txt");
+            Path interactive = dir.resolve("interactive.txt");
+            writeScript(script, commands, false);
+            writeScript(interactive, commands, true);
+            System.out.printf("commands=%,d script=%,d bytes%n", commands, Files.size(script));
+
+            String text = Files.readString(script);
+            boolean[] numeric = numericLines(text);
+            long lines = numeric.length;
+            for (int round = 0; round < 3; round++) {
+                readWithScanner(text, numeric);
+                readWithCommandInput(text, numeric);
+            }
+            long t0 = System.nanoTime();
+            readWithScanner(text, numeric);
+            double scannerMillis = (System.nanoTime() - t0) / 1e6;
+            t0 = System.nanoTime();
+            readWithCommandInput(text, numeric);
+            double inputMillis = (System.nanoTime() - t0) / 1e6;
+            System.out.printf("%-26s %10.1f ms (%,.0f lines/s)%n", "read: Scanner", scannerMillis, lines / scannerMillis * 1e3);
+            System.out.printf("%-26s %10.1f ms (%,.0f lines/s)%n", "read: CommandInput", inputMillis, lines / inputMillis * 1e3);
+
+            double scripted = runApp(dir.resolve("data-script"), List.of("--script", script.toString()), null);
+            System.out.printf("%-26s %10.2f s (%,.0f commands/s)%n", "EmailApp --script", scripted, commands / scripted);
+            double piped = runApp(dir.resolve("data-piped"), List.of(), interactive);
+            System.out.printf("%-26s %10.2f s (%,.0f commands/s)%n", "EmailApp < interactive", piped, commands / piped);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // One command per menu choice; interactive scripts also answer the welcome and ENTER pauses
+    private static void writeScript(Path file, int commands, boolean interactive) throws IOException {
+        String pause = interactive ? "\n" : "";
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write(pause);
+            for (int i = 0; i < commands; i++) {
+                int account = i / 4;
+                switch (i % 4) {
+                    case 0 -> out.write("1\nUser" + account + "\nBench\n2\n" + pause);
+                    case 1 -> out.write("6\nadmin123\nuser" + account + "-bench@dev-company-com\n1\n" + pause);
+                    case 2 -> out.write("8\n" + pause);
+                    default -> out.write("x\n");
+                }
+            }
+            out.write("9\n");
+        }
+    }
+
+    // Which lines the menus read as numbers: choices, including the invalid "x"
+    private static boolean[] numericLines(String text) {
+        String[] lines = text.split("\n", -1);
+        boolean[] numeric = new boolean[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            numeric[i] = lines[i].equals("x") || (!lines[i].isEmpty() && lines[i].chars().allMatch(Character::isDigit));
+        }
+        return numeric;
+    }
+
+    // Reads the script the way InputValidator did: numbers with hasNextInt/nextInt, text with nextLine
+    private static long readWithScanner(String text, boolean[] numeric) {
+        Scanner scanner = new Scanner(new StringReader(text));
+        long sum = 0;
+        int line = 0;
+        while (scanner.hasNextLine()) {
+            if (numeric[line++] && scanner.hasNextInt()) {
+                sum += scanner.nextInt();
+            }
+            sum += scanner.nextLine().length();
+        }
+        return sum;
+    }
+
+    private static long readWithCommandInput(String text, boolean[] numeric) {
+        CommandInput input = new CommandInput(new StringReader(text), true);
+        long sum = 0;
+        int line = 0;
+        while (input.hasNextLine()) {
+            sum += numeric[line++] ? input.nextInt() : input.nextLine().length();
+        }
+        return sum;
+    }
+
+    // Seconds for a child EmailApp to run the script and exit
+    private static double runApp(Path dataDir, List<String> appArgs, Path stdin) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                "-Demail.data.dir=" + dataDir, "-Demail.pbkdf2.iterations=1", "EmailApp"));
+        command.addAll(appArgs);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.redirectInput((stdin == null) ? ProcessBuilder.Redirect.INHERIT : ProcessBuilder.Redirect.from(stdin.toFile()));
+
+        long start = System.nanoTime();
+        int exit = builder.start().waitFor();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (exit != 0) {
+            throw new IllegalStateException("EmailApp exited with " + exit);
+        }
+        return seconds;
+    }
+}
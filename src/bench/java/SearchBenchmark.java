@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Measures AccountSearchIndex query latency over a large synthetic directory:
+ * short prefixes, exact names, one-typo names, two-word queries, address prefixes and full addresses.
+ *
+ * Usage: java -Xmx3g SearchBenchmark [accounts] [queriesPerKind] [topK]
+ */
+public class SearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+        "an", "be", "ca", "da", "el", "fa", "ga", "ha", "is", "jo", "ka", "li", "ma", "ne", "ol",
+        "pa", "qu", "ro", "sa", "ta", "ul", "vi", "wa", "xe", "yo", "za", "mor", "ten", "ric", "son"
+    };
+
+    public static void main(String[] args) {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = (args.length > 1) ? Integer.parseInt(args[1]) : 20_000;
+        int topK = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+        Random random = new Random(42);
+        String[] firstNames = names(random, 2_000, 2);
+        String[] lastNames = names(random, 100_000, 3);
+
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        String[] departments = {"sales", "dev", "acct", "none"};
+        long start = System.nanoTime();
+        for (int i = 0; i < accountCount; i++) {
+            String first = firstNames[random.nextInt(firstNames.length)];
+            String last = lastNames[random.nextInt(lastNames.length)];
+            String department = departments[i & 3];
+            String address = first.toLowerCase() + "-" + last.toLowerCase() + i + "@" + department + "-company-com";
+            registry.add(Email.restore(first, last, department, address, hash, 500, null));
+        }
+        System.out.printf("accounts=%,d indexed in %,d ms, topK=%d%n",
+                accountCount, (System.nanoTime() - start) / 1_000_000, topK);
+
+        System.out.printf("%-12s %10s %10s %10s %10s %10s%n", "query", "p50 us", "p90 us", "p99 us", "max us", "avg hits");
+        run(registry, "prefix", queries, topK, i -> {
+            String name = lastNames[random.nextInt(lastNames.length)];
+            return name.substring(0, 2 + random.nextInt(3));
+        });
+        run(registry, "exact", queries, topK, i -> lastNames[random.nextInt(lastNames.length)]);
+        run(registry, "typo", queries, topK, i -> typo(random, lastNames[random.nextInt(lastNames.length)]));
+        run(registry, "two-word", queries, topK, i -> {
+            Email account = registry.get(random.nextInt(accountCount));
+            return account.getFirstName() + " " + account.getLastName().substring(0, 3);
+        });
+        run(registry, "addr-prefix", queries, topK, i -> {
+            String address = registry.get(random.nextInt(accountCount)).getEmailAddress();
+            return address.substring(0, address.indexOf('@') - 1);
+        });
+        run(registry, "address", queries, topK, i -> registry.get(random.nextInt(accountCount)).getEmailAddress());
+    }
+
+    private static void run(AccountRegistry registry, String kind, int queries, int topK, IntFunction<String> query) {
+        String[] inputs = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            inputs[i] = query.apply(i);
+        }
+        // Warm-up pass
+        long sink = 0;
+        for (String input : inputs) {
+            sink += registry.search(input, topK).size();
+        }
+
+        long[] nanos = new long[queries];
+        long hits = 0;
+        for (int i = 0; i < queries; i++) {
+            long start = System.nanoTime();
+            List<Email> result = registry.search(inputs[i], topK);
+            nanos[i] = System.nanoTime() - start;
+            hits += result.size();
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-12s %10.1f %10.1f %10.1f %10.1f %10.1f%s%n", kind,
+                percentile(nanos, 0.50) / 1e3, percentile(nanos, 0.90) / 1e3,
+                percentile(nanos, 0.99) / 1e3, nanos[queries - 1] / 1e3,
+                (double) hits / queries, (sink < 0) ? "!" : "");
+    }
+
+    private static String[] names(Random random, int count, int syllables) {
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int parts = syllables + random.nextInt(2);
+            for (int p = 0; p < parts; p++) {
+                sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+            result[i] = sb.toString();
+        }
+        return result;
+    }
+
+    // Swaps two adjacent characters or drops one
+    private static String typo(Random random, String name) {
+        int at = 1 + random.nextInt(name.length() - 2);
+        if (random.nextBoolean()) {
+            return name.substring(0, at) + name.charAt(at + 1) + name.charAt(at) + name.substring(at + 2);
+        }
+        return name.substring(0, at) + name.substring(at + 1);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
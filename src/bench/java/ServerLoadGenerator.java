@@ -0,0 +1,138 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives a running "EmailApp --serve" with pipelined requests from several connections
+ * and reports throughput and latency percentiles. Each connection sends a batch of
+ * pipelineDepth requests, then reads their responses; a request's latency runs from
+ * the batch being written to its response arriving.
+ *
+ * Mix: 20% CREATE, 50% CAPACITY, 20% ALT, 10% LIST (20 rows), updates against accounts
+ * the connection created earlier. Start the server with a scratch data directory and a
+ * low hashing cost to measure the protocol rather than PBKDF2, e.g.
+ *   java -Demail.data.dir=/tmp/load -Demail.pbkdf2.iterations=1000 EmailApp --serve
+ *
+ * Usage: java ServerLoadGenerator [port] [connections] [requestsPerConnection] [pipelineDepth] [adminKey]
+ */
+public class ServerLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : AccountServer.DEFAULT_PORT;
+        int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int requests = (args.length > 2) ? Integer.parseInt(args[2]) : 20_000;
+        int depth = (args.length > 3) ? Integer.parseInt(args[3]) : 32;
+        String adminKey = (args.length > 4) ? args[4] : "admin123";
+
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            String firstName = "Load" + run + "c" + c;
+            futures.add(pool.submit(() -> drive(port, adminKey, firstName, requests, depth)));
+        }
+        long[] all = new long[connections * requests];
+        int filled = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            System.arraycopy(latencies, 0, all, filled, latencies.length);
+            filled += latencies.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(all, 0, filled);
+        System.out.printf("connections=%d requests=%,d pipeline=%d%n", connections, filled, depth);
+        System.out.printf("throughput %,.0f ops/s over %,.0f ms%n", filled / (elapsed / 1e9), elapsed / 1e6);
+        System.out.printf("latency us: p50 %.0f | p90 %.0f | p99 %.0f | p99.9 %.0f | max %.0f%n",
+                percentile(all, filled, 0.50) / 1e3, percentile(all, filled, 0.90) / 1e3,
+                percentile(all, filled, 0.99) / 1e3, percentile(all, filled, 0.999) / 1e3,
+                all[filled - 1] / 1e3);
+    }
+
+    private static long[] drive(int port, String adminKey, String firstName, int requests, int depth) {
+        Random random = new Random(firstName.hashCode());
+        List<String[]> accounts = new ArrayList<>();   // address, password
+        long[] latencies = new long[requests];
+        int created = 0;
+        int done = 0;
+
+        try (Socket socket = new Socket("127.0.0.1", port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+             BufferedWriter out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            socket.setTcpNoDelay(true);
+
+            char[] kinds = new char[depth];
+            while (done < requests) {
+                int batch = Math.min(depth, requests - done);
+                for (int i = 0; i < batch; i++) {
+                    int roll = random.nextInt(10);
+                    if (accounts.isEmpty() || roll < 2) {
+                        kinds[i] = 'C';
+                        out.write("CREATE\t" + adminKey + "\t" + firstName + "\tUser" + (created++) + "\tdev\n");
+                    } else if (roll < 9) {
+                        String[] account = accounts.get(random.nextInt(accounts.size()));
+                        if (roll < 7) {
+                            out.write("CAPACITY\t" + account[0] + "\t" + account[1] + "\t" + (1 + random.nextInt(5_000)) + "\n");
+                        } else {
+                            out.write("ALT\t" + account[0] + "\t" + account[1] + "\talt" + random.nextInt(1_000) + "@example.com\n");
+                        }
+                        kinds[i] = 'U';
+                    } else {
+                        kinds[i] = 'L';
+                        out.write("LIST\t" + adminKey + "\t0\t20\n");
+                    }
+                }
+                long sent = System.nanoTime();
+                out.flush();
+
+                for (int i = 0; i < batch; i++) {
+                    String response = in.readLine();
+                    if (response == null) {
+                        throw new IOException("Server closed the connection");
+                    }
+                    if (!response.startsWith("OK")) {
+                        throw new IllegalStateException("Request failed: " + response);
+                    }
+                    if (kinds[i] == 'C') {
+                        String[] fields = response.split("\t");
+                        accounts.add(new String[] {fields[1], fields[2]});
+                    } else if (kinds[i] == 'L') {
+                        int rows = Integer.parseInt(response.substring(3));
+                        for (int r = 0; r < rows; r++) {
+                            in.readLine();
+                        }
+                    }
+                    latencies[done + i] = System.nanoTime() - sent;
+                }
+                done += batch;
+            }
+            out.write("QUIT\n");
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, int length, double p) {
+        int index = (int) Math.ceil(p * length) - 1;
+        return sorted[Math.max(0, Math.min(length - 1, index))];
+    }
+}
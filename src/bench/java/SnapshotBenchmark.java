@@ -0,0 +1,183 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Round-trips the account set through AccountSnapshot and compares load time, file size
+ * and retained heap against a naive per-field DataOutputStream serialization.
+ *
+ * Usage: java -Xmx2g SnapshotBenchmark [accounts]
+ */
+public class SnapshotBenchmark {
+
+    private static final String[] DEPARTMENTS = {"sales", "dev", "acct", "none"};
+
+    public static void main(String[] args) throws IOException {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 500_000;
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path compact = dir.resolve("accounts.snapshot");
+        Path naive = dir.resolve("accounts.naive");
+
+        try {
+            List<Email> accounts = buildAccounts(accountCount);
+
+            long start = System.nanoTime();
+            AccountSnapshot.write(compact, accounts, 1);
+            long compactWriteNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            writeNaive(naive, accounts);
+            long naiveWriteNanos = System.nanoTime() - start;
+
+            verifyRoundTrip(accounts, AccountSnapshot.Reader.open(compact));
+            System.out.printf("round trip        : %,d accounts identical%n", accounts.size());
+
+            accounts = null;
+            long baseHeap = usedHeap();
+
+            // Naive: every field decoded into its own String
+            start = System.nanoTime();
+            List<Email> naiveLoaded = readNaive(naive);
+            long naiveLoadNanos = System.nanoTime() - start;
+            long naiveHeap = usedHeap() - baseHeap;
+            naiveLoaded = null;
+            baseHeap = usedHeap();
+
+            // Compact, lazy: open only, then touch 1% of accounts
+            start = System.nanoTime();
+            AccountSnapshot.Reader lazy = AccountSnapshot.Reader.open(compact);
+            long openNanos = System.nanoTime() - start;
+            List<Email> touched = new ArrayList<>();
+            start = System.nanoTime();
+            for (int i = 0; i < lazy.size(); i += 100) {
+                touched.add(lazy.get(i));
+            }
+            long touchNanos = System.nanoTime() - start;
+            long lazyHeap = usedHeap() - baseHeap;
+            touched = null;
+            lazy = null;
+            baseHeap = usedHeap();
+
+            // Compact, full decode with shared strings
+            start = System.nanoTime();
+            AccountSnapshot.Reader full = AccountSnapshot.Reader.open(compact);
+            List<Email> all = new ArrayList<>(full.size());
+            for (int i = 0; i < full.size(); i++) {
+                all.add(full.get(i));
+            }
+            long fullLoadNanos = System.nanoTime() - start;
+            long fullHeap = usedHeap() - baseHeap;
+
+            System.out.printf("%-28s %12s %12s %14s%n", "", "size (MB)", "time (ms)", "heap (MB)");
+            System.out.printf("%-28s %12.1f %12.1f %14s%n", "naive write", mb(Files.size(naive)), ms(naiveWriteNanos), "");
+            System.out.printf("%-28s %12.1f %12.1f %14s%n", "compact write", mb(Files.size(compact)), ms(compactWriteNanos), "");
+            System.out.printf("%-28s %12s %12.1f %14.1f%n", "naive load (all)", "", ms(naiveLoadNanos), mb(naiveHeap));
+            System.out.printf("%-28s %12s %12.1f %14.1f%n", "compact load (all)", "", ms(fullLoadNanos), mb(fullHeap));
+            System.out.printf("%-28s %12s %12.3f %14s%n", "compact open (lazy)", "", ms(openNanos), "");
+            System.out.printf("%-28s %12s %12.1f %14.1f%n", "compact touch 1%", "", ms(touchNanos), mb(lazyHeap));
+            if (all.size() != accountCount) throw new IllegalStateException("Loaded " + all.size());
+        } finally {
+            Files.deleteIfExists(compact);
+            Files.deleteIfExists(naive);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static List<Email> buildAccounts(int count) {
+        String hashPrefix = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        hashPrefix = hashPrefix.substring(0, hashPrefix.length() - 8);
+        List<Email> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String first = "First" + (i % 2_000);
+            String last = "Last" + (i / 2_000);
+            String dept = DEPARTMENTS[i & 3];
+            String address = first.toLowerCase() + "-" + last.toLowerCase()
+                    + ("none".equals(dept) ? "@company-com" : "@" + dept + "-company-com");
+            String hash = hashPrefix + String.format("%08x", i);
+            String alternate = (i % 10 == 0) ? "backup" + i + "@example.com" : null;
+            accounts.add(Email.restore(first, last, dept, address, hash, 100 + (i % 500), alternate));
+        }
+        return accounts;
+    }
+
+    private static void verifyRoundTrip(List<Email> expected, AccountSnapshot.Reader reader) {
+        if (reader.size() != expected.size()) {
+            throw new IllegalStateException("Count mismatch: " + reader.size() + " != " + expected.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Email a = expected.get(i);
+            Email b = reader.get(i);
+            boolean same = a.getFirstName().equals(b.getFirstName())
+                    && a.getLastName().equals(b.getLastName())
+                    && a.getDepartmentCode().equals(b.getDepartmentCode())
+                    && a.getEmailAddress().equals(b.getEmailAddress())
+                    && a.getPasswordHash().equals(b.getPasswordHash())
+                    && a.getMailboxCapacity() == b.getMailboxCapacity()
+                    && Objects.equals(a.getAlternateEmail(), b.getAlternateEmail())
+                    && a.getState() == b.getState()
+                    && a.getCreatedMillis() == b.getCreatedMillis()
+                    && a.getPasswordChangedMillis() == b.getPasswordChangedMillis()
+                    && a.getLastChangedMillis() == b.getLastChangedMillis();
+            if (!same || !reader.getEmailAddress(i).equals(a.getEmailAddress())) {
+                throw new IllegalStateException("Round trip mismatch at account " + i);
+            }
+        }
+    }
+
+    private static void writeNaive(Path file, List<Email> accounts) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(accounts.size());
+            for (Email account : accounts) {
+                out.writeUTF(account.getFirstName());
+                out.writeUTF(account.getLastName());
+                out.writeUTF(account.getDepartmentCode());
+                out.writeUTF(account.getEmailAddress());
+                out.writeUTF(account.getPasswordHash());
+                out.writeInt(account.getMailboxCapacity());
+                out.writeUTF(account.getAlternateEmail() == null ? "" : account.getAlternateEmail());
+            }
+        }
+    }
+
+    private static List<Email> readNaive(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            List<Email> accounts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String first = in.readUTF();
+                String last = in.readUTF();
+                String dept = in.readUTF();
+                String address = in.readUTF();
+                String hash = in.readUTF();
+                int capacity = in.readInt();
+                String alternate = in.readUTF();
+                accounts.add(Email.restore(first, last, dept, address, hash, capacity,
+                        alternate.isEmpty() ? null : alternate));
+            }
+            return accounts;
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
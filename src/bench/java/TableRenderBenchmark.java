@@ -0,0 +1,81 @@
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Renders the full accounts table to a null sink, comparing the original
+ * snapshot + printf-per-row approach with TableRenderer over a paged cursor.
+ *
+ * Usage: java -Xmx2g TableRenderBenchmark [accounts] [rounds]
+ */
+public class TableRenderBenchmark {
+
+    public static void main(String[] args) {
+        int accountCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+
+        AccountRegistry registry = new AccountRegistry();
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        for (int i = 0; i < accountCount; i++) {
+            String first = "First" + i;
+            String last = "Lastname" + (i % 5_000);
+            registry.add(Email.restore(first, last, "dev",
+                    first.toLowerCase() + "-" + last.toLowerCase() + "@dev-company-com",
+                    hash, 500 + (i % 1_000), (i % 7 == 0) ? "alt" + i + "@example.com" : null));
+        }
+
+        PrintStream nullPrint = new PrintStream(OutputStream.nullOutputStream(), true);
+        TableRenderer renderer = new TableRenderer(new BufferedWriter(Writer.nullWriter(), 1 << 16));
+
+        System.out.printf("accounts=%,d%n", accountCount);
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            legacyAccountsTable(nullPrint, registry);
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ConsoleUI.renderAccountsTable(renderer, registry, 0, Integer.MAX_VALUE);
+            renderer.flush();
+            long rendererNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ConsoleUI.renderAccountsTable(renderer, registry, accountCount / 2, 20);
+            renderer.flush();
+            long pageNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: printf %,8.0f ms | renderer %,8.0f ms (%.1fx) | one 20-row page %,.3f ms%n",
+                    round, legacyNanos / 1e6, rendererNanos / 1e6,
+                    (double) legacyNanos / rendererNanos, pageNanos / 1e6);
+        }
+    }
+
+    // The pre-TableRenderer implementation: full snapshot, string concat and printf per row
+    private static void legacyAccountsTable(PrintStream out, AccountRegistry accounts) {
+        List<Email> rows = accounts.snapshot();
+        for (int i = 0; i < rows.size(); i++) {
+            Email acc = rows.get(i);
+            String name = acc.getFirstName() + " " + acc.getLastName();
+            out.printf("| %-3d | %-18s | %-36s | %-10s | %-14d |%n",
+                    i + 1,
+                    truncate(name, 18),
+                    truncate(acc.getEmailAddress(), 36),
+                    truncate(acc.getDepartment(), 10),
+                    acc.getMailboxCapacity());
+
+            if (acc.getAlternateEmail() != null && !acc.getAlternateEmail().isEmpty()) {
+                out.printf("|     | %-18s | %-36s | %-10s | %-14s |%n",
+                        "Alt:", truncate(acc.getAlternateEmail(), 36), "", "");
+            }
+        }
+    }
+
+    private static String truncate(String str, int maxLength) {
+        if (str == null) return "";
+        if (str.length() <= maxLength) {
+            return str;
+        }
+        return str.substring(0, maxLength - 3) + "---";
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Measures multi-tenant startup and isolation.
+ *
+ * Builds a data directory with many tenants, then compares reading the catalog and opening
+ * one tenant against eagerly opening every tenant. Then runs capacity updates on several
+ * threads, first with every thread in its own tenant and then with all of them sharing one,
+ * to show that work in different tenants does not contend.
+ *
+ * Usage: java TenantBenchmark [tenants] [accountsPerTenant] [secondsPerRun]
+ */
+public class TenantBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tenantCount = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int perTenant = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        Path dir = Files.createTempDirectory("tenant-bench");
+
+        try {
+            populate(dir, tenantCount, perTenant);
+            System.out.printf("tenants=%,d accounts/tenant=%,d%n", tenantCount, perTenant);
+
+            long t0 = System.nanoTime();
+            try (TenantDirectory tenants = TenantDirectory.open(dir)) {
+                double catalogMillis = (System.nanoTime() - t0) / 1e6;
+                int size = tenants.get("t0").accounts().size();
+                double lazyMillis = (System.nanoTime() - t0) / 1e6;
+                System.out.printf("%-28s %10.1f ms%n", "read catalog", catalogMillis);
+                System.out.printf("%-28s %10.1f ms (%,d accounts)%n", "catalog + first tenant", lazyMillis, size);
+            }
+
+            t0 = System.nanoTime();
+            try (TenantDirectory tenants = TenantDirectory.open(dir)) {
+                long total = 0;
+                for (Tenant tenant : tenants.all()) {
+                    total += tenant.accounts().size();
+                }
+                System.out.printf("%-28s %10.1f ms (%,d accounts)%n", "open every tenant", (System.nanoTime() - t0) / 1e6, total);
+            }
+
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            try (TenantDirectory tenants = TenantDirectory.open(dir)) {
+                List<List<Email>> own = new ArrayList<>();
+                List<List<Email>> shared = new ArrayList<>();
+                List<Email> first = tenants.get("t0").accounts().snapshot();
+                for (int t = 0; t < threads; t++) {
+                    own.add(tenants.get("t" + (t % tenantCount)).accounts().snapshot());
+                    shared.add(first);
+                }
+                run(own, 1);
+                System.out.printf("%-28s %,10.0f updates/s (%d threads)%n", "one tenant per thread", run(own, seconds), threads);
+                System.out.printf("%-28s %,10.0f updates/s (%d threads)%n", "all threads in one tenant", run(shared, seconds), threads);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void populate(Path dir, int tenantCount, int perTenant) throws IOException {
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        try (TenantDirectory tenants = TenantDirectory.open(dir)) {
+            for (int t = 0; t < tenantCount; t++) {
+                Tenant tenant = tenants.add("t" + t, "tenant" + t + "-com", List.of("sales:Sales", "eng:Engineering"));
+                AccountRegistry registry = tenant.accounts();
+                for (int i = 0; i < perTenant; i++) {
+                    registry.add(Email.restore("User" + i, "Bench", "eng",
+                            "user" + i + "-bench@eng-" + tenant.getDomain(), hash, 500, null));
+                }
+                tenant.close();
+            }
+        }
+    }
+
+    // Capacity updates per second, each thread working through its own account list
+    private static double run(List<List<Email>> perThread, int seconds) throws InterruptedException {
+        LongAdder updates = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> workers = new ArrayList<>();
+
+        for (List<Email> accounts : perThread) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                while ((done & 1023) != 0 || System.nanoTime() < deadline) {
+                    Email account = accounts.get(random.nextInt(accounts.size()));
+                    account.setMailboxCapacity(100 + random.nextInt(1000));
+                    done++;
+                }
+                updates.add(done);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return updates.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+}
@@ -0,0 +1,56 @@
+import benchmarks.Fixtures;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * AddressValidator side of AddressValidatorBenchmark.
+ */
+public class JmhAddressFixture implements Fixtures.AddressFixture {
+
+    // The pattern Email used before AddressValidator
+    private static final Pattern LEGACY = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+
+    private static final String[] DOMAINS = {
+        "gmail.com", "Example.COM", "mail.example.co.uk", "company.org", "yahoo.com",
+        "outlook.com", "dev.internal.example.net", "university.edu", "sub-domain.example.io",
+    };
+
+    private final AddressValidator validator = new AddressValidator(4096);
+
+    @Override
+    public String[] corpus(int size) {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] corpus = new String[size];
+        for (int i = 0; i < size; i++) {
+            String local = "first" + i + ((i % 3 == 0) ? ".last+tag" : "");
+            String domain = (i % 10 < 8) ? DOMAINS[random.nextInt(DOMAINS.length)] : "host" + random.nextInt(200) + ".example.com";
+            String address = local + "@" + domain;
+            // One in eight is broken in a typical way
+            switch (i % 8 == 7 ? random.nextInt(4) : -1) {
+                case 0 -> address = address.replace("@", "");
+                case 1 -> address = address.replace(".", "..");
+                case 2 -> address = address + ".";
+                case 3 -> address = address.replace("@", "@-");
+                default -> { }
+            }
+            corpus[i] = address;
+        }
+        return corpus;
+    }
+
+    @Override
+    public boolean legacyPattern(String address) {
+        return LEGACY.matcher(address).matches();
+    }
+
+    @Override
+    public boolean validatorUncached(String address) {
+        return AddressValidator.isValid(address);
+    }
+
+
+    @Override
+    public String normalize(String address) {
+        return validator.normalize(address);
+    }
+}
@@ -0,0 +1,57 @@
+import benchmarks.Fixtures;
+
+/**
+ * Email side of EmailBenchmark and EmailHashSetBenchmark.
+ */
+public class JmhEmailFixture implements Fixtures.EmailFixture {
+
+    private Email account;
+    private String password;
+    private String restoredHash;
+
+    @Override
+    public void setUp(int pbkdf2Iterations) {
+        Email.setPasswordHasher(new Pbkdf2PasswordHasher(pbkdf2Iterations));
+        account = new Email("Benchmark", "Account", "dev");
+        password = account.getOneTimePassword();
+        restoredHash = account.getPasswordHash();
+    }
+
+    @Override
+    public Object newAccount(String firstName, String lastName, String department) {
+        return new Email(firstName, lastName, department);
+    }
+
+    @Override
+    public String password() {
+        return password;
+    }
+
+    @Override
+    public boolean verifyPassword(String input) {
+        return account.verifyPassword(input);
+    }
+
+    @Override
+    public boolean setAlternateEmail(String address) {
+        try {
+            account.setAlternateEmail(address);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Object[] restoreAccounts(int count) {
+        Object[] accounts = new Object[count];
+        for (int i = 0; i < count; i++) {
+            String first = "First" + i;
+            String last = "Lastname" + (i % 5_000);
+            accounts[i] = Email.restore(first, last, "dev",
+                    first.toLowerCase() + "-" + last.toLowerCase() + "@dev-company-com",
+                    restoredHash, 500, null);
+        }
+        return accounts;
+    }
+}
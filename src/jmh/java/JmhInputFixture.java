@@ -0,0 +1,34 @@
+import benchmarks.Fixtures;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+/**
+ * InputValidator side of InputValidatorBenchmark.
+ */
+public class JmhInputFixture implements Fixtures.InputFixture {
+
+    private PrintStream console;
+
+    @Override
+    public void setUp() {
+        // Menu prompts go to System.out; keep them out of the JMH log
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Override
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Override
+    public int menuChoice(String input, int min, int max) {
+        return InputValidator.getMenuChoice(new CommandInput(new StringReader(input), false), min, max);
+    }
+
+    @Override
+    public String parseDepartment(String value) {
+        return InputValidator.parseDepartment(value);
+    }
+}
@@ -0,0 +1,54 @@
+import benchmarks.Fixtures;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * LoginGuard side of LoginGuardBenchmark.
+ */
+public class JmhLoginFixture implements Fixtures.LoginFixture {
+
+    private static final String SOURCE = "127.0.0.1";
+    private static final byte[] ADMIN_KEY = "admin123".getBytes(StandardCharsets.UTF_8);
+
+    private Email account;
+    private String password;
+    private LoginGuard guard;
+
+    @Override
+    public void setUp(int trackedKeys) {
+        Email.setPasswordHasher(new Pbkdf2PasswordHasher(1));
+        account = new Email("Benchmark", "Account", "dev");
+        password = account.getOneTimePassword();
+
+        // One failure each stays well under the limits, so no key is locked out
+        guard = new LoginGuard(
+                new SlidingWindowLimiter(5, 60_000, 30_000, 3_600_000, trackedKeys + 1, System::currentTimeMillis),
+                new SlidingWindowLimiter(50, 60_000, 30_000, 3_600_000, trackedKeys + 1, System::currentTimeMillis));
+        for (int i = 0; i < trackedKeys; i++) {
+            Email other = Email.restore("First" + i, "Last", "dev", "first" + i + "-last@dev-company-com",
+                    account.getPasswordHash(), 500, null);
+            guard.failed(other, "10.0." + (i >>> 8 & 0xFF) + "." + (i & 0xFF));
+        }
+    }
+
+    @Override
+    public boolean verifyPassword() {
+        return account.verifyPassword(password);
+    }
+
+    @Override
+    public boolean guardedVerifyPassword() {
+        return guard.verifyPassword(account, password, SOURCE);
+    }
+
+    @Override
+    public boolean adminKey() {
+        return MessageDigest.isEqual(ADMIN_KEY, "admin123".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean guardedAdminKey() {
+        return guard.verifyAdminKey(ADMIN_KEY, "admin123", SOURCE);
+    }
+}
@@ -0,0 +1,62 @@
+import benchmarks.Fixtures;
+import java.security.SecureRandom;
+import java.time.Year;
+
+/**
+ * PasswordGenerator side of PasswordGeneratorBenchmark.
+ */
+public class JmhPasswordFixture implements Fixtures.PasswordFixture {
+
+    // The generator Email used before PasswordGenerator, kept as the baseline
+    private static final String[] ADJECTIVES = {
+        "Blue", "Green", "Silver", "Golden", "Crimson",
+        "Purple", "Azure", "Amber", "Emerald", "Ivory",
+        "Scarlet", "Violet", "Copper", "Bronze", "Pearl",
+        "Ruby", "Jade", "Topaz", "Coral", "Platinum"
+    };
+
+    private static final String[] NOUNS = {
+        "Sky", "Ocean", "Forest", "River", "Moon",
+        "Star", "Cloud", "Fire", "Stone", "Leaf",
+        "Wind", "Rain", "Snow", "Sun", "Wave",
+        "Mountain", "Valley", "Lake", "Desert", "Meadow"
+    };
+
+    private static final char[] SPECIAL_CHARS = {'@', '#', '$', '&', '!', '*', '%', '+', '='};
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final PasswordGenerator direct = new PasswordGenerator();
+    private final PasswordGenerator pooled = new PasswordGenerator();
+
+    @Override
+    public void setUp() {
+        pooled.enablePool(16_384);
+    }
+
+    @Override
+    public void tearDown() {
+        pooled.disablePool();
+    }
+
+    @Override
+    public String legacy() {
+        String adjective = ADJECTIVES[RANDOM.nextInt(ADJECTIVES.length)];
+        String noun = NOUNS[RANDOM.nextInt(NOUNS.length)];
+        char symbol = SPECIAL_CHARS[RANDOM.nextInt(SPECIAL_CHARS.length)];
+        int year = Year.now().getValue();
+        int randomDigits = RANDOM.nextInt(100);
+
+        return String.format("%s%s%c%d-%02d", adjective, noun, symbol, year, randomDigits);
+    }
+
+    @Override
+    public String direct() {
+        return direct.generateDirect();
+    }
+
+    @Override
+    public String pooled() {
+        return pooled.generate();
+    }
+}
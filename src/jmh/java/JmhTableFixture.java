@@ -0,0 +1,50 @@
+import benchmarks.Fixtures;
+import java.io.BufferedWriter;
+import java.io.Writer;
+
+/**
+ * ConsoleUI side of ConsoleUIBenchmark.
+ */
+public class JmhTableFixture implements Fixtures.TableFixture {
+
+    private final AccountRegistry registry = new AccountRegistry();
+    private final TableRenderer renderer = new TableRenderer(new BufferedWriter(Writer.nullWriter(), 1 << 16));
+
+    @Override
+    public void setUp(int accounts) {
+        String hash = new Pbkdf2PasswordHasher(1).hash("BenchmarkPassword#2026-00");
+        String[] departments = {"sales", "dev", "acct", "none"};
+        for (int i = 0; i < accounts; i++) {
+            String first = "First" + i;
+            String last = "Lastname" + (i % 5_000);
+            String department = departments[i % departments.length];
+            registry.add(Email.restore(first, last, department,
+                    first.toLowerCase() + "-" + last.toLowerCase() + "@" + department + "-company-com",
+                    hash, 500 + (i % 1_000), (i % 7 == 0) ? "alt" + i + "@example.com" : null));
+        }
+    }
+
+    @Override
+    public void renderPasswordTable() {
+        ConsoleUI.renderPasswordTable(renderer, registry, 0, Integer.MAX_VALUE);
+        renderer.flush();
+    }
+
+    @Override
+    public void renderAccountsTable() {
+        ConsoleUI.renderAccountsTable(renderer, registry, 0, Integer.MAX_VALUE);
+        renderer.flush();
+    }
+
+    @Override
+    public void renderSelectTable() {
+        ConsoleUI.renderSelectTable(renderer, registry, 0, Integer.MAX_VALUE);
+        renderer.flush();
+    }
+
+    @Override
+    public void renderDepartmentTable() {
+        ConsoleUI.renderDepartmentTable(renderer, registry);
+        renderer.flush();
+    }
+}
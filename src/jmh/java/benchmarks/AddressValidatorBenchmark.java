@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Alternate-address validation per address: the old regex versus AddressValidator.isValid()
+ * and the memoized normalize(). Run with -prof gc to compare allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddressValidatorBenchmark {
+
+    private static final int CORPUS_SIZE = 4096;
+
+    private Fixtures.AddressFixture fixture;
+    private String[] corpus;
+    private String[] validCorpus;
+    private int next;
+    private int nextValid;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load(Fixtures.AddressFixture.class, "JmhAddressFixture");
+        corpus = fixture.corpus(CORPUS_SIZE);
+        // normalize() throws on invalid input; time it on the addresses it accepts
+        validCorpus = Arrays.stream(corpus).filter(fixture::validatorUncached).toArray(String[]::new);
+    }
+
+    private String nextAddress() {
+        String address = corpus[next];
+        next = (next + 1) & (CORPUS_SIZE - 1);
+        return address;
+    }
+
+    @Benchmark
+    public boolean legacyPattern() {
+        return fixture.legacyPattern(nextAddress());
+    }
+
+    @Benchmark
+    public boolean validatorUncached() {
+        return fixture.validatorUncached(nextAddress());
+    }
+
+    @Benchmark
+    public String normalize() {
+        String address = validCorpus[nextValid];
+        nextValid = (nextValid + 1 == validCorpus.length) ? 0 : nextValid + 1;
+        return fixture.normalize(address);
+    }
+}
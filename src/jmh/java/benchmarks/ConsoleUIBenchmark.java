@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Each ConsoleUI table renderer over the full registry, written to a null sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ConsoleUIBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int accounts;
+
+    private Fixtures.TableFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load(Fixtures.TableFixture.class, "JmhTableFixture");
+        fixture.setUp(accounts);
+    }
+
+    @Benchmark
+    public void passwordTable() {
+        fixture.renderPasswordTable();
+    }
+
+    @Benchmark
+    public void accountsTable() {
+        fixture.renderAccountsTable();
+    }
+
+    @Benchmark
+    public void selectTable() {
+        fixture.renderSelectTable();
+    }
+
+    @Benchmark
+    public void departmentTable() {
+        fixture.renderDepartmentTable();
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Account construction, password verification and alternate-address validation.
+ *
+ * With pbkdf2Iterations=1 hashing is negligible and construct() measures address and
+ * password generation; at the production default it shows what a new account really costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailBenchmark {
+
+    @Param({"1", "120000"})
+    public int pbkdf2Iterations;
+
+    private Fixtures.EmailFixture fixture;
+    private String password;
+    private String wrongPassword;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load(Fixtures.EmailFixture.class, "JmhEmailFixture");
+        fixture.setUp(pbkdf2Iterations);
+        password = fixture.password();
+        wrongPassword = password + "x";
+    }
+
+    @Benchmark
+    public Object construct() {
+        return fixture.newAccount("Benchmark", "Account", "dev");
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return fixture.verifyPassword(password);
+    }
+
+    @Benchmark
+    public boolean verifyWrongPassword() {
+        return fixture.verifyPassword(wrongPassword);
+    }
+
+    @Benchmark
+    public boolean setValidAlternateEmail() {
+        return fixture.setAlternateEmail("benchmark.account@example.com");
+    }
+
+    @Benchmark
+    public boolean setInvalidAlternateEmail() {
+        return fixture.setAlternateEmail("benchmark.account@example");
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Email.equals/hashCode in large hash sets. Lookups use equal but distinct instances, so
+ * every hit goes through equals() rather than the identity shortcut.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class EmailHashSetBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int accounts;
+
+    private Object[] probes;
+    private Object[] members;
+    private Set<Object> set;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Fixtures.EmailFixture fixture = Fixtures.load(Fixtures.EmailFixture.class, "JmhEmailFixture");
+        fixture.setUp(1);
+        members = fixture.restoreAccounts(accounts);
+        set = new HashSet<>();
+        for (Object account : members) {
+            set.add(account);
+        }
+        probes = fixture.restoreAccounts(accounts);
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        Object probe = probes[next];
+        next = (next + 1 == probes.length) ? 0 : next + 1;
+        return set.contains(probe);
+    }
+
+    @Benchmark
+    public int hashCodeOnly() {
+        Object probe = probes[next];
+        next = (next + 1 == probes.length) ? 0 : next + 1;
+        return probe.hashCode();
+    }
+
+    /**
+     * Builds the whole set from scratch; reported per set, not per element.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public Set<Object> build() {
+        Set<Object> built = new HashSet<>();
+        for (Object account : members) {
+            built.add(account);
+        }
+        return built;
+    }
+}
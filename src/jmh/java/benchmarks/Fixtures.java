@@ -0,0 +1,145 @@
+package benchmarks;
+
+/**
+ * Bridges the JMH benchmarks to the application classes.
+ *
+ * JMH refuses benchmark classes in the default package, and classes in a named package
+ * cannot refer to default-package types, so the benchmarks here cannot touch Email or
+ * ConsoleUI directly. Instead each fixture interface below is implemented by a
+ * default-package class in src/jmh/java and loaded by name. Every call site sees exactly
+ * one implementation, so the JIT inlines through the interface and the benchmarks measure
+ * the application code itself.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Account construction, password checks and alternate-address validation.
+     */
+    public interface EmailFixture {
+        /**
+         * Installs a PBKDF2 hasher with this iteration count and creates the probe account.
+         */
+        void setUp(int pbkdf2Iterations);
+
+        /**
+         * Builds a new account, generating its address and one-time password.
+         */
+        Object newAccount(String firstName, String lastName, String department);
+
+        /**
+         * The probe account's current password.
+         */
+        String password();
+
+        boolean verifyPassword(String input);
+
+        /**
+         * Sets the probe account's alternate address; false when validation rejects it.
+         */
+        boolean setAlternateEmail(String address);
+
+        /**
+         * Restores count accounts with distinct addresses; repeated calls return equal
+         * but distinct instances.
+         */
+        Object[] restoreAccounts(int count);
+    }
+
+    /**
+     * ConsoleUI table rendering against a registry of a given size, written to a null sink.
+     */
+    public interface TableFixture {
+        void setUp(int accounts);
+
+        void renderPasswordTable();
+
+        void renderAccountsTable();
+
+        void renderSelectTable();
+
+        void renderDepartmentTable();
+    }
+
+    /**
+     * InputValidator parsing, with console prompts discarded.
+     */
+    public interface InputFixture {
+        void setUp();
+
+        void tearDown();
+
+        int menuChoice(String input, int min, int max);
+
+        String parseDepartment(String value);
+    }
+
+    /**
+     * Alternate-address validation: the old regex against AddressValidator.
+     */
+    public interface AddressFixture {
+        /**
+         * A mix of valid and invalid addresses spread over a realistic number of domains.
+         */
+        String[] corpus(int size);
+
+        boolean legacyPattern(String address);
+
+        boolean validatorUncached(String address);
+
+        String normalize(String address);
+    }
+
+    /**
+     * Password and admin-key checks with and without LoginGuard in front of them.
+     */
+    public interface LoginFixture {
+        /**
+         * Creates the probe account, hashed with one PBKDF2 iteration so the guard's share
+         * shows, and a guard already tracking failures for trackedKeys other accounts and sources.
+         */
+        void setUp(int trackedKeys);
+
+        boolean verifyPassword();
+
+        boolean guardedVerifyPassword();
+
+        boolean adminKey();
+
+        boolean guardedAdminKey();
+    }
+
+    /**
+     * Password generation: the original shared-SecureRandom version against PasswordGenerator.
+     */
+    public interface PasswordFixture {
+        /**
+         * Starts the pooled generator's refill thread.
+         */
+        void setUp();
+
+        void tearDown();
+
+        String legacy();
+
+        String direct();
+
+        /**
+         * From the pool while it has passwords ready, otherwise generated on the calling thread.
+         */
+        String pooled();
+    }
+
+    /**
+     * Instantiates the default-package implementation of a fixture.
+     */
+    public static <T> T load(Class<T> type, String implementation) {
+        try {
+            return type.cast(Class.forName(implementation).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load benchmark fixture " + implementation, e);
+        }
+    }
+}
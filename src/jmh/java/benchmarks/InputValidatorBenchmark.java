@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Menu-choice and department parsing, one line of input per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputValidatorBenchmark {
+
+    private Fixtures.InputFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load(Fixtures.InputFixture.class, "JmhInputFixture");
+        fixture.setUp();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.tearDown();
+    }
+
+    @Benchmark
+    public int menuChoice() {
+        return fixture.menuChoice("7\n", 1, 9);
+    }
+
+    @Benchmark
+    public int menuChoiceAfterRetry() {
+        return fixture.menuChoice("seven\n7\n", 1, 9);
+    }
+
+    @Benchmark
+    public String parseDepartmentCode() {
+        return fixture.parseDepartment("dev");
+    }
+
+    @Benchmark
+    public String parseDepartmentName() {
+        return fixture.parseDepartment("Accounting");
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What LoginGuard adds to a successful password or admin-key check.
+ *
+ * Each guarded benchmark minus its unguarded pair is the cost of the lockout lookups and
+ * the reset on success. trackedKeys fills the guard's maps with other failing accounts and
+ * sources, as under a spread-out guessing attack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginGuardBenchmark {
+
+    @Param({"0", "100000"})
+    public int trackedKeys;
+
+    private Fixtures.LoginFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load(Fixtures.LoginFixture.class, "JmhLoginFixture");
+        fixture.setUp(trackedKeys);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return fixture.verifyPassword();
+    }
+
+    @Benchmark
+    public boolean guardedVerifyPassword() {
+        return fixture.guardedVerifyPassword();
+    }
+
+    @Benchmark
+    public boolean adminKey() {
+        return fixture.adminKey();
+    }
+
+    @Benchmark
+    public boolean guardedAdminKey() {
+        return fixture.guardedAdminKey();
+    }
+}
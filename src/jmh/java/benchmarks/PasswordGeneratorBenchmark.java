@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Password generation with several threads at once: the original shared SecureRandom and
+ * String.format against PasswordGenerator, direct and pooled. Use -t to change the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PasswordGeneratorBenchmark {
+
+    private Fixtures.PasswordFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load(Fixtures.PasswordFixture.class, "JmhPasswordFixture");
+        fixture.setUp();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.tearDown();
+    }
+
+    @Benchmark
+    public String legacy() {
+        return fixture.legacy();
+    }
+
+    @Benchmark
+    public String direct() {
+        return fixture.direct();
+    }
+
+    @Benchmark
+    public String pooled() {
+        return fixture.pooled();
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the registry in insertion order, fetching one page at a time.
+ * Only the current page is held, so iteration costs O(page) memory. Accounts
+ * added while iterating are picked up when the cursor reaches them.
+ */
+public class AccountCursor implements Iterator<Email> {
+
+    private final AccountRegistry registry;
+    private final int pageSize;
+    private final int end;
+
+    private List<Email> page = List.of();
+    private int pageStart;
+    private int position;
+
+    /**
+     * Iterates from offset up to (but not including) end.
+     */
+    public AccountCursor(AccountRegistry registry, int offset, int end, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        this.registry = registry;
+        this.pageSize = pageSize;
+        this.end = end;
+        this.pageStart = offset;
+        this.position = offset;
+    }
+
+    public AccountCursor(AccountRegistry registry, int pageSize) {
+        this(registry, 0, Integer.MAX_VALUE, pageSize);
+    }
+
+    /**
+     * Registry position of the account the next call to next() returns.
+     */
+    public int nextIndex() {
+        return position;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position >= end) {
+            return false;
+        }
+        if (position - pageStart < page.size()) {
+            return true;
+        }
+        pageStart = position;
+        page = registry.page(position, Math.min(pageSize, end - position));
+        return !page.isEmpty();
+    }
+
+    @Override
+    public Email next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(position++ - pageStart);
+    }
+}
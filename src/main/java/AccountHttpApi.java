@@ -0,0 +1,498 @@
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JSON admin API on the JDK's built-in HTTP server, bound to loopback.
+ * Every request except /metrics must carry the admin key in an X-Admin-Key header. Repeated
+ * wrong keys from a client get 429 Too Many Requests, with Retry-After, until its lockout ends.
+ *
+ *   GET  /accounts?offset=0&limit=100     account list, streamed (all accounts by default)
+ *   GET  /accounts/{address}               one account
+ *   POST /accounts                         {"firstName", "lastName", "department"} -> address and password
+ *   PUT  /accounts/{address}/capacity      {"capacity": 800}
+ *   PUT  /accounts/{address}/alternate     {"alternateEmail": "..."} (empty clears it)
+ *   POST /accounts/{address}/reset         -> new password
+ *   GET  /departments                      per-department totals
+ *   GET  /metrics                          operation timings as Prometheus text (no key needed)
+ *
+ * GET responses carry an ETag that changes whenever any account changes, so pollers
+ * sending If-None-Match get 304 Not Modified while nothing has changed.
+ */
+public class AccountHttpApi implements AccountListener, Closeable {
+
+    public static final int DEFAULT_PORT = 8025;
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int MAX_BODY = 16 * 1024;
+    private static final String TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Metrics.Timer REQUEST_TIMER = Metrics.timer("http_request");
+
+    private final AccountRegistry registry;
+    private final byte[] adminKey;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Bumped on every account event; with the start time, the ETag for all GET responses
+    private final AtomicLong version = new AtomicLong();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public AccountHttpApi(AccountRegistry registry, String adminKey, int port, int threads) throws IOException {
+        // Headers and body go out in separate writes; without TCP_NODELAY small responses
+        // stall ~40 ms on delayed ACKs. Read once, when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.registry = registry;
+        this.adminKey = adminKey.getBytes(StandardCharsets.UTF_8);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+
+        AtomicInteger ids = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "account-http-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/accounts", this::handleAccounts).getFilters().add(new RequestTimer());
+        server.createContext("/departments", this::handleDepartments).getFilters().add(new RequestTimer());
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public void start() {
+        registry.addListener(this);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, giving in-flight ones up to a second to finish.
+     */
+    @Override
+    public void close() {
+        registry.removeListener(this);
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // AccountListener: any change invalidates cached GET responses
+
+    @Override
+    public void onCreated(Email account) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onPasswordChanged(Email account) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onMailboxCapacityChanged(Email account, int previousCapacity) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onAlternateEmailChanged(Email account, String previousAlternateEmail) {
+        version.incrementAndGet();
+    }
+
+    // Handlers
+
+    private void handleAccounts(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!authorized(exchange)) return;
+
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+            try {
+                if (!path[0].equals("accounts")) {
+                    error(exchange, 404, "No such resource");
+                } else if (path.length == 1 && method.equals("GET")) {
+                    listAccounts(exchange);
+                } else if (path.length == 1 && method.equals("POST")) {
+                    createAccount(exchange);
+                } else if (path.length == 2 && method.equals("GET")) {
+                    getAccount(exchange, path[1]);
+                } else if (path.length == 3 && method.equals("PUT") && path[2].equals("capacity")) {
+                    Email account = account(path[1]);
+                    registry.setMailboxCapacity(account, parseInt(readBody(exchange).get("capacity")));
+                    sendAccount(exchange, 200, account);
+                } else if (path.length == 3 && method.equals("PUT") && path[2].equals("alternate")) {
+                    Email account = account(path[1]);
+                    String alternate = readBody(exchange).get("alternateEmail");
+                    registry.setAlternateEmail(account, (alternate == null) ? "" : alternate);
+                    sendAccount(exchange, 200, account);
+                } else if (path.length == 3 && method.equals("POST") && path[2].equals("reset")) {
+                    Email account = account(path[1]);
+                    String password = registry.resetPassword(account);
+                    account.clearOneTimePassword();
+                    send(exchange, 200, "{\"emailAddress\":" + quote(account.getEmailAddress())
+                            + ",\"password\":" + quote(password) + "}");
+                } else {
+                    error(exchange, 404, "No such resource");
+                }
+            } catch (NotFoundException e) {
+                error(exchange, 404, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                error(exchange, 400, e.getMessage());
+            }
+        }
+    }
+
+    private void handleDepartments(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!authorized(exchange)) return;
+            if (!exchange.getRequestMethod().equals("GET")) {
+                error(exchange, 405, "Method not allowed");
+                return;
+            }
+            String etag = etag();
+            if (notModified(exchange, etag)) return;
+
+            StringBuilder json = new StringBuilder("[");
+            for (DepartmentStats.Counters counters : registry.getDepartmentStats().all()) {
+                if (json.length() > 1) json.append(',');
+                json.append("{\"department\":").append(quote(counters.getDepartment().getCode()))
+                    .append(",\"accounts\":").append(counters.getAccounts())
+                    .append(",\"allocatedCapacity\":").append(counters.getAllocatedCapacity())
+                    .append(",\"withAlternateEmail\":").append(counters.getWithAlternateEmail())
+                    .append('}');
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
+            send(exchange, 200, json.append(']').toString());
+        }
+    }
+
+    // Aggregate timings only, so a local scraper may read them without the admin key
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                error(exchange, 405, "Method not allowed");
+                return;
+            }
+            StringBuilder text = new StringBuilder(4_096);
+            MetricsExporter.writeText(text);
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", TEXT);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private void listAccounts(HttpExchange exchange) throws IOException {
+        String etag = etag();
+        if (notModified(exchange, etag)) return;
+
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int offset = query.containsKey("offset") ? parseInt(query.get("offset")) : 0;
+        int limit = query.containsKey("limit") ? parseInt(query.get("limit")) : Integer.MAX_VALUE;
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+
+        // Chunked response written a cursor page at a time; the list is never built in memory
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        headers.set("ETag", etag);
+        exchange.sendResponseHeaders(200, 0);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16);
+        AccountCursor cursor = new AccountCursor(registry, offset,
+                (int) Math.min(Integer.MAX_VALUE, (long) offset + limit), 1_000);
+        out.write('[');
+        boolean first = true;
+        while (cursor.hasNext()) {
+            if (!first) out.write(',');
+            first = false;
+            writeAccount(out, cursor.next());
+        }
+        out.write(']');
+        out.flush();
+    }
+
+    private void getAccount(HttpExchange exchange, String address) throws IOException {
+        String etag = etag();
+        if (notModified(exchange, etag)) return;
+        Email account = account(address);
+        exchange.getResponseHeaders().set("ETag", etag);
+        sendAccount(exchange, 200, account);
+    }
+
+    private void createAccount(HttpExchange exchange) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        String department = InputValidator.parseDepartment(body.getOrDefault("department", ""));
+        Email account = registry.create(body.get("firstName"), body.get("lastName"), department);
+
+        String password = account.getOneTimePassword();
+        account.clearOneTimePassword();
+        exchange.getResponseHeaders().set("Location", "/accounts/" + account.getEmailAddress());
+        send(exchange, 201, "{\"emailAddress\":" + quote(account.getEmailAddress())
+                + ",\"password\":" + quote(password) + "}");
+    }
+
+    // Helpers
+
+    private boolean authorized(HttpExchange exchange) throws IOException {
+        String key = exchange.getRequestHeaders().getFirst("X-Admin-Key");
+        String source = exchange.getRemoteAddress().getAddress().getHostAddress();
+        try {
+            if (LoginGuard.shared().verifyAdminKey(adminKey, key, source)) {
+                return true;
+            }
+        } catch (TooManyAttemptsException e) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(e.getRetryAfterSeconds()));
+            error(exchange, 429, e.getMessage());
+            return false;
+        }
+        error(exchange, 401, "Missing or invalid X-Admin-Key");
+        return false;
+    }
+
+    private String etag() {
+        return "\"" + epoch + "-" + version.get() + "\"";
+    }
+
+    private static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String match = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (match == null || !match.equals(etag)) {
+            return false;
+        }
+        // The JDK server drops the connection after a bodiless reply unless the request was consumed
+        exchange.getRequestBody().close();
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(304, -1);
+        return true;
+    }
+
+    private Email account(String address) {
+        Email account = registry.findByAddress(address);
+        if (account == null) {
+            throw new NotFoundException("No such account: " + address);
+        }
+        return account;
+    }
+
+    private static void sendAccount(HttpExchange exchange, int status, Email account) throws IOException {
+        StringBuilder json = new StringBuilder(160);
+        try {
+            writeAccount(json, account);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+        send(exchange, status, json.toString());
+    }
+
+    private static void writeAccount(Appendable out, Email account) throws IOException {
+        String alternate = account.getAlternateEmail();
+        out.append("{\"emailAddress\":").append(quote(account.getEmailAddress()))
+           .append(",\"firstName\":").append(quote(account.getFirstName()))
+           .append(",\"lastName\":").append(quote(account.getLastName()))
+           .append(",\"department\":").append(quote(account.getDepartmentCode()))
+           .append(",\"mailboxCapacity\":").append(Integer.toString(account.getMailboxCapacity()))
+           .append(",\"alternateEmail\":").append((alternate == null) ? "null" : quote(alternate))
+           .append('}');
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + quote(message) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing number");
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> values = new HashMap<>();
+        if (rawQuery == null) {
+            return values;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                values.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return parseFlatObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Parses a JSON object whose values are strings, numbers, booleans or null.
+     * Nested objects and arrays are rejected; the admin API has no use for them.
+     */
+    private static Map<String, String> parseFlatObject(String json) {
+        Map<String, String> values = new HashMap<>();
+        int[] pos = {skipSpace(json, 0)};
+        expect(json, pos, '{');
+        if (peek(json, pos) == '}') {
+            pos[0]++;
+            return values;
+        }
+        while (true) {
+            String key = readString(json, pos);
+            expect(json, pos, ':');
+            String value;
+            char c = peek(json, pos);
+            if (c == '"') {
+                value = readString(json, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) pos[0]++;
+                value = json.substring(start, pos[0]);
+                if (value.isEmpty() || value.charAt(0) == '{' || value.charAt(0) == '[') {
+                    throw new IllegalArgumentException("Unsupported JSON value for " + key);
+                }
+                if (value.equals("null")) value = null;
+            }
+            values.put(key, value);
+            pos[0] = skipSpace(json, pos[0]);
+            if (peek(json, pos) == ',') {
+                pos[0]++;
+                continue;
+            }
+            expect(json, pos, '}');
+            return values;
+        }
+    }
+
+    private static String readString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (pos[0] < json.length()) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\' && pos[0] < json.length()) {
+                char e = json.charAt(pos[0]++);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 't' -> sb.append('\t');
+                    case 'r' -> sb.append('\r');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos[0] + 4 > json.length()) throw new IllegalArgumentException("Malformed JSON");
+                        sb.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                    }
+                    default -> sb.append(e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        throw new IllegalArgumentException("Malformed JSON: unterminated string");
+    }
+
+    private static void expect(String json, int[] pos, char c) {
+        pos[0] = skipSpace(json, pos[0]);
+        if (pos[0] >= json.length() || json.charAt(pos[0]) != c) {
+            throw new IllegalArgumentException("Malformed JSON: expected '" + c + "'");
+        }
+        pos[0]++;
+    }
+
+    private static char peek(String json, int[] pos) {
+        pos[0] = skipSpace(json, pos[0]);
+        return (pos[0] < json.length()) ? json.charAt(pos[0]) : 0;
+    }
+
+    private static int skipSpace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
+        return i;
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static class NotFoundException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private static class RequestTimer extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long start = Metrics.start();
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                REQUEST_TIMER.stop(start);
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Records request latency";
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.Arrays;
+
+/**
+ * Append-only list of account ids for secondary indexes.
+ *
+ * An entry is four bytes in an int array, where a queue of accounts spends a node of about
+ * 24 bytes on each. Appends are serialized; reads take no lock and see every id appended
+ * before the size they read, since the array is replaced before the size is published.
+ */
+final class AccountIdList {
+
+    private volatile int[] ids = new int[2];
+    private volatile int size;
+
+    synchronized void add(int id) {
+        int[] current = ids;
+        int n = size;
+        if (n == current.length) {
+            current = Arrays.copyOf(current, n + (n >> 1) + 1);
+            ids = current;
+        }
+        current[n] = id;
+        size = n + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The id at index, which must be below a size already read.
+     */
+    int get(int index) {
+        return ids[index];
+    }
+}
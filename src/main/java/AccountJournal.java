@@ -0,0 +1,642 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Persists accounts as a compact snapshot plus an append-only journal of changes.
+ *
+ * Every journal record is framed as [payload length][CRC32][payload]. Journals are numbered
+ * by generation; compaction starts a new generation, writes an AccountSnapshot of the live
+ * accounts tagged with it, and then deletes older journals. Recovery memory-maps the snapshot,
+ * replays journals from that generation on, and truncates a torn record at the tail.
+ *
+ * Lifecycle timestamps are appended to the end of CREATE, PASSWORD, CAPACITY and ALTERNATE
+ * records, so records written before accounts had them still replay.
+ */
+public class AccountJournal implements AccountListener, Closeable {
+
+    public static final String DATA_DIR_PROPERTY = "email.data.dir";
+    public static final String DEFAULT_DATA_DIR = "data";
+
+    private static final String SNAPSHOT_FILE = "accounts.snapshot";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final int LEGACY_SNAPSHOT_VERSION = 1;
+
+    private static final byte CREATE = 1;
+    private static final byte PASSWORD = 2;
+    private static final byte CAPACITY = 3;
+    private static final byte ALTERNATE = 4;
+    private static final byte STATE = 5;
+
+    private static final AccountState[] STATES = AccountState.values();
+
+    private static final int FRAME_HEADER = 8;
+    private static final long COMPACT_THRESHOLD = 100_000;
+    private static final long COMPACT_CHECK_SECONDS = 30;
+
+    private final Path dir;
+    private final AccountRegistry registry;
+
+    // Guards journal, generation, the record buffer and batch contents
+    private final Object appendLock = new Object();
+    private final Object compactLock = new Object();
+    private FileChannel journal;
+    private long generation;
+    private ByteBuffer record = ByteBuffer.allocate(4_096);
+    private long recordsSinceSnapshot;
+
+    // Records made by a thread inside Batch.call() go to that batch instead of the journal
+    private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+    // Batches holding unwritten records; guarded by appendLock
+    private final List<Batch> holding = new ArrayList<>();
+    // Batches begun and not yet committed; compaction waits for them. Guarded by compactLock
+    private int openBatches;
+
+    private final ScheduledExecutorService compactor;
+
+    private int recoveredAccounts;
+    private long recoveredRecords;
+    private long recoveryNanos;
+
+    private AccountJournal(Path dir, AccountRegistry registry) {
+        this.dir = dir;
+        this.registry = registry;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Recovers accounts from dir into the (empty) registry, then journals all further changes.
+     */
+    public static AccountJournal open(Path dir, AccountRegistry registry) throws IOException {
+        Files.createDirectories(dir);
+        AccountJournal journal = new AccountJournal(dir, registry);
+        journal.recover();
+        registry.addListener(journal);
+        journal.compactor.scheduleWithFixedDelay(journal::compactIfNeeded,
+                COMPACT_CHECK_SECONDS, COMPACT_CHECK_SECONDS, TimeUnit.SECONDS);
+        return journal;
+    }
+
+    /**
+     * Uses -Demail.data.dir when set, otherwise ./data.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty(DATA_DIR_PROPERTY, DEFAULT_DATA_DIR));
+    }
+
+    public int getRecoveredAccounts() {
+        return recoveredAccounts;
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryNanos / 1_000_000;
+    }
+
+    // AccountListener: one record per change
+
+    @Override
+    public void onCreated(Email account) {
+        append(CREATE, account, buf -> putAccount(buf, account));
+    }
+
+    @Override
+    public void onPasswordChanged(Email account) {
+        append(PASSWORD, account, buf -> {
+            putString(buf, account.getEmailAddress());
+            putString(buf, account.getPasswordHash());
+            buf.putLong(account.getPasswordChangedMillis());
+        });
+    }
+
+    @Override
+    public void onMailboxCapacityChanged(Email account, int previousCapacity) {
+        append(CAPACITY, account, buf -> {
+            putString(buf, account.getEmailAddress());
+            buf.putInt(account.getMailboxCapacity());
+            buf.putLong(account.getLastChangedMillis());
+        });
+    }
+
+    @Override
+    public void onAlternateEmailChanged(Email account, String previousAlternateEmail) {
+        append(ALTERNATE, account, buf -> {
+            putString(buf, account.getEmailAddress());
+            putString(buf, account.getAlternateEmail());
+            buf.putLong(account.getLastChangedMillis());
+        });
+    }
+
+    @Override
+    public void onStateChanged(Email account, AccountState previousState) {
+        append(STATE, account, buf -> {
+            putString(buf, account.getEmailAddress());
+            buf.put((byte) account.getState().ordinal());
+            buf.putLong(account.getLastChangedMillis());
+        });
+    }
+
+    private void append(byte type, Email account, Consumer<ByteBuffer> body) {
+        synchronized (appendLock) {
+            while (true) {
+                try {
+                    record.clear();
+                    record.position(FRAME_HEADER);
+                    record.put(type);
+                    body.accept(record);
+                    break;
+                } catch (BufferOverflowException e) {
+                    record = ByteBuffer.allocate(record.capacity() * 2);
+                }
+            }
+            frame(record);
+            recordsSinceSnapshot++;
+            String address = account.getEmailAddress();
+            Batch target = currentBatch.get();
+            for (Batch batch : holding) {
+                if (batch.addresses.contains(address)) {
+                    // Queued behind the account's held records, so replay sees the changes in order
+                    target = batch;
+                    break;
+                }
+            }
+            try {
+                if (target == null || target.committed) {
+                    writeFully(journal, record);
+                } else {
+                    target.hold(address, record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to account journal", e);
+            }
+        }
+    }
+
+    /**
+     * Starts a batch for one caller's changes. Compaction waits until it is committed.
+     */
+    public Batch beginBatch() {
+        synchronized (compactLock) {
+            openBatches++;
+        }
+        return new Batch();
+    }
+
+    /**
+     * Records from the changes run through call(), held in memory until flush() or commit()
+     * writes them with one sync; the caller decides how large a chunk gets. Records from other
+     * threads are written as usual, unless they change an account this batch holds records
+     * for: those are held behind them, so the journal keeps each account's changes in order.
+     */
+    public final class Batch {
+        private ByteBuffer pending = ByteBuffer.allocate(64 * 1_024);
+        // Accounts with held records
+        private final Set<String> addresses = new HashSet<>();
+        private boolean committed;
+
+        private Batch() {
+        }
+
+        /**
+         * Runs work on this thread with its journal records going to this batch.
+         */
+        public <T> T call(Supplier<T> work) {
+            Batch outer = currentBatch.get();
+            currentBatch.set(this);
+            try {
+                return work.get();
+            } finally {
+                if (outer == null) {
+                    currentBatch.remove();
+                } else {
+                    currentBatch.set(outer);
+                }
+            }
+        }
+
+        /**
+         * Writes and syncs the records held so far.
+         */
+        public void flush() throws IOException {
+            synchronized (appendLock) {
+                writeHeld();
+                journal.force(false);
+            }
+        }
+
+        /**
+         * Writes and syncs the remaining records and ends the batch; later records are written directly.
+         */
+        public void commit() throws IOException {
+            try {
+                synchronized (appendLock) {
+                    if (committed) {
+                        return;
+                    }
+                    committed = true;
+                    writeHeld();
+                    journal.force(false);
+                }
+            } finally {
+                synchronized (compactLock) {
+                    openBatches--;
+                    compactLock.notifyAll();
+                }
+            }
+        }
+
+        // Caller holds appendLock
+        private void hold(String address, ByteBuffer framed) {
+            if (pending.remaining() < framed.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                        pending.position() + framed.remaining()));
+                pending.flip();
+                pending = larger.put(pending);
+            }
+            pending.put(framed);
+            if (addresses.isEmpty()) {
+                holding.add(this);
+            }
+            addresses.add(address);
+        }
+
+        // Caller holds appendLock
+        private void writeHeld() throws IOException {
+            if (pending.position() > 0) {
+                pending.flip();
+                writeFully(journal, pending);
+                pending.clear();
+            }
+            if (!addresses.isEmpty()) {
+                addresses.clear();
+                holding.remove(this);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of all accounts and drops journals it covers.
+     * Waits for open batches first, so the snapshot never holds changes they have not synced.
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            while (openBatches > 0) {
+                try {
+                    compactLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for a journal batch");
+                }
+            }
+            long snapshotGeneration;
+            synchronized (appendLock) {
+                // Later changes go to the new journal; replaying them over the snapshot is harmless
+                journal.force(false);
+                journal.close();
+                generation++;
+                journal = openJournal(generation);
+                snapshotGeneration = generation;
+                recordsSinceSnapshot = 0;
+            }
+
+            writeSnapshot(registry.snapshot(), snapshotGeneration);
+            for (Path old : journalFiles()) {
+                if (generationOf(old) < snapshotGeneration) {
+                    Files.deleteIfExists(old);
+                }
+            }
+        }
+    }
+
+    private void compactIfNeeded() {
+        long pending;
+        synchronized (appendLock) {
+            pending = recordsSinceSnapshot;
+        }
+        if (pending < COMPACT_THRESHOLD) {
+            return;
+        }
+        synchronized (compactLock) {
+            if (openBatches > 0) {
+                return; // deferred to a later check
+            }
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Journal compaction failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops journaling; compacts first if there are changes since the last snapshot,
+     * which waits for open batches to be committed.
+     */
+    @Override
+    public void close() throws IOException {
+        registry.removeListener(this);
+        compactor.shutdownNow();
+        long pending;
+        synchronized (appendLock) {
+            pending = recordsSinceSnapshot;
+        }
+        if (pending > 0) {
+            compact();
+        }
+        synchronized (appendLock) {
+            journal.force(false);
+            journal.close();
+        }
+    }
+
+    // Snapshot
+
+    private void writeSnapshot(List<Email> accounts, long snapshotGeneration) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        AccountSnapshot.write(tmp, accounts, snapshotGeneration);
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Recovery
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        long firstGeneration = 0;
+
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            firstGeneration = loadSnapshot(snapshot);
+        }
+
+        long lastGeneration = firstGeneration;
+        for (Path file : journalFiles()) {
+            long fileGeneration = generationOf(file);
+            if (fileGeneration < firstGeneration) {
+                continue;
+            }
+            lastGeneration = Math.max(lastGeneration, fileGeneration);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                recoveredRecords += replay(map);
+                if (map.position() < channel.size()) {
+                    // Torn write from a crash: drop the incomplete tail
+                    channel.truncate(map.position());
+                }
+            }
+        }
+
+        generation = lastGeneration;
+        journal = openJournal(generation);
+        recoveredAccounts = registry.size();
+        recoveryNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Adds every snapshot account to the registry and returns the snapshot's journal generation.
+     */
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (AccountSnapshot.versionOf(map) == LEGACY_SNAPSHOT_VERSION) {
+                // Version 1: a count followed by framed CREATE records
+                map.position(8);
+                long snapshotGeneration = map.getLong();
+                int count = map.getInt();
+                int read = replay(map);
+                if (read != count) {
+                    throw new IOException("Snapshot is truncated: expected " + count + " accounts, found " + read);
+                }
+                return snapshotGeneration;
+            }
+        }
+
+        AccountSnapshot.Reader reader = AccountSnapshot.Reader.open(snapshot);
+        for (int i = 0; i < reader.size(); i++) {
+            registry.add(reader.get(i));
+        }
+        return reader.getGeneration();
+    }
+
+    /**
+     * Applies framed records until the end of the buffer or the first damaged record.
+     * Leaves the buffer positioned after the last good record.
+     */
+    private int replay(ByteBuffer buf) {
+        CRC32 crc = new CRC32();
+        byte[] scratch = new byte[256];
+        int applied = 0;
+
+        while (buf.remaining() >= FRAME_HEADER) {
+            int start = buf.position();
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            if (length <= 0 || length > buf.remaining()) {
+                buf.position(start);
+                break;
+            }
+
+            ByteBuffer payload = buf.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                buf.position(start);
+                break;
+            }
+
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            apply(payload, scratch);
+            buf.position(start + FRAME_HEADER + length);
+            applied++;
+        }
+        return applied;
+    }
+
+    private void apply(ByteBuffer payload, byte[] scratch) {
+        byte type = payload.get();
+        String address = getString(payload, scratch);
+
+        if (type == CREATE) {
+            String firstName = getString(payload, scratch);
+            String lastName = getString(payload, scratch);
+            String department = getString(payload, scratch);
+            String passwordHash = getString(payload, scratch);
+            int capacity = payload.getInt();
+            String alternate = getString(payload, scratch);
+
+            Email existing = registry.findByAddress(address);
+            if (!payload.hasRemaining()) {
+                // Written before lifecycle states
+                if (existing != null) {
+                    existing.restoreState(passwordHash, capacity, alternate);
+                } else {
+                    registry.add(Email.restore(firstName, lastName, department, address,
+                            passwordHash, capacity, alternate));
+                }
+                return;
+            }
+            AccountState state = STATES[payload.get()];
+            long created = payload.getLong();
+            long passwordChanged = payload.getLong();
+            long lastChanged = payload.getLong();
+            if (existing != null) {
+                existing.restoreState(passwordHash, capacity, alternate);
+                existing.restoreLifecycle(state, passwordChanged, lastChanged);
+            } else {
+                registry.add(Email.restore(firstName, lastName, department, address, passwordHash, capacity,
+                        alternate, state, created, passwordChanged, lastChanged));
+            }
+            return;
+        }
+
+        Email account = registry.findByAddress(address);
+        if (account == null) {
+            return;
+        }
+        switch (type) {
+            case PASSWORD -> {
+                account.restoreState(getString(payload, scratch),
+                        account.getMailboxCapacity(), account.getAlternateEmail());
+                if (payload.hasRemaining()) {
+                    long changed = payload.getLong();
+                    account.restoreLifecycle(account.getState(), changed, changed);
+                }
+            }
+            case CAPACITY -> {
+                account.restoreState(account.getPasswordHash(),
+                        payload.getInt(), account.getAlternateEmail());
+                restoreLastChanged(account, payload);
+            }
+            case ALTERNATE -> {
+                account.restoreState(account.getPasswordHash(),
+                        account.getMailboxCapacity(), getString(payload, scratch));
+                restoreLastChanged(account, payload);
+            }
+            case STATE -> account.restoreLifecycle(STATES[payload.get()],
+                    account.getPasswordChangedMillis(), payload.getLong());
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static void restoreLastChanged(Email account, ByteBuffer payload) {
+        if (payload.hasRemaining()) {
+            account.restoreLifecycle(account.getState(), account.getPasswordChangedMillis(), payload.getLong());
+        }
+    }
+
+    // Encoding helpers
+
+    private static void putAccount(ByteBuffer buf, Email account) {
+        putString(buf, account.getEmailAddress());
+        putString(buf, account.getFirstName());
+        putString(buf, account.getLastName());
+        putString(buf, account.getDepartmentCode());
+        putString(buf, account.getPasswordHash());
+        buf.putInt(account.getMailboxCapacity());
+        putString(buf, account.getAlternateEmail());
+        buf.put((byte) account.getState().ordinal());
+        buf.putLong(account.getCreatedMillis());
+        buf.putLong(account.getPasswordChangedMillis());
+        buf.putLong(account.getLastChangedMillis());
+    }
+
+    // Fills in length and CRC, and flips the buffer for writing
+    private static void frame(ByteBuffer buf) {
+        int end = buf.position();
+        int length = end - FRAME_HEADER;
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buf.duplicate();
+        payload.position(FRAME_HEADER).limit(end);
+        crc.update(payload);
+        buf.putInt(0, length);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+    }
+
+    private static void putString(ByteBuffer buf, String value) {
+        if (value == null) {
+            buf.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf, byte[] scratch) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        buf.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    // Journal files
+
+    private FileChannel openJournal(long gen) throws IOException {
+        return FileChannel.open(dir.resolve(JOURNAL_PREFIX + gen + JOURNAL_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file : stream) {
+                if (generationOf(file) >= 0) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort((a, b) -> Long.compare(generationOf(a), generationOf(b)));
+        return files;
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Receives account changes after they are applied.
+ * Called synchronously on the mutating thread, so implementations should be quick.
+ */
+public interface AccountListener {
+
+    default void onCreated(Email account) {
+    }
+
+    default void onPasswordChanged(Email account) {
+    }
+
+    /**
+     * A password replaced by a generated one; treated as any other password change unless overridden.
+     */
+    default void onPasswordReset(Email account) {
+        onPasswordChanged(account);
+    }
+
+    default void onMailboxCapacityChanged(Email account, int previousCapacity) {
+    }
+
+    default void onAlternateEmailChanged(Email account, String previousAlternateEmail) {
+    }
+
+    default void onStateChanged(Email account, AccountState previousState) {
+    }
+}
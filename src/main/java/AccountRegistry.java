@@ -0,0 +1,374 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Indexed, thread-safe collection of email accounts.
+ * Keeps insertion order for menu selection and hash indexes for direct lookup.
+ * Account mutations are serialized per account through a striped lock.
+ */
+public class AccountRegistry {
+
+    private final ConcurrentHashMap<String, Email> byAddress = new ConcurrentHashMap<>();
+    // Secondary indexes hold account ids, resolved through the insertion-ordered list
+    private final ConcurrentHashMap<Department, AccountIdList> byDepartment = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AccountIdList> byLastName = new ConcurrentHashMap<>();
+
+    // Insertion-ordered view; appends take the write lock, reads and snapshots the read lock
+    private final ArrayList<Email> accounts = new ArrayList<>();
+    private final ReentrantReadWriteLock orderLock = new ReentrantReadWriteLock();
+
+    private final StripedLock accountLocks = new StripedLock();
+
+    private final CopyOnWriteArrayList<AccountListener> listeners = new CopyOnWriteArrayList<>();
+    private final AccountListener dispatcher = new Dispatcher();
+
+    private final DepartmentStats departmentStats = new DepartmentStats();
+    private final AccountSearchIndex searchIndex = new AccountSearchIndex(this::resolve);
+    private final QuotaEngine quotas = new QuotaEngine(this);
+    private final AddressAllocator addresses;
+
+    private final String domain;
+    private final List<Department> departments;
+    private final Map<Department, String> labels;
+
+    public AccountRegistry() {
+        this(AddressAllocator.DOMAIN, Department.labelled(Department.standardDepartments()));
+    }
+
+    /**
+     * A registry whose new accounts get addresses in domain and must be in one of departments,
+     * which maps each department to its menu label here, in menu order.
+     */
+    public AccountRegistry(String domain, Map<Department, String> departments) {
+        this.domain = domain;
+        this.departments = List.copyOf(departments.keySet());
+        this.labels = Collections.unmodifiableMap(new LinkedHashMap<>(departments));
+        this.addresses = new AddressAllocator(this::containsAddress, domain);
+        listeners.add(departmentStats);
+        listeners.add(searchIndex);
+        listeners.add(quotas);
+    }
+
+    /**
+     * Registers a listener for account creation and every later change.
+     */
+    public void addListener(AccountListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(AccountListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Creates and adds a new account, giving it a unique address.
+     */
+    public Email create(String firstName, String lastName, String department) {
+        Email account = new Email(firstName, lastName, department(department).getCode(), addresses);
+        try {
+            add(account);
+        } catch (RuntimeException e) {
+            addresses.release(account.getEmailAddress());
+            throw e;
+        }
+        return account;
+    }
+
+    /**
+     * Adds an account, rejecting address collisions.
+     * Runs under the account's lock, so no change made through this registry can reach a
+     * listener before onCreated does.
+     */
+    public void add(Email account) {
+        accountLocks.run(account, () -> publish(account));
+    }
+
+    private void publish(Email account) {
+        String addressKey = key(account.getEmailAddress());
+        if (byAddress.putIfAbsent(addressKey, account) != null) {
+            throw new IllegalArgumentException(
+                "Email address already exists: " + account.getEmailAddress()
+            );
+        }
+        addresses.registered(addressKey);
+        account.setListener(dispatcher);
+
+        orderLock.writeLock().lock();
+        try {
+            account.assignId(accounts.size());
+            accounts.add(account);
+        } finally {
+            orderLock.writeLock().unlock();
+        }
+
+        int id = account.getAccountId();
+        byDepartment.computeIfAbsent(account.getDepartmentInfo(), k -> new AccountIdList()).add(id);
+        byLastName.computeIfAbsent(key(account.getLastName()), k -> new AccountIdList()).add(id);
+
+        dispatcher.onCreated(account);
+    }
+
+    /**
+     * Returns the account at the given position (insertion order).
+     */
+    public Email get(int index) {
+        orderLock.readLock().lock();
+        try {
+            return accounts.get(index);
+        } finally {
+            orderLock.readLock().unlock();
+        }
+    }
+
+    public Email findByAddress(String address) {
+        return (address == null) ? null : byAddress.get(key(address));
+    }
+
+    public boolean containsAddress(String address) {
+        return address != null && byAddress.containsKey(key(address));
+    }
+
+    public List<Email> findByDepartment(String department) {
+        return findByDepartment(Department.of(department));
+    }
+
+    public List<Email> findByDepartment(Department department) {
+        return resolve(byDepartment.get(department));
+    }
+
+    /**
+     * Finds up to limit accounts by name, name prefix, a name with one typo or address prefix.
+     * A query containing "@" is looked up as a full email address, then as an address prefix.
+     */
+    public List<Email> search(String query, int limit) {
+        if (query != null && query.indexOf('@') >= 0) {
+            Email account = findByAddress(query);
+            return (account == null) ? searchIndex.searchAddresses(query, limit) : List.of(account);
+        }
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Live per-department totals, maintained incrementally from account events.
+     */
+    public DepartmentStats getDepartmentStats() {
+        return departmentStats;
+    }
+
+    /**
+     * The department for a code, if new accounts here may be created in it.
+     */
+    public Department department(String code) {
+        Department department = Department.of(code);
+        if (!departments.contains(department)) {
+            throw new IllegalArgumentException("Department not available in " + domain + ": " + code);
+        }
+        return department;
+    }
+
+    /**
+     * Departments offered for new accounts, in menu order.
+     */
+    public List<Department> getDepartments() {
+        return departments;
+    }
+
+    /**
+     * The menu label of a department in this registry, or its standard label if it is not offered here.
+     */
+    public String label(Department department) {
+        return labels.getOrDefault(department, department.getLabel());
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public AddressAllocator getAddressAllocator() {
+        return addresses;
+    }
+
+    /**
+     * Mailbox usage against capacity, indexed by account id.
+     */
+    public QuotaEngine getQuotas() {
+        return quotas;
+    }
+
+    public List<Email> findByLastName(String lastName) {
+        return lookup(byLastName, lastName);
+    }
+
+    /**
+     * Returns a point-in-time copy of all accounts in insertion order.
+     * Accounts added afterwards are not visible through the returned list.
+     */
+    public List<Email> snapshot() {
+        orderLock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(Arrays.asList(accounts.toArray(new Email[0])));
+        } finally {
+            orderLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit accounts starting at offset (insertion order), copying only that range.
+     */
+    public List<Email> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        orderLock.readLock().lock();
+        try {
+            int from = Math.min(offset, accounts.size());
+            int to = (int) Math.min(accounts.size(), (long) from + limit);
+            return List.copyOf(accounts.subList(from, to));
+        } finally {
+            orderLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        orderLock.readLock().lock();
+        try {
+            return accounts.size();
+        } finally {
+            orderLock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Atomic per-account updates
+
+    public void changePassword(Email account, String newPassword) {
+        accountLocks.run(account, () -> account.changePassword(newPassword));
+    }
+
+    /**
+     * Changes the password only if the current one matches; returns false otherwise.
+     */
+    public boolean changePassword(Email account, String currentPassword, String newPassword) {
+        return accountLocks.call(account, () -> {
+            if (!account.verifyPassword(currentPassword)) {
+                return false;
+            }
+            account.changePassword(newPassword);
+            return true;
+        });
+    }
+
+    /**
+     * Resets to a generated password and returns it.
+     */
+    public String resetPassword(Email account) {
+        return accountLocks.call(account, account::resetPassword);
+    }
+
+    /**
+     * Resets to a generated password and returns it, or returns null if the account is deleted;
+     * the check and the reset happen under one hold of the account's lock.
+     */
+    public String resetPasswordUnlessDeleted(Email account) {
+        return accountLocks.call(account,
+                () -> (account.getState() == AccountState.DELETED) ? null : account.resetPassword());
+    }
+
+    public void setMailboxCapacity(Email account, int capacity) {
+        accountLocks.run(account, () -> account.setMailboxCapacity(capacity));
+    }
+
+    public void setAlternateEmail(Email account, String alternateEmail) {
+        accountLocks.run(account, () -> account.setAlternateEmail(alternateEmail));
+    }
+
+    public void setState(Email account, AccountState state) {
+        accountLocks.run(account, () -> account.setState(state));
+    }
+
+    /**
+     * Moves the account to the state next picks while holding its lock, so the decision sees
+     * no concurrent change; a null pick leaves it as it is. Returns the state set, or null.
+     */
+    public AccountState transition(Email account, Function<Email, AccountState> next) {
+        return accountLocks.call(account, () -> {
+            AccountState state = next.apply(account);
+            if (state != null) {
+                account.setState(state);
+            }
+            return state;
+        });
+    }
+
+    // Fans account events out to the registered listeners
+    private class Dispatcher implements AccountListener {
+        @Override
+        public void onCreated(Email account) {
+            for (AccountListener l : listeners) l.onCreated(account);
+        }
+
+        @Override
+        public void onPasswordChanged(Email account) {
+            for (AccountListener l : listeners) l.onPasswordChanged(account);
+        }
+
+        @Override
+        public void onPasswordReset(Email account) {
+            for (AccountListener l : listeners) l.onPasswordReset(account);
+        }
+
+        @Override
+        public void onMailboxCapacityChanged(Email account, int previousCapacity) {
+            for (AccountListener l : listeners) l.onMailboxCapacityChanged(account, previousCapacity);
+        }
+
+        @Override
+        public void onAlternateEmailChanged(Email account, String previousAlternateEmail) {
+            for (AccountListener l : listeners) l.onAlternateEmailChanged(account, previousAlternateEmail);
+        }
+
+        @Override
+        public void onStateChanged(Email account, AccountState previousState) {
+            for (AccountListener l : listeners) l.onStateChanged(account, previousState);
+        }
+    }
+
+    private List<Email> lookup(ConcurrentHashMap<String, AccountIdList> index, String value) {
+        if (value == null) return Collections.emptyList();
+        return resolve(index.get(key(value)));
+    }
+
+    private List<Email> resolve(AccountIdList ids) {
+        return (ids == null) ? Collections.emptyList() : resolve(ids, 0, ids.size());
+    }
+
+    // Maps ids [from, to) to accounts under one hold of the read lock
+    private List<Email> resolve(AccountIdList ids, int from, int to) {
+        Email[] result = new Email[to - from];
+        orderLock.readLock().lock();
+        try {
+            for (int i = from; i < to; i++) {
+                result[i - from] = accounts.get(ids.get(i));
+            }
+        } finally {
+            orderLock.readLock().unlock();
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    private static String key(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,269 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Case-insensitive lookup of accounts by first and last name, and by address prefix.
+ *
+ * Each distinct name is a term mapping to the ids of its accounts. Terms are also kept in
+ * a sorted set, so a prefix query is a range scan that stops once enough accounts are
+ * found, and indexed by their single-character deletions, which finds names within one
+ * typo (insert, delete, substitute or swap) without scanning the vocabulary. Addresses
+ * are kept in a sorted map of their own, pointing at the accounts, so a prefix such as
+ * "mary-smith2" also finds the suffixed addresses the allocator hands out.
+ * Accounts are indexed as they are created.
+ */
+public class AccountSearchIndex implements AccountListener {
+
+    // Typo matching is skipped for very short queries (too many hits) and very long terms
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int MAX_FUZZY_LENGTH = 24;
+
+    // Ids resolved per hold of the registry's lock
+    private static final int BATCH = 64;
+
+    /**
+     * Looks up the accounts for ids [from, to) of a list.
+     */
+    interface Resolver {
+        List<Email> resolve(AccountIdList ids, int from, int to);
+    }
+
+    private final Resolver accounts;
+    private final ConcurrentHashMap<String, AccountIdList> terms = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> sortedTerms = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, Set<String>> deletions = new ConcurrentHashMap<>();
+    // Lower-case address to account; usually keyed by the account's own address String
+    private final ConcurrentSkipListMap<String, Email> addresses = new ConcurrentSkipListMap<>();
+
+    /**
+     * An index resolving account ids through accounts, normally its AccountRegistry.
+     */
+    AccountSearchIndex(Resolver accounts) {
+        this.accounts = accounts;
+    }
+
+    @Override
+    public void onCreated(Email account) {
+        String first = normalize(account.getFirstName());
+        String last = normalize(account.getLastName());
+        addTerm(first, account);
+        if (!last.equals(first)) {
+            addTerm(last, account);
+        }
+        addresses.put(normalize(account.getEmailAddress()), account);
+    }
+
+    /**
+     * Returns up to limit accounts for a query.
+     * A single word matches first or last names: exact names first, then prefixes, then
+     * names within one typo. With several words ("rose tay", "taylor rose") every word but
+     * the last must be a whole name and the last may be a prefix. Hyphens separate words,
+     * so the start of an address ("rose-tay") works too. Addresses starting with the query
+     * ("mary-smith2") fill any remaining places.
+     */
+    public List<Email> search(String query, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        String prefix = (query == null) ? "" : normalize(query);
+        String normalized = prefix.replace('-', ' ').trim();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        LinkedHashSet<Email> results = new LinkedHashSet<>();
+        String[] words = normalized.split("\\s+");
+        if (words.length > 1) {
+            searchWords(words, results, limit);
+        } else {
+            searchWord(words[0], results, limit);
+        }
+        collectAddresses(prefix, results, limit);
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Returns up to limit accounts whose address starts with prefix, ignoring case, in address order.
+     */
+    public List<Email> searchAddresses(String prefix, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        LinkedHashSet<Email> results = new LinkedHashSet<>();
+        collectAddresses((prefix == null) ? "" : normalize(prefix), results, limit);
+        return new ArrayList<>(results);
+    }
+
+    // Exact names first, then prefixes, then names within one typo
+    private void searchWord(String word, Set<Email> results, int limit) {
+        collect(terms.get(word), results, limit);
+        for (String term : sortedTerms.subSet(word, false, word + Character.MAX_VALUE, false)) {
+            if (results.size() >= limit) break;
+            collect(terms.get(term), results, limit);
+        }
+        if (results.size() < limit && word.length() >= MIN_FUZZY_LENGTH && word.length() <= MAX_FUZZY_LENGTH) {
+            for (String term : typoCandidates(word)) {
+                if (results.size() >= limit) break;
+                collect(terms.get(term), results, limit);
+            }
+        }
+    }
+
+    private void collectAddresses(String prefix, Set<Email> results, int limit) {
+        if (prefix.isEmpty() || results.size() >= limit) {
+            return;
+        }
+        for (Map.Entry<String, Email> entry : addresses.tailMap(prefix).entrySet()) {
+            if (results.size() >= limit || !entry.getKey().startsWith(prefix)) break;
+            results.add(entry.getValue());
+        }
+    }
+
+    /**
+     * Number of distinct indexed names.
+     */
+    public int termCount() {
+        return terms.size();
+    }
+
+    private void addTerm(String term, Email account) {
+        if (term.isEmpty()) {
+            return;
+        }
+        AccountIdList posting = terms.get(term);
+        if (posting == null) {
+            AccountIdList created = new AccountIdList();
+            posting = terms.putIfAbsent(term, created);
+            if (posting == null) {
+                posting = created;
+                sortedTerms.add(term);
+                if (term.length() <= MAX_FUZZY_LENGTH) {
+                    for (String key : deletionsOf(term)) {
+                        deletions.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(term);
+                    }
+                }
+            }
+        }
+        posting.add(account.getAccountId());
+    }
+
+    // Walks the smallest whole-name posting and keeps accounts matching every word
+    private void searchWords(String[] words, Set<Email> results, int limit) {
+        int last = words.length - 1;
+        AccountIdList smallest = null;
+        for (int i = 0; i < last; i++) {
+            AccountIdList posting = terms.get(words[i]);
+            if (posting == null) {
+                return;
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+
+        int size = smallest.size();
+        for (int from = 0; from < size && results.size() < limit; from += BATCH) {
+            for (Email account : accounts.resolve(smallest, from, Math.min(size, from + BATCH))) {
+                if (results.size() >= limit) break;
+                if (matchesAll(account, words)) {
+                    results.add(account);
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAll(Email account, String[] words) {
+        String first = account.getFirstName();
+        String last = account.getLastName();
+        int end = words.length - 1;
+        for (int i = 0; i < end; i++) {
+            if (!first.equalsIgnoreCase(words[i]) && !last.equalsIgnoreCase(words[i])) {
+                return false;
+            }
+        }
+        return startsWithIgnoreCase(first, words[end]) || startsWithIgnoreCase(last, words[end]);
+    }
+
+    // Names within edit distance 1 of word (adjacent swaps count as one edit), word itself excluded
+    private List<String> typoCandidates(String word) {
+        Set<String> seen = new LinkedHashSet<>();
+        Set<String> keys = deletionsOf(word);
+        keys.add(word);
+        for (String key : keys) {
+            Set<String> matches = deletions.get(key);
+            if (matches != null) seen.addAll(matches);
+            // the query may have one extra character, leaving a stored name after a deletion
+            if (terms.containsKey(key)) seen.add(key);
+        }
+        seen.remove(word);
+
+        List<String> result = new ArrayList<>();
+        for (String term : seen) {
+            if (withinOneEdit(word, term)) result.add(term);
+        }
+        result.sort(null);
+        return result;
+    }
+
+    private static Set<String> deletionsOf(String term) {
+        Set<String> result = new LinkedHashSet<>();
+        StringBuilder sb = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            sb.setLength(0);
+            sb.append(term, 0, i).append(term, i + 1, term.length());
+            result.add(sb.toString());
+        }
+        return result;
+    }
+
+    private static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) return true;
+            // substitution, or swap of two adjacent characters
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) return true;
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);
+        }
+        // one insertion or deletion
+        return (la > lb)
+                ? a.regionMatches(i + 1, b, i, lb - i)
+                : b.regionMatches(i + 1, a, i, la - i);
+    }
+
+    private void collect(AccountIdList posting, Set<Email> results, int limit) {
+        if (posting == null) {
+            return;
+        }
+        int size = posting.size();
+        for (int from = 0; from < size && results.size() < limit; from += BATCH) {
+            for (Email account : accounts.resolve(posting, from, Math.min(size, from + BATCH))) {
+                if (results.size() >= limit) break;
+                results.add(account);
+            }
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless access to the registry over a loopback TCP socket, for provisioning tools.
+ *
+ * Each request is one line of tab-separated fields and gets one response line:
+ * "OK" with result fields, or "ERR" and a message. LIST adds one line per account.
+ * Clients may pipeline requests; responses are buffered and flushed once no further
+ * request is waiting on the connection.
+ *
+ *   PING
+ *   CREATE    adminKey  first  last  [department]  -> OK  address  password
+ *   PASSWD    address  current  new
+ *   ALT       address  current  alternate    (empty alternate clears it)
+ *   CAPACITY  address  current  megabytes
+ *   RESET     address  adminKey              -> OK  password
+ *   LIST      adminKey  offset  limit        -> OK  count, then address first last department capacity alternate
+ *   QUIT
+ *
+ * Password and admin-key checks go through LoginGuard, keyed by the account and the client
+ * address; while either is locked out the reply is "ERR" with the wait in seconds. Any other
+ * failure of a command is also answered with "ERR", leaving the connection open.
+ */
+public class AccountServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7025;
+    private static final int MAX_LIST = 1_000;
+
+    private static final Metrics.Timer COMMAND_TIMER = Metrics.timer("server_command");
+
+    private final AccountRegistry registry;
+    private final byte[] adminKey;
+    private final LoginGuard guard = LoginGuard.shared();
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+    public AccountServer(AccountRegistry registry, String adminKey, int port) throws IOException {
+        this.registry = registry;
+        this.adminKey = adminKey.getBytes(StandardCharsets.UTF_8);
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+
+        AtomicInteger ids = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "account-connection-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections on the calling thread until close() is called.
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            openSockets.add(socket);
+            connections.execute(() -> handle(socket));
+        }
+    }
+
+    /**
+     * Stops accepting and drops open connections; a request already executing completes.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        for (Socket socket : openSockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+        connections.shutdown();
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+             BufferedWriter out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            String source = socket.getInetAddress().getHostAddress();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                execute(line, out, source);
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Client disconnected or the server is closing
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private void execute(String line, Writer out, String source) throws IOException {
+        long start = Metrics.start();
+        String[] fields = line.split("\t", -1);
+        try {
+            switch (fields[0].toUpperCase(Locale.ROOT)) {
+                case "PING" -> ok(out);
+                case "CREATE" -> create(fields, out, source);
+                case "PASSWD" -> changePassword(fields, out, source);
+                case "ALT" -> setAlternateEmail(fields, out, source);
+                case "CAPACITY" -> setMailboxCapacity(fields, out, source);
+                case "RESET" -> resetPassword(fields, out, source);
+                case "LIST" -> list(fields, out, source);
+                default -> throw new IllegalArgumentException("Unknown command: " + fields[0]);
+            }
+        } catch (RuntimeException e) {
+            out.write("ERR\t");
+            out.write(String.valueOf(e.getMessage()));
+            out.write('\n');
+        } finally {
+            COMMAND_TIMER.stop(start);
+        }
+    }
+
+    private void create(String[] fields, Writer out, String source) throws IOException {
+        requireFields(fields, 4, "CREATE adminKey first last [department]");
+        requireAdmin(fields[1], source);
+        String department = InputValidator.parseDepartment(fields.length > 4 ? fields[4] : "");
+        Email account = registry.create(fields[2], fields[3], department);
+
+        String password = account.getOneTimePassword();
+        account.clearOneTimePassword();
+        ok(out, account.getEmailAddress(), password);
+    }
+
+    private void changePassword(String[] fields, Writer out, String source) throws IOException {
+        requireFields(fields, 4, "PASSWD address current new");
+        Email account = active(fields[1]);
+        guard.checkAllowed(account, source);
+        if (!registry.changePassword(account, fields[2], fields[3])) {
+            guard.failed(account, source);
+            throw new IllegalArgumentException("Authentication failed");
+        }
+        guard.succeeded(account);
+        ok(out);
+    }
+
+    private void setAlternateEmail(String[] fields, Writer out, String source) throws IOException {
+        requireFields(fields, 4, "ALT address current alternate");
+        Email account = authenticated(fields[1], fields[2], source);
+        registry.setAlternateEmail(account, fields[3]);
+        ok(out);
+    }
+
+    private void setMailboxCapacity(String[] fields, Writer out, String source) throws IOException {
+        requireFields(fields, 4, "CAPACITY address current megabytes");
+        Email account = authenticated(fields[1], fields[2], source);
+        registry.setMailboxCapacity(account, parseInt(fields[3]));
+        ok(out);
+    }
+
+    private void resetPassword(String[] fields, Writer out, String source) throws IOException {
+        requireFields(fields, 3, "RESET address adminKey");
+        requireAdmin(fields[2], source);
+        Email account = account(fields[1]);
+        String password = registry.resetPassword(account);
+        account.clearOneTimePassword();
+        ok(out, password);
+    }
+
+    private void list(String[] fields, Writer out, String source) throws IOException {
+        requireFields(fields, 4, "LIST adminKey offset limit");
+        requireAdmin(fields[1], source);
+        int offset = parseInt(fields[2]);
+        int limit = Math.min(parseInt(fields[3]), MAX_LIST);
+        List<Email> page = registry.page(offset, limit);
+
+        ok(out, String.valueOf(page.size()));
+        for (Email account : page) {
+            String alternate = account.getAlternateEmail();
+            out.write(account.getEmailAddress());
+            out.write('\t');
+            out.write(account.getFirstName());
+            out.write('\t');
+            out.write(account.getLastName());
+            out.write('\t');
+            out.write(account.getDepartmentCode());
+            out.write('\t');
+            out.write(Integer.toString(account.getMailboxCapacity()));
+            out.write('\t');
+            out.write((alternate == null) ? "" : alternate);
+            out.write('\n');
+        }
+    }
+
+    private void requireAdmin(String key, String source) {
+        if (!guard.verifyAdminKey(adminKey, key, source)) {
+            throw new IllegalArgumentException("Invalid admin key");
+        }
+    }
+
+    private Email account(String address) {
+        Email account = registry.findByAddress(address);
+        if (account == null) {
+            throw new IllegalArgumentException("No such account: " + address);
+        }
+        return account;
+    }
+
+    private Email active(String address) {
+        Email account = account(address);
+        if (account.getState() != AccountState.ACTIVE) {
+            throw new IllegalArgumentException("Account is " + account.getState().name().toLowerCase(Locale.ROOT));
+        }
+        return account;
+    }
+
+    private Email authenticated(String address, String password, String source) {
+        Email account = active(address);
+        if (!guard.verifyPassword(account, password, source)) {
+            throw new IllegalArgumentException("Authentication failed");
+        }
+        return account;
+    }
+
+    private static void requireFields(String[] fields, int count, String usage) {
+        if (fields.length < count) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private static void ok(Writer out, String... values) throws IOException {
+        out.write("OK");
+        for (String value : values) {
+            out.write('\t');
+            out.write(value);
+        }
+        out.write('\n');
+    }
+}
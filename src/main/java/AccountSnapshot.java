@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Versioned binary snapshot of the account set.
+ *
+ * Layout (version 3):
+ *   header   magic, version, generation, account count, department count, string count,
+ *            and the file positions of each section below
+ *   records  one fixed-size record per account: string ids for first name, last name,
+ *            address, password hash and alternate email, capacity, department ordinal,
+ *            lifecycle state, and created, password-changed and last-changed times
+ *   strings  deduplicated UTF-8 strings, each prefixed with a 2-byte length
+ *   offsets  position of each string within the strings section
+ *   depts    department ordinal to string id
+ *
+ * Fixed-size records let the Reader decode any account on demand straight from the mapped file.
+ * The Reader also accepts version 2, whose records stop after the department ordinal.
+ */
+public final class AccountSnapshot {
+
+    public static final int MAGIC = 0x454D534E;
+    public static final int VERSION = 3;
+
+    private static final int HEADER_SIZE = 60;
+    private static final int RECORD_SIZE = 50;
+    private static final int V2_VERSION = 2;
+    private static final int V2_RECORD_SIZE = 25;
+    private static final AccountState[] STATES = AccountState.values();
+    private static final int NO_STRING = -1;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private AccountSnapshot() {
+    }
+
+    /**
+     * Writes accounts to file (replacing it) and forces it to disk.
+     */
+    public static void write(Path file, List<Email> accounts, long generation) throws IOException {
+        HashMap<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        HashMap<String, Integer> departmentOrdinals = new HashMap<>();
+        List<Integer> departmentStringIds = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+            channel.position(HEADER_SIZE);
+
+            for (Email account : accounts) {
+                if (buf.remaining() < RECORD_SIZE) {
+                    flush(channel, buf);
+                }
+                Integer ordinal = departmentOrdinals.get(account.getDepartmentCode());
+                if (ordinal == null) {
+                    ordinal = departmentStringIds.size();
+                    if (ordinal > Byte.MAX_VALUE) {
+                        throw new IOException("Too many departments for snapshot format");
+                    }
+                    departmentOrdinals.put(account.getDepartmentCode(), ordinal);
+                    departmentStringIds.add(idOf(account.getDepartmentCode(), stringIds, strings));
+                }
+
+                buf.putInt(idOf(account.getFirstName(), stringIds, strings));
+                buf.putInt(idOf(account.getLastName(), stringIds, strings));
+                buf.putInt(idOf(account.getEmailAddress(), stringIds, strings));
+                buf.putInt(idOf(account.getPasswordHash(), stringIds, strings));
+                buf.putInt(idOf(account.getAlternateEmail(), stringIds, strings));
+                buf.putInt(account.getMailboxCapacity());
+                buf.put((byte) (int) ordinal);
+                buf.put((byte) account.getState().ordinal());
+                buf.putLong(account.getCreatedMillis());
+                buf.putLong(account.getPasswordChangedMillis());
+                buf.putLong(account.getLastChangedMillis());
+            }
+            flush(channel, buf);
+
+            long stringsPos = channel.position();
+            int[] offsets = new int[strings.size()];
+            long relative = 0;
+            for (int i = 0; i < strings.size(); i++) {
+                if (relative > Integer.MAX_VALUE) {
+                    throw new IOException("String section too large for snapshot format");
+                }
+                offsets[i] = (int) relative;
+                byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_STRING_BYTES) {
+                    throw new IOException("String too long for snapshot format");
+                }
+                if (buf.remaining() < 2 + bytes.length) {
+                    flush(channel, buf);
+                }
+                buf.putShort((short) bytes.length).put(bytes);
+                relative += 2 + bytes.length;
+            }
+            flush(channel, buf);
+
+            long offsetsPos = channel.position();
+            for (int offset : offsets) {
+                if (buf.remaining() < 4) {
+                    flush(channel, buf);
+                }
+                buf.putInt(offset);
+            }
+            long departmentsPos = offsetsPos + 4L * offsets.length;
+            for (int id : departmentStringIds) {
+                if (buf.remaining() < 4) {
+                    flush(channel, buf);
+                }
+                buf.putInt(id);
+            }
+            flush(channel, buf);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(generation)
+                  .putInt(accounts.size()).putInt(departmentStringIds.size()).putInt(strings.size())
+                  .putLong(HEADER_SIZE).putLong(stringsPos).putLong(offsetsPos).putLong(departmentsPos);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    private static int idOf(String value, HashMap<String, Integer> ids, List<String> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Reads only the version field, so callers can pick a decoder.
+     */
+    public static int versionOf(ByteBuffer map) throws IOException {
+        if (map.limit() < 8 || map.getInt(0) != MAGIC) {
+            throw new IOException("Not an account snapshot");
+        }
+        return map.getInt(4);
+    }
+
+    /**
+     * Memory-mapped view of a snapshot. Opening only validates the header; accounts and
+     * strings are decoded the first time they are requested, and each string is decoded once.
+     */
+    public static final class Reader {
+
+        private final MappedByteBuffer map;
+        private final long generation;
+        private final int count;
+        private final int recordSize;
+        private final int recordsPos;
+        private final int stringsPos;
+        private final int offsetsPos;
+        private final String[] strings;
+        private final int[] departmentStringIds;
+
+        private Reader(MappedByteBuffer map) throws IOException {
+            this.map = map;
+            int version = versionOf(map);
+            if (map.limit() < HEADER_SIZE || (version != VERSION && version != V2_VERSION)) {
+                throw new IOException("Unsupported snapshot version");
+            }
+            this.recordSize = (version == VERSION) ? RECORD_SIZE : V2_RECORD_SIZE;
+            this.generation = map.getLong(8);
+            this.count = map.getInt(16);
+            int departmentCount = map.getInt(20);
+            int stringCount = map.getInt(24);
+            this.recordsPos = (int) map.getLong(28);
+            this.stringsPos = (int) map.getLong(36);
+            this.offsetsPos = (int) map.getLong(44);
+            int departmentsPos = (int) map.getLong(52);
+
+            if (count < 0 || stringCount < 0 || departmentCount < 0
+                    || (long) recordsPos + (long) count * recordSize > stringsPos
+                    || (long) departmentsPos + 4L * departmentCount > map.limit()) {
+                throw new IOException("Snapshot is truncated or corrupt");
+            }
+
+            this.strings = new String[stringCount];
+            this.departmentStringIds = new int[departmentCount];
+            for (int i = 0; i < departmentCount; i++) {
+                departmentStringIds[i] = map.getInt(departmentsPos + 4 * i);
+            }
+        }
+
+        public static Reader open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Snapshot too large to map: " + file);
+                }
+                return new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Decodes the account at index; repeated strings are shared between decoded accounts.
+         */
+        public Email get(int index) {
+            int pos = recordPos(index);
+            if (recordSize == V2_RECORD_SIZE) {
+                return Email.restore(
+                        string(map.getInt(pos)),
+                        string(map.getInt(pos + 4)),
+                        string(departmentStringIds[map.get(pos + 24)]),
+                        string(map.getInt(pos + 8)),
+                        string(map.getInt(pos + 12)),
+                        map.getInt(pos + 20),
+                        string(map.getInt(pos + 16)));
+            }
+            return Email.restore(
+                    string(map.getInt(pos)),
+                    string(map.getInt(pos + 4)),
+                    string(departmentStringIds[map.get(pos + 24)]),
+                    string(map.getInt(pos + 8)),
+                    string(map.getInt(pos + 12)),
+                    map.getInt(pos + 20),
+                    string(map.getInt(pos + 16)),
+                    STATES[map.get(pos + 25)],
+                    map.getLong(pos + 26),
+                    map.getLong(pos + 34),
+                    map.getLong(pos + 42));
+        }
+
+        /**
+         * Decodes only the address of the account at index.
+         */
+        public String getEmailAddress(int index) {
+            return string(map.getInt(recordPos(index) + 8));
+        }
+
+        private int recordPos(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Account " + index + " of " + count);
+            }
+            return recordsPos + index * recordSize;
+        }
+
+        private String string(int id) {
+            if (id == NO_STRING) {
+                return null;
+            }
+            String cached = strings[id];
+            if (cached == null) {
+                int pos = stringsPos + map.getInt(offsetsPos + 4 * id);
+                int length = map.getShort(pos) & MAX_STRING_BYTES;
+                byte[] bytes = new byte[length];
+                map.get(pos + 2, bytes);
+                cached = new String(bytes, StandardCharsets.UTF_8);
+                strings[id] = cached;
+            }
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Where an account is in its lifecycle; only ACTIVE accounts can sign in.
+ *
+ * LOCKED is set when the password passes its maximum age and cleared by a new password.
+ * SUSPENDED is set by an administrator or the dormancy policy and cleared by an administrator.
+ * DELETED is final: the account keeps its address and id, so the address is never reissued.
+ */
+public enum AccountState {
+    ACTIVE, LOCKED, SUSPENDED, DELETED;
+
+    /**
+     * Parses a state name in any case, such as "suspended".
+     */
+    public static AccountState parse(String name) {
+        for (AccountState state : values()) {
+            if (state.name().equalsIgnoreCase(name.trim())) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException("Unknown account state: " + name);
+    }
+}
@@ -0,0 +1,180 @@
+import java.text.Normalizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Hands out unique account addresses of the form given-last@dept-domain, where the
+ * domain is company-com unless the registry belongs to another tenant.
+ *
+ * Names are reduced to lower-case ASCII: accents are stripped, apostrophes dropped and
+ * spaces or hyphens inside a name become dots (Jos\u00e9 O'Neil-D\u00edaz gives jose-oneil.diaz).
+ * The first word of the first name is the given name; any further words are middle names.
+ * When the plain address is taken, the middle initials are tried (mary.a-smith), then
+ * numeric suffixes (mary-smith2, mary-smith3, ...).
+ *
+ * A candidate is reserved with one putIfAbsent on a ConcurrentHashMap, which locks only
+ * the bin holding that address, so threads creating accounts with different names never
+ * wait for each other and threads racing for the same name each get a different address.
+ * Reservations last until the registry accepts the account (or release() is called);
+ * addresses already in the registry are checked through the supplied predicate.
+ */
+public class AddressAllocator {
+
+    public static final String DOMAIN = "company-com";
+
+    private static final int MAX_NAME_LENGTH = 30;
+    private static final String FALLBACK_NAME = "user";
+
+    private final Predicate<String> registered;
+    private final String domain;
+    private final ConcurrentHashMap<String, Boolean> reserved = new ConcurrentHashMap<>();
+
+    // Next numeric suffix to try per plain address; only created once a name has collided
+    private final ConcurrentHashMap<String, AtomicInteger> nextSuffix = new ConcurrentHashMap<>();
+
+    public AddressAllocator(Predicate<String> registered) {
+        this(registered, DOMAIN);
+    }
+
+    public AddressAllocator(Predicate<String> registered, String domain) {
+        this.registered = registered;
+        this.domain = domain;
+    }
+
+    /**
+     * The plain address for a name, with no collision handling.
+     */
+    public static String baseAddress(String firstName, String lastName, Department department) {
+        return baseAddress(firstName, lastName, department, DOMAIN);
+    }
+
+    public static String baseAddress(String firstName, String lastName, Department department, String domain) {
+        return givenName(normalizeName(firstName)) + "-" + normalizeName(lastName) + "@" + domain(department, domain);
+    }
+
+    /**
+     * Reserves and returns an address no other account has or is about to get.
+     */
+    public String allocate(String firstName, String lastName, Department department) {
+        String first = normalizeName(firstName);
+        String last = normalizeName(lastName);
+        String given = givenName(first);
+        String at = "@" + domain(department, domain);
+
+        String base = given + "-" + last + at;
+        if (reserve(base)) {
+            return base;
+        }
+        if (given.length() < first.length()) {
+            String withInitials = given + "." + initials(first.substring(given.length() + 1)) + "-" + last + at;
+            if (reserve(withInitials)) {
+                return withInitials;
+            }
+        }
+
+        AtomicInteger suffix = nextSuffix.computeIfAbsent(base, k -> new AtomicInteger(2));
+        while (true) {
+            String candidate = given + "-" + last + suffix.getAndIncrement() + at;
+            if (reserve(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Gives up a reservation for an account that was never registered.
+     */
+    public void release(String address) {
+        reserved.remove(address);
+    }
+
+    // Called by the registry once the account is indexed under its address
+    void registered(String address) {
+        reserved.remove(address);
+    }
+
+    private boolean reserve(String address) {
+        if (registered.test(address) || reserved.putIfAbsent(address, Boolean.TRUE) != null) {
+            return false;
+        }
+        // The registry indexes before it drops the reservation, so a check after reserving
+        // cannot miss an account registered concurrently under this address
+        if (registered.test(address)) {
+            reserved.remove(address);
+            return false;
+        }
+        return true;
+    }
+
+    private static String domain(Department department, String domain) {
+        return (department == Department.NONE) ? domain : department.getCode() + "-" + domain;
+    }
+
+    /**
+     * Lower-case ASCII letters and digits, words joined by dots.
+     */
+    static String normalizeName(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length() && out.length() < MAX_NAME_LENGTH; i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || isApostrophe(c)) {
+                continue;
+            }
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z');
+            String folded = plain ? null : fold(c);
+            if (!plain && folded == null) {
+                separator = true;
+                continue;
+            }
+            if (separator && out.length() > 0) {
+                out.append('.');
+            }
+            separator = false;
+            if (plain) {
+                out.append((char) (c | 0x20)); // lower case; digits already have the bit set
+            } else {
+                out.append(folded);
+            }
+        }
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == '.') {
+            end--;
+        }
+        return (end == 0) ? FALLBACK_NAME : out.substring(0, end);
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '\u2019' || c == '\u02bc' || c == '`' || c == '\u00b4';
+    }
+
+    // ASCII spelling of a letter that has no decomposition, or null for anything else
+    private static String fold(char c) {
+        return switch (c) {
+            case '\u00df' -> "ss";                     // sharp s
+            case '\u00c6', '\u00e6' -> "ae";           // ash
+            case '\u0152', '\u0153' -> "oe";
+            case '\u00d8', '\u00f8' -> "o";            // slashed o
+            case '\u0141', '\u0142' -> "l";            // stroked l
+            case '\u0110', '\u0111', '\u00d0', '\u00f0' -> "d";
+            case '\u00de', '\u00fe' -> "th";           // thorn
+            case '\u0131' -> "i";                      // dotless i
+            default -> null;
+        };
+    }
+
+    private static String givenName(String normalizedFirst) {
+        int dot = normalizedFirst.indexOf('.');
+        return (dot < 0) ? normalizedFirst : normalizedFirst.substring(0, dot);
+    }
+
+    private static String initials(String middleNames) {
+        StringBuilder initials = new StringBuilder();
+        for (String word : middleNames.split("\\.")) {
+            initials.append(word.charAt(0));
+        }
+        return initials.toString();
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.Locale;
+
+/**
+ * Validates alternate email addresses against a subset of RFC 5321 without allocating.
+ *
+ * Accepted: a dot-atom local part of letters, digits and "+_-" (at most 64 chars, no
+ * leading, trailing or doubled dots), one '@', and a domain of two or more dot-separated
+ * labels (letters, digits and inner hyphens, at most 63 chars each, 253 in all) whose last
+ * label is not all digits; 254 chars at most overall. Quoted local parts, address literals
+ * and non-ASCII addresses are rejected. Everything accepted here also matches the old
+ * "^[A-Za-z0-9+_.-]+@(.+)$" pattern.
+ *
+ * normalize() also memoizes valid domains in a small fixed cache holding one lower-case
+ * String per domain, so repeated domains are neither re-checked nor re-copied and stored
+ * addresses share domain instances. Invalid domains are never cached: they may hold
+ * non-ASCII characters that lower-casing would fold onto a valid spelling. Checking a
+ * domain is about as cheap as finding it in the cache, so isValid() stays uncached.
+ */
+public final class AddressValidator {
+
+    public static final int MAX_ADDRESS_LENGTH = 254;
+    public static final int MAX_LOCAL_LENGTH = 64;
+    public static final int MAX_DOMAIN_LENGTH = 253;
+    public static final int MAX_LABEL_LENGTH = 63;
+
+    private static final int DEFAULT_CACHE_SLOTS = 4096;
+    private static final int HASHED_CHARS = 16;
+
+    // Character classes for ASCII; anything else is rejected
+    private static final byte LOCAL = 1;
+    private static final byte ALNUM = 2;
+    private static final byte DIGIT = 4;
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = LOCAL | ALNUM;
+            CLASSES[Character.toUpperCase(c)] = LOCAL | ALNUM;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = LOCAL | ALNUM | DIGIT;
+        }
+        CLASSES['+'] = LOCAL;
+        CLASSES['_'] = LOCAL;
+        CLASSES['-'] = LOCAL;
+    }
+
+    private static final AddressValidator SHARED = new AddressValidator(DEFAULT_CACHE_SLOTS);
+
+    // Lower-case valid domains; Strings are immutable, so unsynchronized reads and racing
+    // writes are safe, and a lost write only costs a later re-check
+    private final String[] domains;
+    private final int mask;
+
+    /**
+     * Creates a validator whose domain cache has the given number of slots (a power of two).
+     */
+    public AddressValidator(int cacheSlots) {
+        if (cacheSlots < 1 || Integer.bitCount(cacheSlots) != 1) {
+            throw new IllegalArgumentException("Cache slots must be a positive power of two");
+        }
+        this.domains = new String[cacheSlots];
+        this.mask = cacheSlots - 1;
+    }
+
+    public static AddressValidator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Checks an address without touching any cache.
+     */
+    public static boolean isValid(String address) {
+        int at = localPartEnd(address);
+        return at > 0 && isValidDomain(address, at + 1, address.length());
+    }
+
+    /**
+     * Returns the address with its domain in lower case, sharing the cached domain String;
+     * the argument itself when it is already normalized.
+     */
+    public String normalize(String address) {
+        int at = localPartEnd(address);
+        String domain = (at > 0) ? validDomain(address, at + 1) : null;
+        if (domain == null) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+        if (address.regionMatches(at + 1, domain, 0, domain.length())) {
+            return address;
+        }
+        return address.substring(0, at + 1).concat(domain);
+    }
+
+    // Index of the '@' that ends a valid local part, or -1
+    private static int localPartEnd(String address) {
+        int length = address.length();
+        if (length > MAX_ADDRESS_LENGTH) {
+            return -1;
+        }
+        boolean expectAtom = true;
+        for (int i = 0; i < length; i++) {
+            char c = address.charAt(i);
+            if (c < 128 && (CLASSES[c] & LOCAL) != 0) {
+                expectAtom = false;
+            } else if (expectAtom) {
+                return -1; // empty local part, leading dot or two dots in a row
+            } else if (c == '.') {
+                expectAtom = true;
+            } else if (c == '@') {
+                return (i <= MAX_LOCAL_LENGTH) ? i : -1;
+            } else {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isValidDomain(String address, int from, int to) {
+        if (to - from > MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        int labelStart = from;
+        int dots = 0;
+        boolean allDigits = true;
+        for (int i = from; i < to; i++) {
+            char c = address.charAt(i);
+            int cls = (c < 128) ? CLASSES[c] : 0;
+            if ((cls & ALNUM) != 0) {
+                allDigits &= (cls & DIGIT) != 0;
+            } else if (c == '-' && i > labelStart) {
+                allDigits = false;
+            } else if (c == '.' && isLabel(address, labelStart, i)) {
+                dots++;
+                labelStart = i + 1;
+                allDigits = true;
+            } else {
+                return false;
+            }
+        }
+        return dots > 0 && !allDigits && isLabel(address, labelStart, to);
+    }
+
+    private static boolean isLabel(String address, int start, int end) {
+        int length = end - start;
+        return length > 0 && length <= MAX_LABEL_LENGTH && address.charAt(end - 1) != '-';
+    }
+
+    // The cached lower-case domain of address from the given index, or null if it is invalid
+    private String validDomain(String address, int from) {
+        int length = address.length() - from;
+        // Hashing the tail is enough to spread domains; the comparison below settles collisions
+        int hash = length;
+        for (int i = Math.max(from, address.length() - HASHED_CHARS); i < address.length(); i++) {
+            hash = 31 * hash + (address.charAt(i) | 0x20); // folds ASCII case
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        String cached = domains[slot];
+        if (cached != null && cached.length() == length
+                && (address.regionMatches(from, cached, 0, length) || sameDomain(address, from, cached))) {
+            return cached;
+        }
+        if (!isValidDomain(address, from, address.length())) {
+            return null;
+        }
+        // Valid domains are ASCII, so lower-casing folds nothing else
+        String domain = address.substring(from).toLowerCase(Locale.ROOT);
+        domains[slot] = domain;
+        return domain;
+    }
+
+    // ASCII-only case folding; String.regionMatches(true, ...) would also fold e.g. the Kelvin sign to 'k'
+    private static boolean sameDomain(String address, int from, String domain) {
+        for (int i = 0; i < domain.length(); i++) {
+            char c = address.charAt(from + i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != domain.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
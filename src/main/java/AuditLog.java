@@ -0,0 +1,612 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable trail of account changes: creation, password changes, admin resets, capacity and
+ * alternate-email edits.
+ *
+ * The mutating thread only claims a slot in a lock-free ring buffer and fills in a fixed-size
+ * event; it never touches the disk. One background writer drains whatever is ready, appends
+ * it to the current segment file as 32-byte records and forces the file once per batch, so
+ * many events share one fsync. Segments roll over at a size limit and are named by the
+ * sequence number of their first event.
+ *
+ * A producer never waits long on the writer. If the ring is still full after 2 ms, or the
+ * writer has stopped after an I/O error, the event is dropped and counted (audit_dropped)
+ * rather than stalling the mutation, which holds the account's lock.
+ *
+ * Accounts are recorded by a 64-bit key hashed from the lower-case address, which stays
+ * the same across restarts, unlike the registry's in-memory account ids.
+ *
+ * Next to each segment is a sparse index with one entry per block of records: the block's
+ * time range and a small Bloom filter of its account keys. Queries by account and time read
+ * only the blocks whose entry matches, plus any tail not yet indexed.
+ */
+public class AuditLog implements AccountListener, Closeable {
+
+    public static final String DIR_NAME = "audit";
+
+    /**
+     * What happened to the account. For CAPACITY_CHANGED an event carries the previous and new
+     * capacity in MB; for ALTERNATE_CHANGED, whether an alternate address was set before and
+     * after (1 or 0); for CREATED, the initial capacity; for STATE_CHANGED, the previous and
+     * new AccountState ordinals.
+     */
+    public enum Action {
+        CREATED, PASSWORD_CHANGED, PASSWORD_RESET, CAPACITY_CHANGED, ALTERNATE_CHANGED, STATE_CHANGED
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    // Record: time(8) account key(8) previous(4) current(4) action(4) crc(4)
+    private static final int RECORD_BYTES = 32;
+    private static final int CRC_OFFSET = 28;
+
+    // Queries for every account; accountKey() never returns it
+    private static final long ANY_ACCOUNT = 0;
+
+    // Index entry per block: min time(8) max time(8) Bloom filter of account keys
+    private static final int BLOCK_RECORDS = 1024;
+    private static final int BLOOM_LONGS = 32;
+    private static final int BLOOM_MASK = BLOOM_LONGS * Long.SIZE - 1;
+    private static final int INDEX_ENTRY_BYTES = 16 + BLOOM_LONGS * Long.BYTES;
+
+    private static final int DEFAULT_RING_SIZE = 1 << 16;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    private static final int MAX_BATCH = 4_096;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long MAX_PUBLISH_WAIT_NANOS = 2_000_000;
+    private static final long FULL_PARK_NANOS = 50_000;
+
+    private static final Metrics.Counter RING_FULL = Metrics.counter("audit_ring_full");
+    private static final Metrics.Counter DROPPED = Metrics.counter("audit_dropped");
+
+    private final Path dir;
+    private final AccountRegistry registry;
+    private final long segmentRecords;
+
+    // Ring buffer: producers claim a sequence, fill the slot, then publish the sequence
+    private final int mask;
+    private final long[] times;
+    private final long[] keys;
+    private final int[] previous;
+    private final int[] current;
+    private final byte[] actions;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed;
+    private volatile long consumed;
+
+    // Everything below a durable sequence has been written and forced
+    private volatile long durable;
+    private final Object durableLock = new Object();
+
+    private final Thread writer;
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // Writer-thread state
+    private FileChannel segment;
+    private FileChannel index;
+    private long segmentFirst;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(MAX_BATCH * RECORD_BYTES);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private long blockMin = Long.MAX_VALUE;
+    private long blockMax = Long.MIN_VALUE;
+    private final long[] blockBloom = new long[BLOOM_LONGS];
+
+    private AuditLog(Path dir, AccountRegistry registry, int ringSize, long segmentBytes, long next) {
+        this.dir = dir;
+        this.registry = registry;
+        this.segmentRecords = Math.max(BLOCK_RECORDS, segmentBytes / RECORD_BYTES);
+        this.mask = ringSize - 1;
+        this.times = new long[ringSize];
+        this.keys = new long[ringSize];
+        this.previous = new int[ringSize];
+        this.current = new int[ringSize];
+        this.actions = new byte[ringSize];
+        this.published = new AtomicLongArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            published.set(i, -1);
+        }
+        this.claimed = new AtomicLong(next);
+        this.consumed = next;
+        this.durable = next;
+        this.writer = new Thread(this::drain, "audit-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens the audit log in dir and starts recording the registry's account changes.
+     */
+    public static AuditLog open(Path dir, AccountRegistry registry) throws IOException {
+        return open(dir, registry, DEFAULT_RING_SIZE, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * As open(dir, registry), with a ring of ringSize slots (a power of two) and segments
+     * rolled over at about segmentBytes.
+     */
+    public static AuditLog open(Path dir, AccountRegistry registry, int ringSize, long segmentBytes)
+            throws IOException {
+        if (ringSize < 2 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        }
+        Files.createDirectories(dir);
+        List<Long> segments = segments(dir);
+        long next = 0;
+        if (!segments.isEmpty()) {
+            long last = segments.get(segments.size() - 1);
+            next = last + Files.size(logFile(dir, last)) / RECORD_BYTES;
+        }
+
+        AuditLog log = new AuditLog(dir, registry, ringSize, segmentBytes, next);
+        log.writer.start();
+        registry.addListener(log);
+        return log;
+    }
+
+    /**
+     * data/audit, or the audit directory under -Demail.data.dir.
+     */
+    public static Path defaultDirectory() {
+        return AccountJournal.defaultDirectory().resolve(DIR_NAME);
+    }
+
+    // AccountListener: publish one event per change
+
+    @Override
+    public void onCreated(Email account) {
+        publish(account, Action.CREATED, 0, account.getMailboxCapacity());
+    }
+
+    @Override
+    public void onPasswordChanged(Email account) {
+        publish(account, Action.PASSWORD_CHANGED, 0, 0);
+    }
+
+    @Override
+    public void onPasswordReset(Email account) {
+        publish(account, Action.PASSWORD_RESET, 0, 0);
+    }
+
+    @Override
+    public void onMailboxCapacityChanged(Email account, int previousCapacity) {
+        publish(account, Action.CAPACITY_CHANGED, previousCapacity, account.getMailboxCapacity());
+    }
+
+    @Override
+    public void onAlternateEmailChanged(Email account, String previousAlternateEmail) {
+        publish(account, Action.ALTERNATE_CHANGED,
+                (previousAlternateEmail == null) ? 0 : 1, (account.getAlternateEmail() == null) ? 0 : 1);
+    }
+
+    @Override
+    public void onStateChanged(Email account, AccountState previousState) {
+        publish(account, Action.STATE_CHANGED, previousState.ordinal(), account.getState().ordinal());
+    }
+
+    private void publish(Email account, Action action, int before, int after) {
+        long sequence = claim();
+        if (sequence < 0) {
+            DROPPED.increment();
+            return;
+        }
+        int slot = (int) sequence & mask;
+        times[slot] = System.currentTimeMillis();
+        keys[slot] = accountKey(account);
+        previous[slot] = before;
+        current[slot] = after;
+        actions[slot] = (byte) action.ordinal();
+        published.lazySet(slot, sequence);
+    }
+
+    // Claims the next free slot's sequence, or -1 if the writer is dead or stays behind too long.
+    // A sequence is only claimed once its slot is free, so a dropped event leaves no gap.
+    private long claim() {
+        long deadline = 0;
+        while (true) {
+            if (failure != null || !writer.isAlive()) {
+                return -1;
+            }
+            long sequence = claimed.get();
+            if (sequence - consumed > mask) {
+                long now = System.nanoTime();
+                if (deadline == 0) {
+                    RING_FULL.increment();
+                    deadline = now + MAX_PUBLISH_WAIT_NANOS;
+                } else if (now - deadline > 0) {
+                    return -1;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Waits until every event published before the call is on disk.
+     */
+    public void flush() throws IOException {
+        long target = claimed.get();
+        synchronized (durableLock) {
+            while (durable < target && failure == null && writer.isAlive()) {
+                try {
+                    durableLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for the audit log", e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The key an account's events are recorded under: a hash of its lower-case address.
+     */
+    public static long accountKey(Email account) {
+        String address = account.getEmailAddress().toLowerCase(Locale.ROOT);
+        long h = 0xCBF29CE484222325L; // FNV-1a
+        for (int i = 0; i < address.length(); i++) {
+            h = (h ^ address.charAt(i)) * 0x100000001B3L;
+        }
+        // Finish with a full avalanche so every bit is usable by the Bloom filters
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (h == ANY_ACCOUNT) ? 1 : h;
+    }
+
+    /**
+     * The registry's accounts for the keys in events; keys with no account are left out.
+     */
+    public static Map<Long, Email> accountsFor(List<Event> events, AccountRegistry registry) {
+        Set<Long> wanted = new HashSet<>();
+        for (Event event : events) {
+            wanted.add(event.getAccountKey());
+        }
+        Map<Long, Email> found = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return found;
+        }
+        for (Email account : registry.snapshot()) {
+            long key = accountKey(account);
+            if (wanted.contains(key)) {
+                found.put(key, account);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Events for one account (or every account when account is null) with
+     * fromMillis <= time < toMillis, oldest first.
+     */
+    public List<Event> query(Email account, long fromMillis, long toMillis) throws IOException {
+        flush();
+        long accountKey = (account == null) ? ANY_ACCOUNT : accountKey(account);
+        List<Event> events = new ArrayList<>();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_BYTES);
+        for (long first : segments(dir)) {
+            try (FileChannel log = FileChannel.open(logFile(dir, first), StandardOpenOption.READ)) {
+                long records = log.size() / RECORD_BYTES;
+                List<ByteBuffer> entries = readIndex(indexFile(dir, first));
+                for (long start = 0; start < records; start += BLOCK_RECORDS) {
+                    int b = (int) (start / BLOCK_RECORDS);
+                    if (b < entries.size() && !mayContain(entries.get(b), accountKey, fromMillis, toMillis)) {
+                        continue;
+                    }
+                    block.clear().limit((int) Math.min(BLOCK_RECORDS, records - start) * RECORD_BYTES);
+                    while (block.hasRemaining() && log.read(block, start * RECORD_BYTES + block.position()) >= 0) {
+                        // read the whole block
+                    }
+                    block.flip();
+                    collect(block, first + start, accountKey, fromMillis, toMillis, events);
+                }
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public void close() throws IOException {
+        registry.removeListener(this);
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted closing the audit log", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Writer thread
+
+    private void drain() {
+        long next = consumed;
+        try {
+            while (true) {
+                int count = 0;
+                while (count < MAX_BATCH && published.get((int) (next + count) & mask) == next + count) {
+                    count++;
+                }
+                if (count == 0) {
+                    if (closing && claimed.get() == next) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                write(next, count);
+                next += count;
+                synchronized (durableLock) {
+                    durable = next;
+                    durableLock.notifyAll();
+                }
+            }
+            finishSegment();
+        } catch (IOException e) {
+            failure = e;
+            synchronized (durableLock) {
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    // Encodes and writes count events from next on, forcing the segment once for all of them
+    private void write(long next, int count) throws IOException {
+        out.clear();
+        if (segment == null) {
+            startSegment(next);
+        }
+        for (int i = 0; i < count; i++) {
+            long sequence = next + i;
+            if (sequence - segmentFirst == segmentRecords) {
+                flushRecords();
+                finishSegment();
+                startSegment(sequence);
+            }
+            int slot = (int) sequence & mask;
+            int base = out.position();
+            out.putLong(times[slot]).putLong(keys[slot]).putInt(previous[slot])
+               .putInt(current[slot]).putInt(actions[slot]);
+            crc.reset();
+            crc.update(out.duplicate().position(base).limit(base + CRC_OFFSET));
+            out.putInt((int) crc.getValue());
+
+            blockMin = Math.min(blockMin, times[slot]);
+            blockMax = Math.max(blockMax, times[slot]);
+            bloomAdd(blockBloom, keys[slot]);
+            if ((sequence - segmentFirst + 1) % BLOCK_RECORDS == 0) {
+                flushRecords();
+                writeIndexEntry();
+            }
+        }
+        // Slots are copied out; producers may reuse them
+        consumed = next + count;
+        flushRecords();
+        segment.force(false);
+    }
+
+    private void flushRecords() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            segment.write(out);
+        }
+        out.clear();
+    }
+
+    // Index entries follow the records they describe, so the index never points past the log
+    private void writeIndexEntry() throws IOException {
+        indexEntry.clear();
+        indexEntry.putLong(blockMin).putLong(blockMax);
+        for (int i = 0; i < BLOOM_LONGS; i++) {
+            indexEntry.putLong(blockBloom[i]);
+            blockBloom[i] = 0;
+        }
+        indexEntry.flip();
+        while (indexEntry.hasRemaining()) {
+            index.write(indexEntry);
+        }
+        blockMin = Long.MAX_VALUE;
+        blockMax = Long.MIN_VALUE;
+    }
+
+    // Opened on the first event, so runs that change nothing leave no empty files
+    private void startSegment(long first) throws IOException {
+        segmentFirst = first;
+        segment = FileChannel.open(logFile(dir, first),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        index = FileChannel.open(indexFile(dir, first),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Indexes the partial last block, then closes the segment; a new run starts a new one
+    private void finishSegment() throws IOException {
+        if (segment == null) {
+            return;
+        }
+        if (blockMin != Long.MAX_VALUE) {
+            writeIndexEntry();
+        }
+        segment.force(false);
+        index.force(false);
+        segment.close();
+        index.close();
+        segment = null;
+    }
+
+    // Reading
+
+    private static void collect(ByteBuffer block, long firstSequence, long accountKey,
+                                long fromMillis, long toMillis, List<Event> events) {
+        CRC32C check = new CRC32C();
+        for (int i = 0; block.remaining() >= RECORD_BYTES; i++) {
+            int base = block.position();
+            block.position(base + RECORD_BYTES);
+            if (checksum(check, block, base, CRC_OFFSET) != block.getInt(base + CRC_OFFSET)) {
+                continue; // torn by a crash
+            }
+            long time = block.getLong(base);
+            long key = block.getLong(base + 8);
+            int before = block.getInt(base + 16);
+            int after = block.getInt(base + 20);
+            int action = block.getInt(base + 24);
+            if (action < 0 || action >= ACTIONS.length) {
+                continue;
+            }
+            if ((accountKey == ANY_ACCOUNT || key == accountKey) && time >= fromMillis && time < toMillis) {
+                events.add(new Event(firstSequence + i, time, key, ACTIONS[action], before, after));
+            }
+        }
+    }
+
+    private static int checksum(CRC32C check, ByteBuffer block, int base, int length) {
+        check.reset();
+        check.update(block.duplicate().position(base).limit(base + length));
+        return (int) check.getValue();
+    }
+
+    private static List<ByteBuffer> readIndex(Path file) throws IOException {
+        List<ByteBuffer> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        ByteBuffer all = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (all.remaining() >= INDEX_ENTRY_BYTES) {
+            entries.add(all.slice(all.position(), INDEX_ENTRY_BYTES));
+            all.position(all.position() + INDEX_ENTRY_BYTES);
+        }
+        return entries;
+    }
+
+    private static boolean mayContain(ByteBuffer entry, long accountKey, long fromMillis, long toMillis) {
+        long min = entry.getLong(0);
+        long max = entry.getLong(8);
+        if (max < fromMillis || min >= toMillis) {
+            return false;
+        }
+        if (accountKey == ANY_ACCOUNT) {
+            return true;
+        }
+        int h1 = bloomHash1(accountKey);
+        int h2 = bloomHash2(accountKey);
+        return (entry.getLong(16 + (h1 >>> 6) * Long.BYTES) & (1L << h1)) != 0
+                && (entry.getLong(16 + (h2 >>> 6) * Long.BYTES) & (1L << h2)) != 0;
+    }
+
+    private static void bloomAdd(long[] bloom, long accountKey) {
+        int h1 = bloomHash1(accountKey);
+        int h2 = bloomHash2(accountKey);
+        bloom[h1 >>> 6] |= 1L << h1;
+        bloom[h2 >>> 6] |= 1L << h2;
+    }
+
+    // Keys are already well mixed, so two slices of one make two independent hashes
+    private static int bloomHash1(long key) {
+        return (int) key & BLOOM_MASK;
+    }
+
+    private static int bloomHash2(long key) {
+        return (int) (key >>> 32) & BLOOM_MASK;
+    }
+
+    private static List<Long> segments(Path dir) throws IOException {
+        List<Long> firsts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                firsts.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+            }
+        }
+        firsts.sort(null);
+        return firsts;
+    }
+
+    private static Path logFile(Path dir, long first) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, first, LOG_SUFFIX));
+    }
+
+    private static Path indexFile(Path dir, long first) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, first, INDEX_SUFFIX));
+    }
+
+    /**
+     * One recorded change.
+     */
+    public static final class Event {
+        private final long sequence;
+        private final long timeMillis;
+        private final long accountKey;
+        private final Action action;
+        private final int previous;
+        private final int current;
+
+        Event(long sequence, long timeMillis, long accountKey, Action action, int previous, int current) {
+            this.sequence = sequence;
+            this.timeMillis = timeMillis;
+            this.accountKey = accountKey;
+            this.action = action;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * The account's key (see accountKey).
+         */
+        public long getAccountKey() {
+            return accountKey;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public int getPrevious() {
+            return previous;
+        }
+
+        public int getCurrent() {
+            return current;
+        }
+    }
+}
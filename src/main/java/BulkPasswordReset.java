@@ -0,0 +1,346 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Resets the passwords of every account matching a filter, for credential rotation.
+ *
+ * Accounts are reset in batches on a worker pool, and their journal records are held in a
+ * journal batch of this run's own changes. After every chunk of at most MAX_CHUNK_ACCOUNTS
+ * accounts the run drains the pool, syncs the credentials written so far to a temporary
+ * owner-only file, and only then writes and syncs the matching journal records, so the
+ * journal never holds a reset password that is not in the file. If the run fails, the
+ * batches still running are drained into the file before the journal batch is committed.
+ * The file is moved into place (read-only) after the commit, so a published credentials
+ * file always matches what is persisted; compaction waits for the commit. Deleted accounts
+ * are listed with status DELETED and left as they are.
+ */
+public class BulkPasswordReset {
+
+    private static final int BATCH_SIZE = 1_000;
+    // Journal records held between syncs stay at a few MB however many workers there are
+    private static final int MAX_CHUNK_ACCOUNTS = 16_384;
+    private static final int MIN_BATCH_SIZE = 64;
+
+    /**
+     * Chooses the accounts to reset.
+     */
+    public interface Filter {
+        /**
+         * Returns the selected accounts, passing any requested address that does not exist to notFound.
+         */
+        Iterator<Email> select(AccountRegistry registry, Consumer<String> notFound);
+
+        /**
+         * Every account in a department, by code or name.
+         */
+        static Filter department(String department) {
+            String code = InputValidator.parseDepartment(department);
+            return (registry, notFound) -> registry.findByDepartment(code).iterator();
+        }
+
+        /**
+         * Addresses matching a case-insensitive glob, where * is any run of characters and ? one character.
+         */
+        static Filter addressPattern(String glob) {
+            StringBuilder regex = new StringBuilder();
+            for (char c : glob.toCharArray()) {
+                if (c == '*') regex.append(".*");
+                else if (c == '?') regex.append('.');
+                else regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            Pattern pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+            return (registry, notFound) -> matching(new AccountCursor(registry, BATCH_SIZE), pattern);
+        }
+
+        /**
+         * The listed addresses; unknown ones are reported as NOT_FOUND.
+         */
+        static Filter addresses(List<String> addresses) {
+            return (registry, notFound) -> {
+                Iterator<String> requested = addresses.iterator();
+                return matching(new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return requested.hasNext();
+                    }
+
+                    @Override
+                    public Email next() {
+                        String address = requested.next();
+                        Email account = registry.findByAddress(address);
+                        if (account == null) {
+                            notFound.accept(address);
+                        }
+                        return account;
+                    }
+                }, null);
+            };
+        }
+    }
+
+    /**
+     * Receives the running count after each completed batch.
+     */
+    public interface ProgressListener {
+        void onProgress(long processed, long elapsedNanos);
+    }
+
+    /**
+     * Summary of a reset run.
+     */
+    public static class Result {
+        private int reset;
+        private int notFound;
+        private long elapsedNanos;
+
+        public int getReset() {
+            return reset;
+        }
+
+        public int getNotFound() {
+            return notFound;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        /**
+         * Resets per second over the whole run.
+         */
+        public double getThroughput() {
+            return (elapsedNanos == 0) ? 0 : reset / (elapsedNanos / 1e9);
+        }
+    }
+
+    // Output chunk and counts for one batch
+    private static class BatchOutput {
+        final StringBuilder text = new StringBuilder();
+        int reset;
+    }
+
+    private final AccountRegistry registry;
+    private final AccountJournal journal;
+    private final int parallelism;
+    private final int batchSize;
+
+    /**
+     * journal may be null when the registry is not persisted.
+     */
+    public BulkPasswordReset(AccountRegistry registry, AccountJournal journal) {
+        this(registry, journal, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BulkPasswordReset(AccountRegistry registry, AccountJournal journal, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.registry = registry;
+        this.journal = journal;
+        this.parallelism = parallelism;
+        this.batchSize = Math.max(MIN_BATCH_SIZE, Math.min(BATCH_SIZE, MAX_CHUNK_ACCOUNTS / (parallelism * 2)));
+    }
+
+    /**
+     * Resets every selected account and writes email,password,status rows to output,
+     * which must not already exist. If the run fails part-way, the rows written so far
+     * are left in the owner-only output.tmp.
+     */
+    public Result reset(Filter filter, Path output, ProgressListener progress) throws IOException {
+        long start = System.nanoTime();
+        Result total = new Result();
+        Path tmp = CredentialsFile.createTemp(output);
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        ArrayDeque<Future<BatchOutput>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+
+        AccountJournal.Batch journalBatch = (journal == null) ? null : journal.beginBatch();
+        IOException failure = null;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE);
+             BufferedWriter writer = new BufferedWriter(
+                     new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 1 << 16)) {
+
+            writer.write("email,password,status");
+            writer.newLine();
+
+            Iterator<Email> accounts = filter.select(registry, address -> {
+                try {
+                    appendRow(writer, address, "", "NOT_FOUND");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                total.notFound++;
+            });
+            try {
+                List<Email> batch = new ArrayList<>(batchSize);
+                while (accounts.hasNext()) {
+                    batch.add(accounts.next());
+                    if (batch.size() == batchSize) {
+                        submit(pool, inFlight, batch, journalBatch);
+                        batch = new ArrayList<>(batchSize);
+                        if (inFlight.size() >= maxInFlight) {
+                            // Chunk boundary: the credentials reach disk before the hashes they match
+                            while (!inFlight.isEmpty()) {
+                                drain(inFlight.poll(), writer, total, start, progress);
+                            }
+                            writer.flush();
+                            channel.force(false);
+                            if (journalBatch != null) {
+                                journalBatch.flush();
+                            }
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    submit(pool, inFlight, batch, journalBatch);
+                }
+                while (!inFlight.isEmpty()) {
+                    drain(inFlight.poll(), writer, total, start, progress);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Accounts in the batches still running are reset too; get their rows into the file
+                while (!inFlight.isEmpty()) {
+                    try {
+                        drain(inFlight.poll(), writer, total, start, null);
+                    } catch (IOException | RuntimeException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                try {
+                    writer.flush();
+                    channel.force(true);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+
+            writer.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            // Accounts already reset keep their new passwords; leave their credentials to the operator
+            failure = new IOException("Bulk reset stopped after " + total.reset + " accounts; their credentials are in " + tmp, e);
+        } finally {
+            pool.shutdownNow();
+            // Persist the new hashes before the credentials file becomes visible
+            if (journalBatch != null) {
+                try {
+                    journalBatch.commit();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        CredentialsFile.publish(tmp, output);
+
+        total.elapsedNanos = System.nanoTime() - start;
+        return total;
+    }
+
+    private void submit(ExecutorService pool, ArrayDeque<Future<BatchOutput>> inFlight, List<Email> accounts,
+                        AccountJournal.Batch journalBatch) {
+        inFlight.add(pool.submit(() -> (journalBatch == null)
+                ? processBatch(accounts)
+                : journalBatch.call(() -> processBatch(accounts))));
+    }
+
+    private BatchOutput processBatch(List<Email> accounts) {
+        BatchOutput out = new BatchOutput();
+        for (Email account : accounts) {
+            String password = registry.resetPasswordUnlessDeleted(account);
+            if (password == null) {
+                out.text.append(account.getEmailAddress().toLowerCase(Locale.ROOT))
+                        .append(",,DELETED").append(System.lineSeparator());
+                continue;
+            }
+            account.clearOneTimePassword();
+            out.reset++;
+            out.text.append(account.getEmailAddress().toLowerCase(Locale.ROOT)).append(',')
+                    .append(password).append(",RESET").append(System.lineSeparator());
+        }
+        return out;
+    }
+
+    private static void drain(Future<BatchOutput> future, BufferedWriter writer, Result total,
+                              long start, ProgressListener progress) throws IOException {
+        BatchOutput out;
+        try {
+            out = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reset interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Reset batch failed", e.getCause());
+        }
+        writer.append(out.text);
+        total.reset += out.reset;
+        if (progress != null) {
+            progress.onProgress(total.reset + total.notFound, System.nanoTime() - start);
+        }
+    }
+
+    // Skips null entries and, when pattern is set, addresses that do not match it
+    private static Iterator<Email> matching(Iterator<Email> accounts, Pattern pattern) {
+        return new Iterator<>() {
+            private Email next = advance();
+
+            private Email advance() {
+                while (accounts.hasNext()) {
+                    Email candidate = accounts.next();
+                    if (candidate != null
+                            && (pattern == null || pattern.matcher(candidate.getEmailAddress()).matches())) {
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Email next() {
+                if (next == null) throw new NoSuchElementException();
+                Email current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private static void appendRow(Appendable sb, String email, String password, String status) throws IOException {
+        sb.append(email.toLowerCase(Locale.ROOT)).append(',')
+          .append(password).append(',')
+          .append(status).append(System.lineSeparator());
+    }
+}
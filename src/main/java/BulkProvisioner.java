@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Creates accounts in bulk from a CSV of first name, last name and department.
+ * Rows are read in fixed-size batches and built on a worker pool; at most a few
+ * batches are in flight at once, so memory use does not depend on file size.
+ * Credentials are written in input order to an owner-only temporary file, which is synced
+ * and moved into place read-only once every row is in it.
+ */
+public class BulkProvisioner {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private final AccountRegistry registry;
+    private final int parallelism;
+
+    public BulkProvisioner(AccountRegistry registry) {
+        this(registry, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BulkProvisioner(AccountRegistry registry, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.registry = registry;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Summary of an import run.
+     */
+    public static class Result {
+        private int created;
+        private int duplicates;
+        private int invalid;
+        private long elapsedNanos;
+
+        public int getCreated() {
+            return created;
+        }
+
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        public int getInvalid() {
+            return invalid;
+        }
+
+        public int getTotal() {
+            return created + duplicates + invalid;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        private void add(Result other) {
+            created += other.created;
+            duplicates += other.duplicates;
+            invalid += other.invalid;
+        }
+    }
+
+    // Output chunk and counts for one batch
+    private static class BatchOutput {
+        final StringBuilder text = new StringBuilder();
+        final Result counts = new Result();
+    }
+
+    /**
+     * Reads hires from input and writes line,email,password,status rows to output, which
+     * must not already exist. If the run fails part-way, the rows of every account created
+     * so far are left in the owner-only output.tmp.
+     */
+    public Result provision(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        Result total = new Result();
+        Path tmp = CredentialsFile.createTemp(output);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        ArrayDeque<Future<BatchOutput>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+
+        try (BufferedReader reader = Files.newBufferedReader(input);
+             FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE);
+             BufferedWriter writer = new BufferedWriter(
+                     new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 1 << 16)) {
+
+            writer.write("line,email,password,status");
+            writer.newLine();
+            try {
+                readAll(reader, writer, pool, inFlight, maxInFlight, total);
+            } catch (IOException | RuntimeException e) {
+                // Accounts in the batches still running are created too; get their rows into the file
+                while (!inFlight.isEmpty()) {
+                    try {
+                        drain(inFlight.poll(), writer, total);
+                    } catch (IOException | RuntimeException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                try {
+                    writer.flush();
+                    channel.force(true);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw new IOException("Import stopped after " + total.created
+                        + " accounts; their credentials are in " + tmp, e);
+            }
+            writer.flush();
+            channel.force(true);
+        } finally {
+            pool.shutdownNow();
+        }
+        CredentialsFile.publish(tmp, output);
+
+        total.elapsedNanos = System.nanoTime() - start;
+        return total;
+    }
+
+    // Submits rows in batches and writes finished batches in input order
+    private void readAll(BufferedReader reader, BufferedWriter writer, ExecutorService pool,
+                         ArrayDeque<Future<BatchOutput>> inFlight, int maxInFlight, Result total) throws IOException {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        int batchStartLine = 1;
+        int lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && isHeader(line)) {
+                batchStartLine = 2;
+                continue;
+            }
+            batch.add(line);
+
+            if (batch.size() == BATCH_SIZE) {
+                submit(pool, inFlight, batch, batchStartLine);
+                batch = new ArrayList<>(BATCH_SIZE);
+                batchStartLine = lineNumber + 1;
+
+                if (inFlight.size() >= maxInFlight) {
+                    drain(inFlight.poll(), writer, total);
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            submit(pool, inFlight, batch, batchStartLine);
+        }
+        while (!inFlight.isEmpty()) {
+            drain(inFlight.poll(), writer, total);
+        }
+    }
+
+    private void submit(ExecutorService pool, ArrayDeque<Future<BatchOutput>> inFlight,
+                        List<String> rows, int firstLine) {
+        inFlight.add(pool.submit(() -> processBatch(rows, firstLine)));
+    }
+
+    private BatchOutput processBatch(List<String> rows, int firstLine) {
+        BatchOutput out = new BatchOutput();
+        for (int i = 0; i < rows.size(); i++) {
+            int lineNumber = firstLine + i;
+            String row = rows.get(i);
+            if (row.isBlank()) {
+                continue;
+            }
+
+            String[] fields = splitRow(row);
+            if (fields.length < 2) {
+                out.counts.invalid++;
+                appendRow(out.text, lineNumber, "", "", "INVALID: expected first,last[,department]");
+                continue;
+            }
+
+            Email account;
+            try {
+                String department = registry.department(
+                        InputValidator.parseDepartment(fields.length > 2 ? fields[2] : "")).getCode();
+                account = new Email(fields[0], fields[1], department, registry.getAddressAllocator());
+            } catch (IllegalArgumentException e) {
+                out.counts.invalid++;
+                appendRow(out.text, lineNumber, "", "", "INVALID: " + e.getMessage());
+                continue;
+            }
+
+            try {
+                registry.add(account);
+                out.counts.created++;
+                appendRow(out.text, lineNumber, account.getEmailAddress(), account.getOneTimePassword(), "CREATED");
+                account.clearOneTimePassword();
+            } catch (IllegalArgumentException e) {
+                registry.getAddressAllocator().release(account.getEmailAddress());
+                out.counts.duplicates++;
+                appendRow(out.text, lineNumber, account.getEmailAddress(), "", "DUPLICATE");
+            }
+        }
+        return out;
+    }
+
+    private static void drain(Future<BatchOutput> future, BufferedWriter writer, Result total)
+            throws IOException {
+        BatchOutput out;
+        try {
+            out = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import batch failed", e.getCause());
+        }
+        writer.append(out.text);
+        total.add(out.counts);
+    }
+
+    private static boolean isHeader(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        return lower.contains("first") && lower.contains("last");
+    }
+
+    private static String[] splitRow(String row) {
+        String[] fields = row.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i].trim();
+            if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+                field = field.substring(1, field.length() - 1).trim();
+            }
+            fields[i] = field;
+        }
+        return fields;
+    }
+
+    private static void appendRow(StringBuilder sb, int line, String email, String password, String status) {
+        sb.append(line).append(',')
+          .append(email).append(',')
+          .append(password).append(',')
+          .append(status).append(System.lineSeparator());
+    }
+}
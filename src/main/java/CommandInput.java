@@ -0,0 +1,207 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Line-oriented console input, used by InputValidator in place of Scanner.
+ *
+ * Lines are cut straight out of a char buffer, and numbers are parsed from the buffer
+ * without building a String or running Scanner's regular expressions. A scripted input
+ * replays admin commands from a file or pipe: ConsoleUI skips screen clearing and the
+ * "press ENTER" pauses, and those pauses do not consume a line.
+ *
+ * Like Scanner, reading past the end of input throws NoSuchElementException.
+ */
+public class CommandInput implements Closeable {
+
+    // Returned by nextInt when the first word of the line is not a number
+    public static final int NOT_A_NUMBER = Integer.MIN_VALUE;
+
+    private static final int BUFFER_SIZE = 8_192;
+
+    private final Reader in;
+    private final boolean scripted;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    // Bounds of the line found by findLine: [lineStart, lineEnd), next line at nextLine
+    private int lineStart;
+    private int lineEnd;
+    private int nextLine;
+
+    public CommandInput(Reader in, boolean scripted) {
+        this.in = in;
+        this.scripted = scripted;
+    }
+
+    /**
+     * Interactive input from the terminal.
+     */
+    public static CommandInput console() {
+        return new CommandInput(new InputStreamReader(System.in, Charset.defaultCharset()), false);
+    }
+
+    /**
+     * Scripted input from a stream, such as a pipe into standard input.
+     */
+    public static CommandInput script(InputStream in) {
+        return new CommandInput(new InputStreamReader(in, Charset.defaultCharset()), true);
+    }
+
+    /**
+     * Scripted input from a file.
+     */
+    public static CommandInput script(Path file) throws IOException {
+        return new CommandInput(Files.newBufferedReader(file, Charset.defaultCharset()), true);
+    }
+
+    public boolean isScripted() {
+        return scripted;
+    }
+
+    public boolean hasNextLine() {
+        return position < limit || fill();
+    }
+
+    /**
+     * The next line without its line terminator.
+     */
+    public String nextLine() {
+        findLine();
+        String line = new String(buffer, lineStart, lineEnd - lineStart);
+        position = nextLine;
+        return line;
+    }
+
+    /**
+     * Discards the next line.
+     */
+    public void skipLine() {
+        findLine();
+        position = nextLine;
+    }
+
+    /**
+     * Reads a line and parses its first word as an int, discarding the rest of the line.
+     * Blank lines are skipped, as Scanner.nextInt skips them. Returns NOT_A_NUMBER when
+     * the first word is not a number or does not fit in an int.
+     */
+    public int nextInt() {
+        while (true) {
+            findLine();
+            int i = lineStart;
+            while (i < lineEnd && Character.isWhitespace(buffer[i])) {
+                i++;
+            }
+            if (i == lineEnd) {
+                position = nextLine;
+                continue;
+            }
+            int value = parseInt(buffer, i, lineEnd);
+            position = nextLine;
+            return value;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Parses [start, end) up to the first whitespace; digits with an optional sign
+    private static int parseInt(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while (i < end && !Character.isWhitespace(chars[i])) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return NOT_A_NUMBER;
+            }
+            i++;
+        }
+        if (i == digitsStart) {
+            return NOT_A_NUMBER;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    // Locates the next complete line in the buffer, reading more input as needed
+    private void findLine() {
+        int scanned = 0; // characters after position already known to hold no line break
+        while (true) {
+            for (int i = position + scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(i, i + 1);
+                    return;
+                }
+            }
+            scanned = limit - position;
+            if (!fill()) {
+                if (position == limit) {
+                    throw new NoSuchElementException("No line found");
+                }
+                setLine(limit, limit);
+                return;
+            }
+        }
+    }
+
+    private void setLine(int end, int next) {
+        lineStart = position;
+        lineEnd = (end > position && buffer[end - 1] == '\r') ? end - 1 : end;
+        nextLine = next;
+    }
+
+    // Appends more input after the unread part of the buffer; false at end of input
+    private boolean fill() {
+        if (endOfInput) {
+            return false;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            int read;
+            do {
+                read = in.read(buffer, limit, buffer.length - limit);
+            } while (read == 0);
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,4 +1,9 @@
-import java.util.ArrayList;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class ConsoleUI {
 
@@ -13,16 +18,54 @@ public class ConsoleUI {
     private static final String PASSWORD_TABLE_BOTTOM = "+-----+--------------------+--------------------------------------+------------------------+";
 
     private static final String ACCOUNTS_TABLE_TOP = "+-----+--------------------+--------------------------------------+------------+----------------+";
-    private static final String ACCOUNTS_TABLE_HEADER = "| NO- | NAME               | EMAIL ADDRESS                        | DEPARTMENT | CAPACITY (MB)  |";
+    private static final String ACCOUNTS_TABLE_HEADER = "| NO- | NAME               | EMAIL ADDRESS                        | DEPARTMENT | USED/CAP (MB)  |";
     private static final String ACCOUNTS_TABLE_SEP = "+-----+--------------------+--------------------------------------+------------+----------------+";
     private static final String ACCOUNTS_TABLE_BOTTOM = "+-----+--------------------+--------------------------------------+------------+----------------+";
 
-    private static final String SELECT_TABLE_TOP = "+-----+--------------------+--------------------------------------+------------------------+";
-    private static final String SELECT_TABLE_HEADER = "| NO- | NAME               | EMAIL ADDRESS                        | PASSWORD               |";
-    private static final String SELECT_TABLE_SEP = "+-----+--------------------+--------------------------------------+------------------------+";
-    private static final String SELECT_TABLE_BOTTOM = "+-----+--------------------+--------------------------------------+------------------------+";
+    private static final String SELECT_TABLE_TOP = "+-----+--------------------+--------------------------------------+------------+";
+    private static final String SELECT_TABLE_HEADER = "| NO- | NAME               | EMAIL ADDRESS                        | DEPARTMENT |";
+    private static final String SELECT_TABLE_SEP = "+-----+--------------------+--------------------------------------+------------+";
+    private static final String SELECT_TABLE_BOTTOM = "+-----+--------------------+--------------------------------------+------------+";
+
+    private static final String DEPARTMENT_TABLE_TOP = "+--------------+------------+-----------------+-----------------+-----------------+";
+    private static final String DEPARTMENT_TABLE_HEADER = "| DEPARTMENT   | ACCOUNTS   | CAPACITY (MB)   | AVG CAPACITY    | WITH ALTERNATE  |";
+    private static final String DEPARTMENT_TABLE_SEP = "+--------------+------------+-----------------+-----------------+-----------------+";
+    private static final String DEPARTMENT_TABLE_BOTTOM = "+--------------+------------+-----------------+-----------------+-----------------+";
+
+    private static final String AUDIT_TABLE_TOP = "+---------------------+--------------------------------------+------------------+----------------+";
+    private static final String AUDIT_TABLE_HEADER = "| TIME                | EMAIL ADDRESS                        | ACTION           | DETAIL         |";
+    private static final String AUDIT_TABLE_SEP = "+---------------------+--------------------------------------+------------------+----------------+";
+    private static final String AUDIT_TABLE_BOTTOM = "+---------------------+--------------------------------------+------------------+----------------+";
+    private static final String TENANT_TABLE_TOP = "+------------------+--------------------------+----------------------------------------------+";
+    private static final String TENANT_TABLE_HEADER = "| TENANT           | DOMAIN                   | DEPARTMENTS                                  |";
+    private static final String TENANT_TABLE_SEP = "+------------------+--------------------------+----------------------------------------------+";
+    private static final String TENANT_TABLE_BOTTOM = "+------------------+--------------------------+----------------------------------------------+";
+
+    private static final DateTimeFormatter AUDIT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter STATE_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final String HIDDEN_PASSWORD = "(hidden)";
+
+    // Tables bypass System.out and are written in large chunks; accounts are fetched a page at a time
+    private static final TableRenderer TABLE = TableRenderer.forConsole();
+    private static final int RENDER_PAGE_SIZE = 1_000;
+
+    private static final Metrics.Timer PASSWORD_TABLE_TIMER = Metrics.timer("render_password_table");
+    private static final Metrics.Timer ACCOUNTS_TABLE_TIMER = Metrics.timer("render_accounts_table");
+    private static final Metrics.Timer SELECT_TABLE_TIMER = Metrics.timer("render_select_table");
+    private static final Metrics.Timer DEPARTMENT_TABLE_TIMER = Metrics.timer("render_department_table");
+
+    // Set while replaying a script: no screen clearing and no ENTER pauses
+    private static volatile boolean scripted;
+
+    public static void setScripted(boolean value) {
+        scripted = value;
+    }
 
     public static void clearScreen() {
+        if (scripted) {
+            return;
+        }
         try {
             if (System.getProperty("os.name").contains("Windows")) {
                 new ProcessBuilder("cmd", "/c", "cls").inheritIO().start().waitFor();
@@ -54,89 +97,268 @@ public class ConsoleUI {
         System.out.println("\n   [ERROR] " + message);
     }
 
+    // Padded by hand: printf parses its format string on every call, which shows up when scripts print thousands of fields
     public static void printField(String label, String value) {
-        System.out.printf("    %-22s: %s%n", label, value);
+        StringBuilder line = new StringBuilder(32 + String.valueOf(value).length()).append("    ").append(label);
+        for (int i = label.length(); i < 22; i++) {
+            line.append(' ');
+        }
+        System.out.println(line.append(": ").append(value));
     }
 
     public static void printField(String label, int value) {
-        System.out.printf("    %-22s: %d%n", label, value);
+        printField(label, Integer.toString(value));
     }
 
     /**
      * Prints password table with account information.
+     * Only passwords that have not been displayed yet are shown; stored passwords are hashes.
      */
-    public static void printPasswordTable(ArrayList<Email> accounts) {
-        System.out.println(PASSWORD_TABLE_TOP);
-        System.out.println(PASSWORD_TABLE_HEADER);
-        System.out.println(PASSWORD_TABLE_SEP);
-
-        for (int i = 0; i < accounts.size(); i++) {
-            Email email = accounts.get(i);
-            String name = email.getFirstName() + " " + email.getLastName();
-            System.out.printf("| %-3d | %-18s | %-36s | %-22s |%n",
-                    i + 1, 
-                    truncate(name, 18), 
-                    truncate(email.getEmailAddress(), 36),
-                    truncate(email.getPassword(), 22));
+    public static void printPasswordTable(AccountRegistry accounts) {
+        printPasswordTable(accounts, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Prints one page of the password table.
+     */
+    public static void printPasswordTable(AccountRegistry accounts, int offset, int limit) {
+        System.out.flush();
+        renderPasswordTable(TABLE, accounts, offset, limit);
+        TABLE.flush();
+    }
+
+    public static void renderPasswordTable(TableRenderer table, AccountRegistry accounts, int offset, int limit) {
+        long start = Metrics.start();
+        table.line(PASSWORD_TABLE_TOP).line(PASSWORD_TABLE_HEADER).line(PASSWORD_TABLE_SEP);
+
+        AccountCursor cursor = new AccountCursor(accounts, offset, end(offset, limit), RENDER_PAGE_SIZE);
+        while (cursor.hasNext()) {
+            int number = cursor.nextIndex() + 1;
+            Email email = cursor.next();
+            table.cell(number, 3)
+                 .cell(email.getFirstName(), email.getLastName(), 18)
+                 .cell(email.getEmailAddress(), 36)
+                 .cell(displayPassword(email), 22)
+                 .endRow();
         }
 
-        System.out.println(PASSWORD_TABLE_BOTTOM);
+        table.line(PASSWORD_TABLE_BOTTOM);
+        PASSWORD_TABLE_TIMER.stop(start);
     }
 
     /**
      * Prints detailed accounts table.
      */
-    public static void printAccountsTable(ArrayList<Email> accounts) {
-        System.out.println(ACCOUNTS_TABLE_TOP);
-        System.out.println(ACCOUNTS_TABLE_HEADER);
-        System.out.println(ACCOUNTS_TABLE_SEP);
-
-        for (int i = 0; i < accounts.size(); i++) {
-            Email acc = accounts.get(i);
-            String name = acc.getFirstName() + " " + acc.getLastName();
-            System.out.printf("| %-3d | %-18s | %-36s | %-10s | %-14d |%n",
-                    i + 1,
-                    truncate(name, 18),
-                    truncate(acc.getEmailAddress(), 36),
-                    truncate(acc.getDepartment(), 10),
-                    acc.getMailboxCapacity());
-
-            if (acc.getAlternateEmail() != null && !acc.getAlternateEmail().isEmpty()) {
-                System.out.printf("|     | %-18s | %-36s | %-10s | %-14s |%n",
-                        "Alt:", truncate(acc.getAlternateEmail(), 36), "", "");
+    public static void printAccountsTable(AccountRegistry accounts) {
+        printAccountsTable(accounts, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Prints one page of the accounts table.
+     */
+    public static void printAccountsTable(AccountRegistry accounts, int offset, int limit) {
+        System.out.flush();
+        renderAccountsTable(TABLE, accounts, offset, limit);
+        TABLE.flush();
+    }
+
+    public static void renderAccountsTable(TableRenderer table, AccountRegistry accounts, int offset, int limit) {
+        long start = Metrics.start();
+        table.line(ACCOUNTS_TABLE_TOP).line(ACCOUNTS_TABLE_HEADER).line(ACCOUNTS_TABLE_SEP);
+        QuotaEngine quotas = accounts.getQuotas();
+
+        AccountCursor cursor = new AccountCursor(accounts, offset, end(offset, limit), RENDER_PAGE_SIZE);
+        while (cursor.hasNext()) {
+            int number = cursor.nextIndex() + 1;
+            Email acc = cursor.next();
+            table.cell(number, 3)
+                 .cell(acc.getFirstName(), acc.getLastName(), 18)
+                 .cell(acc.getEmailAddress(), 36)
+                 .cell(acc.getDepartment(), 10)
+                 .cell(quotas.getUsed(acc) + "/" + quotas.getAllocated(acc), 14)
+                 .endRow();
+
+            String alternate = acc.getAlternateEmail();
+            if (alternate != null && !alternate.isEmpty()) {
+                table.cell("", 3)
+                     .cell("Alt:", 18)
+                     .cell(alternate, 36)
+                     .cell("", 10)
+                     .cell("", 14)
+                     .endRow();
+            }
+            AccountState state = acc.getState();
+            if (state != AccountState.ACTIVE) {
+                String since = STATE_DATE.format(Instant.ofEpochMilli(acc.getLastChangedMillis()).atZone(ZoneId.systemDefault()));
+                table.cell("", 3)
+                     .cell("State:", 18)
+                     .cell(state + " since " + since, 36)
+                     .cell("", 10)
+                     .cell("", 14)
+                     .endRow();
             }
         }
 
-        System.out.println(ACCOUNTS_TABLE_BOTTOM);
+        table.line(ACCOUNTS_TABLE_BOTTOM);
+        ACCOUNTS_TABLE_TIMER.stop(start);
+    }
+
+    /**
+     * Prints selection table.
+     */
+    public static void printSelectTable(AccountRegistry accounts) {
+        printSelectTable(accounts, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Prints one page of the selection table.
+     */
+    public static void printSelectTable(AccountRegistry accounts, int offset, int limit) {
+        System.out.flush();
+        renderSelectTable(TABLE, accounts, offset, limit);
+        TABLE.flush();
+    }
+
+    public static void renderSelectTable(TableRenderer table, AccountRegistry accounts, int offset, int limit) {
+        long start = Metrics.start();
+        table.line(SELECT_TABLE_TOP).line(SELECT_TABLE_HEADER).line(SELECT_TABLE_SEP);
+
+        AccountCursor cursor = new AccountCursor(accounts, offset, end(offset, limit), RENDER_PAGE_SIZE);
+        while (cursor.hasNext()) {
+            int number = cursor.nextIndex() + 1;
+            selectRow(table, number, cursor.next());
+        }
+
+        table.line(SELECT_TABLE_BOTTOM);
+        SELECT_TABLE_TIMER.stop(start);
+    }
+
+    /**
+     * Prints search results as a selection table numbered from 1.
+     */
+    public static void printSelectTable(List<Email> matches) {
+        System.out.flush();
+        long start = Metrics.start();
+        TABLE.line(SELECT_TABLE_TOP).line(SELECT_TABLE_HEADER).line(SELECT_TABLE_SEP);
+        for (int i = 0; i < matches.size(); i++) {
+            selectRow(TABLE, i + 1, matches.get(i));
+        }
+        TABLE.line(SELECT_TABLE_BOTTOM);
+        SELECT_TABLE_TIMER.stop(start);
+        TABLE.flush();
+    }
+
+    private static void selectRow(TableRenderer table, int number, Email email) {
+        table.cell(number, 3)
+             .cell(email.getFirstName(), email.getLastName(), 18)
+             .cell(email.getEmailAddress(), 36)
+             .cell(email.getDepartment(), 10)
+             .endRow();
     }
 
     /**
-     * Prints selection table with passwords.
+     * Prints per-department totals under the registry's department labels.
      */
-    public static void printSelectTable(ArrayList<Email> accounts) {
-        System.out.println(SELECT_TABLE_TOP);
-        System.out.println(SELECT_TABLE_HEADER);
-        System.out.println(SELECT_TABLE_SEP);
-
-        for (int i = 0; i < accounts.size(); i++) {
-            Email email = accounts.get(i);
-            String name = email.getFirstName() + " " + email.getLastName();
-            System.out.printf("| %-3d | %-18s | %-36s | %-22s |%n",
-                    i + 1,
-                    truncate(name, 18),
-                    truncate(email.getEmailAddress(), 36),
-                    truncate(email.getPassword(), 22));
+    public static void printDepartmentTable(AccountRegistry registry) {
+        System.out.flush();
+        renderDepartmentTable(TABLE, registry);
+        TABLE.flush();
+    }
+
+    public static void renderDepartmentTable(TableRenderer table, AccountRegistry registry) {
+        DepartmentStats stats = registry.getDepartmentStats();
+        long start = Metrics.start();
+        table.line(DEPARTMENT_TABLE_TOP).line(DEPARTMENT_TABLE_HEADER).line(DEPARTMENT_TABLE_SEP);
+
+        for (DepartmentStats.Counters counters : stats.all()) {
+            long accounts = counters.getAccounts();
+            if (accounts == 0) {
+                continue;
+            }
+            long capacity = counters.getAllocatedCapacity();
+            table.cell(registry.label(counters.getDepartment()), 12)
+                 .cell(accounts, 10)
+                 .cell(capacity, 15)
+                 .cell(capacity / accounts, 15)
+                 .cell(counters.getWithAlternateEmail(), 15)
+                 .endRow();
         }
 
-        System.out.println(SELECT_TABLE_BOTTOM);
+        table.line(DEPARTMENT_TABLE_BOTTOM);
+        DEPARTMENT_TABLE_TIMER.stop(start);
     }
 
-    private static String truncate(String str, int maxLength) {
-        if (str == null) return "";
-        if (str.length() <= maxLength) {
-            return str;
+    /**
+     * Prints how many accounts are full or near their mailbox capacity.
+     */
+    public static void printQuotaAlerts(QuotaEngine quotas) {
+        printField("Over Quota", quotas.overQuotaCount());
+        printField("Near Quota (" + quotas.getNearPercent() + "%+)", quotas.nearQuotaCount());
+    }
+
+    /**
+     * Prints audit events, oldest first, in local time.
+     */
+    public static void printAuditTable(List<AuditLog.Event> events, AccountRegistry accounts) {
+        System.out.flush();
+        TABLE.line(AUDIT_TABLE_TOP).line(AUDIT_TABLE_HEADER).line(AUDIT_TABLE_SEP);
+        ZoneId zone = ZoneId.systemDefault();
+        Map<Long, Email> byKey = AuditLog.accountsFor(events, accounts);
+        for (AuditLog.Event event : events) {
+            TABLE.cell(AUDIT_TIME.format(Instant.ofEpochMilli(event.getTimeMillis()).atZone(zone)), 19)
+                 .cell(auditAccount(byKey, event.getAccountKey()), 36)
+                 .cell(event.getAction().name(), 16)
+                 .cell(auditDetail(event), 14)
+                 .endRow();
+        }
+        TABLE.line(AUDIT_TABLE_BOTTOM);
+        TABLE.flush();
+    }
+
+    /**
+     * Prints every tenant with its domain and department codes.
+     */
+    public static void printTenantTable(List<Tenant> tenants) {
+        System.out.flush();
+        TABLE.line(TENANT_TABLE_TOP).line(TENANT_TABLE_HEADER).line(TENANT_TABLE_SEP);
+        for (Tenant tenant : tenants) {
+            StringBuilder departments = new StringBuilder();
+            for (Department department : tenant.getDepartments()) {
+                if (department != Department.NONE) {
+                    departments.append((departments.length() == 0) ? "" : ", ").append(department.getCode());
+                }
+            }
+            TABLE.cell(tenant.getId(), 16)
+                 .cell(tenant.getDomain(), 24)
+                 .cell(departments.toString(), 44)
+                 .endRow();
         }
-        return str.substring(0, maxLength - 3) + "---";
+        TABLE.line(TENANT_TABLE_BOTTOM);
+        TABLE.flush();
+    }
+
+    private static String auditAccount(Map<Long, Email> byKey, long key) {
+        Email account = byKey.get(key);
+        return (account == null) ? String.format("#%016x", key) : account.getEmailAddress();
+    }
+
+    private static String auditDetail(AuditLog.Event event) {
+        return switch (event.getAction()) {
+            case CREATED -> event.getCurrent() + " MB";
+            case CAPACITY_CHANGED -> event.getPrevious() + " -> " + event.getCurrent() + " MB";
+            case ALTERNATE_CHANGED -> (event.getCurrent() == 0) ? "cleared" : (event.getPrevious() == 0) ? "set" : "changed";
+            case STATE_CHANGED -> "now " + AccountState.values()[event.getCurrent()].name().toLowerCase(Locale.ROOT);
+            default -> "";
+        };
+    }
+
+    private static int end(int offset, int limit) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+    }
+
+    private static String displayPassword(Email account) {
+        String pending = account.getOneTimePassword();
+        return (pending == null) ? HIDDEN_PASSWORD : pending;
     }
 
     public static void printSeparator() {
@@ -144,6 +366,9 @@ public class ConsoleUI {
     }
 
     public static void pauseForInput() {
+        if (scripted) {
+            return;
+        }
         System.out.print("\n  Press ENTER to continue---");
     }
 
@@ -155,6 +380,30 @@ public class ConsoleUI {
         }
     }
 
+    public static void printPagedPrompt(int max, boolean hasMorePages) {
+        if (hasMorePages) {
+            System.out.print("  Enter choice (0 to cancel, 1-" + max + "), or ENTER for next page: ");
+        } else {
+            System.out.print("  Enter choice (0 to cancel, 1-" + max + "): ");
+        }
+    }
+
+    public static void printPageFooter(int page, int pages) {
+        System.out.print("\n  Page " + page + " of " + pages + " - press ENTER for more, Q to stop: ");
+    }
+
+    /**
+     * Rewrites the current line with a running count and rate; call printProgressDone() afterwards.
+     */
+    public static void printProgress(String label, long done, double perSecond) {
+        System.out.printf("\r  %s: %,d (%,.0f/s)   ", label, done, perSecond);
+        System.out.flush();
+    }
+
+    public static void printProgressDone() {
+        System.out.println();
+    }
+
     public static void printPrompt(String prompt) {
         System.out.print("  " + prompt);
     }
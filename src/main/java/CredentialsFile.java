@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Files of generated plaintext passwords. Rows go to output.tmp, created owner-only, which
+ * publish() moves into place and makes read-only; an existing output is never overwritten.
+ */
+final class CredentialsFile {
+
+    private CredentialsFile() {
+    }
+
+    /**
+     * Creates the owner-only temporary file for output, which must not already exist.
+     */
+    static Path createTemp(Path output) throws IOException {
+        if (Files.exists(output)) {
+            throw new FileAlreadyExistsException(output.toString(), null, "Output file already exists");
+        }
+        Path tmp = output.resolveSibling(output.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        if (supportsPosix(tmp)) {
+            return Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        return Files.createFile(tmp);
+    }
+
+    /**
+     * Moves a synced temporary file into place and makes it read-only.
+     */
+    static void publish(Path tmp, Path output) throws IOException {
+        Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE);
+        if (supportsPosix(output)) {
+            Files.setPosixFilePermissions(output, PosixFilePermissions.fromString("r--------"));
+        } else {
+            output.toFile().setWritable(false);
+        }
+    }
+
+    private static boolean supportsPosix(Path path) {
+        Path dir = path.toAbsolutePath().getParent();
+        return dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
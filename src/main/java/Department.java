@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical department instance. There is exactly one Department per code, so instances
+ * can be compared with == and used as cheap map keys. Display strings are computed once.
+ */
+public final class Department {
+
+    private static final ConcurrentHashMap<String, Department> BY_CODE = new ConcurrentHashMap<>();
+    private static final List<Department> STANDARD = new ArrayList<>();
+    private static int nextOrdinal;
+
+    public static final Department SALES = standard("sales", "Sales");
+    public static final Department DEV = standard("dev", "Development");
+    public static final Department ACCT = standard("acct", "Accounting");
+    public static final Department NONE = standard("none", "None");
+
+    private final String code;
+    private final String displayName;
+    private final String label;
+    private final int ordinal;
+
+    private Department(String code, String label, int ordinal) {
+        this.code = code;
+        this.label = label;
+        this.ordinal = ordinal;
+        this.displayName = "none".equals(code)
+                ? "None"
+                : code.substring(0, 1).toUpperCase(Locale.ROOT) + code.substring(1);
+    }
+
+    private static Department standard(String code, String label) {
+        Department department = new Department(code, label, nextOrdinal++);
+        BY_CODE.put(code, department);
+        STANDARD.add(department);
+        return department;
+    }
+
+    /**
+     * Returns the canonical department for a code, registering it on first use.
+     * A null or blank code means no department.
+     */
+    public static Department of(String code) {
+        if (code == null || code.isBlank()) {
+            return NONE;
+        }
+        String key = code.trim().toLowerCase(Locale.ROOT);
+        Department existing = BY_CODE.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (BY_CODE) {
+            Department department = BY_CODE.get(key);
+            if (department == null) {
+                department = new Department(key, key, nextOrdinal++);
+                BY_CODE.put(key, department);
+            }
+            return department;
+        }
+    }
+
+    /**
+     * Matches a known department by code or label, ignoring case (e.g. "dev" or "Development").
+     * Blank input means no department.
+     */
+    public static Department parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        String key = value.trim();
+        for (Department department : BY_CODE.values()) {
+            if (department.code.equalsIgnoreCase(key) || department.label.equalsIgnoreCase(key)) {
+                return department;
+            }
+        }
+        throw new IllegalArgumentException("Unknown department: " + value);
+    }
+
+    /**
+     * Departments offered in menus, in menu order.
+     */
+    public static List<Department> standardDepartments() {
+        return Collections.unmodifiableList(STANDARD);
+    }
+
+    /**
+     * The given departments with their own labels, in the same order.
+     */
+    public static Map<Department, String> labelled(List<Department> departments) {
+        Map<Department, String> labels = new LinkedHashMap<>();
+        for (Department department : departments) {
+            labels.put(department, department.label);
+        }
+        return labels;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Short name used in tables ("Dev", "Sales", ...).
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Full name used in menus ("Development", "Accounting", ...); the code for departments
+     * outside the standard set. Tenants label their departments through AccountRegistry.label().
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Dense number assigned in registration order, usable as an array index.
+     */
+    public int ordinal() {
+        return ordinal;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
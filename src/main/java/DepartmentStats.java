@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live per-department totals, updated from account events so reports never scan accounts.
+ */
+public class DepartmentStats implements AccountListener {
+
+    /**
+     * Counters for one department.
+     */
+    public static class Counters {
+        private final Department department;
+        private final LongAdder accounts = new LongAdder();
+        private final LongAdder allocatedCapacity = new LongAdder();
+        private final LongAdder withAlternateEmail = new LongAdder();
+
+        private Counters(Department department) {
+            this.department = department;
+        }
+
+        public Department getDepartment() {
+            return department;
+        }
+
+        public long getAccounts() {
+            return accounts.sum();
+        }
+
+        /**
+         * Sum of mailbox capacities, in MB.
+         */
+        public long getAllocatedCapacity() {
+            return allocatedCapacity.sum();
+        }
+
+        public long getWithAlternateEmail() {
+            return withAlternateEmail.sum();
+        }
+    }
+
+    private final ConcurrentHashMap<Department, Counters> counters = new ConcurrentHashMap<>();
+
+    public Counters get(Department department) {
+        return counters.computeIfAbsent(department, Counters::new);
+    }
+
+    /**
+     * Counters for every department that has had an account, in department order.
+     */
+    public List<Counters> all() {
+        List<Counters> result = new ArrayList<>(counters.values());
+        result.sort(Comparator.comparingInt(c -> c.department.ordinal()));
+        return result;
+    }
+
+    @Override
+    public void onCreated(Email account) {
+        Counters c = get(account.getDepartmentInfo());
+        c.accounts.increment();
+        c.allocatedCapacity.add(account.getMailboxCapacity());
+        if (account.getAlternateEmail() != null) {
+            c.withAlternateEmail.increment();
+        }
+    }
+
+    @Override
+    public void onMailboxCapacityChanged(Email account, int previousCapacity) {
+        get(account.getDepartmentInfo()).allocatedCapacity.add(account.getMailboxCapacity() - previousCapacity);
+    }
+
+    @Override
+    public void onAlternateEmailChanged(Email account, String previousAlternateEmail) {
+        boolean had = previousAlternateEmail != null;
+        boolean has = account.getAlternateEmail() != null;
+        if (had != has) {
+            get(account.getDepartmentInfo()).withAlternateEmail.add(has ? 1 : -1);
+        }
+    }
+}
@@ -1,129 +1,296 @@
-import java.security.SecureRandom;
-import java.time.Year;
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 /**
  * Represents an email account with password management and mailbox configuration.
+ *
+ * Kept small for directories of millions of accounts: names are pooled instances shared by
+ * every account with the same name, the department is a shared Department, the password
+ * hash is held packed (see PackedHash) and capacity and timestamps are primitives.
  */
 public class Email {
 
     private final String firstName;
     private final String lastName;
-    private final String department;
+    private final Department department;
     private final String emailAddress;
 
-    private String password;
-    private int mailboxCapacity;
-    private String alternateEmail;
+    // Mutable state; writes go through AccountRegistry's per-account locks
+    private volatile byte[] passwordHash;
+    private volatile String oneTimePassword;
+    private volatile int mailboxCapacity;
+    private volatile String alternateEmail;
+    private volatile AccountState state = AccountState.ACTIVE;
+
+    // Epoch millis; lastChanged covers every change, including the state
+    private final long createdMillis;
+    private volatile long passwordChangedMillis;
+    private volatile long lastChangedMillis;
+
+    private volatile AccountListener listener;
+    private volatile int accountId = -1;
 
     // Constants
     public static final int DEFAULT_CAPACITY = 500;
     public static final int MAX_CAPACITY = 50_000;
     private static final int MIN_PASSWORD_LENGTH = 12;
-    private static final String DOMAIN = "company-com";
-
-    // Password generation components
-    private static final String[] ADJECTIVES = {
-        "Blue", "Green", "Silver", "Golden", "Crimson",
-        "Purple", "Azure", "Amber", "Emerald", "Ivory",
-        "Scarlet", "Violet", "Copper", "Bronze", "Pearl",
-        "Ruby", "Jade", "Topaz", "Coral", "Platinum"
-    };
-
-    private static final String[] NOUNS = {
-        "Sky", "Ocean", "Forest", "River", "Moon",
-        "Star", "Cloud", "Fire", "Stone", "Leaf",
-        "Wind", "Rain", "Snow", "Sun", "Wave",
-        "Mountain", "Valley", "Lake", "Desert", "Meadow"
-    };
 
-    private static final char[] SPECIAL_CHARS = {'@', '#', '$', '&', '!', '*', '%', '+', '='};
+    private static volatile PasswordHasher hasher = Pbkdf2PasswordHasher.fromSystemProperties();
 
-    private static final SecureRandom RANDOM = new SecureRandom();
-
-    private static final Pattern EMAIL_PATTERN =
-            Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+    private static final Metrics.Timer CREATE_TIMER = Metrics.timer("email_create");
+    private static final Metrics.Timer VERIFY_TIMER = Metrics.timer("verify_password");
+    private static final Metrics.Timer CHANGE_TIMER = Metrics.timer("change_password");
+    private static final Metrics.Timer RESET_TIMER = Metrics.timer("reset_password");
+    private static final Metrics.Counter VERIFY_FAILURES = Metrics.counter("verify_password_failed");
 
     /**
-     * Constructs an Email account.
+     * Constructs an Email account with the plain address for its name, whether or not it is taken.
      */
     public Email(String firstName, String lastName, String department) {
+        this(firstName, lastName, department, null);
+    }
+
+    /**
+     * Constructs an Email account with an address reserved from the allocator.
+     */
+    public Email(String firstName, String lastName, String department, AddressAllocator addresses) {
+        long start = Metrics.start();
+        this.createdMillis = System.currentTimeMillis();
         this.firstName = validateName(firstName, "First Name");
         this.lastName = validateName(lastName, "Last Name");
-        this.department = normalizeDepartment(department);
+        this.department = Department.of(department);
 
-        this.emailAddress = generateEmail();
-        this.password = generatePassword();
+        this.emailAddress = (addresses == null)
+                ? AddressAllocator.baseAddress(this.firstName, this.lastName, this.department)
+                : addresses.allocate(this.firstName, this.lastName, this.department);
+        issueGeneratedPassword();
         this.mailboxCapacity = DEFAULT_CAPACITY;
+        CREATE_TIMER.stop(start);
     }
 
-    private String validateName(String value, String field) {
-        if (value == null || value.trim().isEmpty()) {
-            throw new IllegalArgumentException(field + " cannot be empty");
-        }
-        return value.trim();
+    // Rebuilds a stored account without generating a new address or password
+    private Email(String firstName, String lastName, String department, String emailAddress,
+                  String passwordHash, int mailboxCapacity, String alternateEmail,
+                  AccountState state, long createdMillis, long passwordChangedMillis, long lastChangedMillis) {
+        this.firstName = validateName(firstName, "First Name");
+        this.lastName = validateName(lastName, "Last Name");
+        this.department = Department.of(department);
+        this.emailAddress = Objects.requireNonNull(emailAddress);
+        this.passwordHash = PackedHash.pack(passwordHash);
+        this.mailboxCapacity = mailboxCapacity;
+        this.alternateEmail = alternateEmail;
+        this.state = Objects.requireNonNull(state);
+        this.createdMillis = createdMillis;
+        this.passwordChangedMillis = passwordChangedMillis;
+        this.lastChangedMillis = lastChangedMillis;
     }
 
-    private String normalizeDepartment(String department) {
-        return (department == null) ? "none" : department.toLowerCase();
+    /**
+     * Recreates an active account from persisted state that has no timestamps; they are set
+     * to now, so a password of unknown age gets a full maximum age from the upgrade.
+     */
+    public static Email restore(String firstName, String lastName, String departmentCode, String emailAddress,
+                                String passwordHash, int mailboxCapacity, String alternateEmail) {
+        long now = System.currentTimeMillis();
+        return restore(firstName, lastName, departmentCode, emailAddress, passwordHash, mailboxCapacity,
+                alternateEmail, AccountState.ACTIVE, now, now, now);
     }
 
     /**
-     * Generates email address.
+     * Recreates an account from persisted state, including its lifecycle state and timestamps.
      */
-    private String generateEmail() {
-        String base = firstName.toLowerCase() + "-" + lastName.toLowerCase();
-        if ("none".equals(department)) {
-            return base + "@" + DOMAIN;
+    public static Email restore(String firstName, String lastName, String departmentCode, String emailAddress,
+                                String passwordHash, int mailboxCapacity, String alternateEmail,
+                                AccountState state, long createdMillis, long passwordChangedMillis,
+                                long lastChangedMillis) {
+        return new Email(firstName, lastName, departmentCode, emailAddress, passwordHash, mailboxCapacity,
+                alternateEmail, state, createdMillis, passwordChangedMillis, lastChangedMillis);
+    }
+
+    private String validateName(String value, String field) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " cannot be empty");
         }
-        return base + "@" + department + "-" + DOMAIN;
+        return StringPool.names().canonical(value.trim());
     }
 
     /**
      * Generates unique password.
      */
     private String generatePassword() {
-        String adjective = ADJECTIVES[RANDOM.nextInt(ADJECTIVES.length)];
-        String noun = NOUNS[RANDOM.nextInt(NOUNS.length)];
-        char symbol = SPECIAL_CHARS[RANDOM.nextInt(SPECIAL_CHARS.length)];
-        int year = Year.now().getValue();
-        int randomDigits = RANDOM.nextInt(100);
-        
-        return String.format("%s%s%c%d-%02d", adjective, noun, symbol, year, randomDigits);
+        return PasswordGenerator.shared().generate();
+    }
+
+    /**
+     * Replaces the hashing strategy used for passwords set from now on.
+     */
+    public static void setPasswordHasher(PasswordHasher passwordHasher) {
+        hasher = Objects.requireNonNull(passwordHasher);
     }
 
+    private void issueGeneratedPassword() {
+        String generated = generatePassword();
+        this.passwordHash = PackedHash.pack(hasher.hash(generated));
+        this.oneTimePassword = generated;
+        this.passwordChangedMillis = System.currentTimeMillis();
+        this.lastChangedMillis = passwordChangedMillis;
+    }
+
+    /**
+     * False for a wrong password, and for any account that is not ACTIVE.
+     */
     public boolean verifyPassword(String input) {
-        return input != null && input.equals(password);
+        long start = Metrics.start();
+        boolean verified = input != null && state == AccountState.ACTIVE
+                && hasher.verify(input, PackedHash.unpack(passwordHash));
+        VERIFY_TIMER.stop(start);
+        if (!verified) {
+            VERIFY_FAILURES.increment();
+        }
+        return verified;
     }
 
+    /**
+     * Sets a new password; a LOCKED account becomes ACTIVE again.
+     */
     public void changePassword(String newPassword) {
+        requireNotDeleted();
         if (newPassword == null || newPassword.length() < MIN_PASSWORD_LENGTH) {
             throw new IllegalArgumentException(
                 "Password must be at least " + MIN_PASSWORD_LENGTH + " characters"
             );
         }
-        this.password = newPassword;
+        long start = Metrics.start();
+        this.passwordHash = PackedHash.pack(hasher.hash(newPassword));
+        this.oneTimePassword = null;
+        this.passwordChangedMillis = System.currentTimeMillis();
+        this.lastChangedMillis = passwordChangedMillis;
+        CHANGE_TIMER.stop(start);
+
+        AccountListener l = listener;
+        if (l != null) l.onPasswordChanged(this);
+        unlock();
     }
 
-    public void resetPassword() {
-        this.password = generatePassword();
+    /**
+     * Replaces the password with a generated one and returns it.
+     * It also stays available through getOneTimePassword until displayed.
+     * A LOCKED account becomes ACTIVE again.
+     */
+    public String resetPassword() {
+        requireNotDeleted();
+        long start = Metrics.start();
+        issueGeneratedPassword();
+        String generated = oneTimePassword;
+        RESET_TIMER.stop(start);
+
+        AccountListener l = listener;
+        if (l != null) l.onPasswordReset(this);
+        unlock();
+        return generated;
     }
 
-    public void setAlternateEmail(String email) {
-        if (email != null && !email.isBlank() && !EMAIL_PATTERN.matcher(email).matches()) {
-            throw new IllegalArgumentException("Invalid email format");
+    // A new password clears a lock for password age
+    private void unlock() {
+        if (state == AccountState.LOCKED) {
+            setState(AccountState.ACTIVE);
         }
-        this.alternateEmail = (email == null || email.isBlank()) ? null : email;
+    }
+
+    /**
+     * Moves the account to another lifecycle state. A DELETED account cannot leave that state.
+     */
+    public void setState(AccountState newState) {
+        Objects.requireNonNull(newState);
+        AccountState previous = state;
+        if (previous == newState) {
+            return;
+        }
+        requireNotDeleted();
+        this.state = newState;
+        this.lastChangedMillis = System.currentTimeMillis();
+
+        AccountListener l = listener;
+        if (l != null) l.onStateChanged(this, previous);
+    }
+
+    private void requireNotDeleted() {
+        if (state == AccountState.DELETED) {
+            throw new IllegalArgumentException("Account is deleted: " + emailAddress);
+        }
+    }
+
+    /**
+     * Sets or (with null or blank) clears the alternate address, stored with its domain in lower case.
+     */
+    public void setAlternateEmail(String email) {
+        requireNotDeleted();
+        String normalized = (email == null || email.isBlank()) ? null : AddressValidator.shared().normalize(email);
+        String previous = alternateEmail;
+        this.alternateEmail = normalized;
+        this.lastChangedMillis = System.currentTimeMillis();
+
+        AccountListener l = listener;
+        if (l != null) l.onAlternateEmailChanged(this, previous);
     }
 
     public void setMailboxCapacity(int capacity) {
+        requireNotDeleted();
         if (capacity < 1 || capacity > MAX_CAPACITY) {
             throw new IllegalArgumentException(
                 "Capacity must be between 1 and " + MAX_CAPACITY + " MB"
             );
         }
+        int previous = mailboxCapacity;
         this.mailboxCapacity = capacity;
+        this.lastChangedMillis = System.currentTimeMillis();
+
+        AccountListener l = listener;
+        if (l != null) l.onMailboxCapacityChanged(this, previous);
+    }
+
+    /**
+     * Overwrites mutable state during recovery. Capacity and alternate email changes are
+     * still reported so aggregates stay correct; the journal only subscribes after recovery.
+     */
+    void restoreState(String passwordHash, int mailboxCapacity, String alternateEmail) {
+        int previousCapacity = this.mailboxCapacity;
+        String previousAlternate = this.alternateEmail;
+        this.passwordHash = PackedHash.pack(passwordHash);
+        this.mailboxCapacity = mailboxCapacity;
+        this.alternateEmail = alternateEmail;
+
+        AccountListener l = listener;
+        if (l != null) {
+            if (previousCapacity != mailboxCapacity) l.onMailboxCapacityChanged(this, previousCapacity);
+            if (!Objects.equals(previousAlternate, alternateEmail)) l.onAlternateEmailChanged(this, previousAlternate);
+        }
+    }
+
+    /**
+     * Overwrites the lifecycle state and timestamps during recovery, without notifying listeners.
+     */
+    void restoreLifecycle(AccountState state, long passwordChangedMillis, long lastChangedMillis) {
+        this.state = Objects.requireNonNull(state);
+        this.passwordChangedMillis = passwordChangedMillis;
+        this.lastChangedMillis = lastChangedMillis;
+    }
+
+    /**
+     * Dense position assigned by AccountRegistry on insert; -1 until then.
+     */
+    public int getAccountId() {
+        return accountId;
+    }
+
+    void assignId(int id) {
+        this.accountId = id;
+    }
+
+    /**
+     * Routes change notifications for this account; set by AccountRegistry on insert.
+     */
+    void setListener(AccountListener listener) {
+        this.listener = listener;
     }
 
     // Getters
@@ -139,8 +306,23 @@ public class Email {
         return emailAddress;
     }
 
-    public String getPassword() {
-        return password;
+    /**
+     * Returns the generated password from creation or the last reset, until it is cleared.
+     * Only the hash is kept after that.
+     */
+    public String getOneTimePassword() {
+        return oneTimePassword;
+    }
+
+    public void clearOneTimePassword() {
+        this.oneTimePassword = null;
+    }
+
+    /**
+     * The encoded hash, rebuilt from its packed form on each call.
+     */
+    public String getPasswordHash() {
+        return PackedHash.unpack(passwordHash);
     }
 
     public int getMailboxCapacity() {
@@ -151,11 +333,41 @@ public class Email {
         return alternateEmail;
     }
 
+    public AccountState getState() {
+        return state;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public long getPasswordChangedMillis() {
+        return passwordChangedMillis;
+    }
+
+    /**
+     * When the password, capacity, alternate address or state last changed.
+     */
+    public long getLastChangedMillis() {
+        return lastChangedMillis;
+    }
+
+    /**
+     * Returns the internal department code ("sales", "dev", "acct" or "none").
+     */
+    public String getDepartmentCode() {
+        return department.getCode();
+    }
+
     public String getDepartment() {
-        if ("none".equals(department)) {
-            return "None";
-        }
-        return department.substring(0, 1).toUpperCase() + department.substring(1);
+        return department.getDisplayName();
+    }
+
+    /**
+     * Returns the canonical department instance.
+     */
+    public Department getDepartmentInfo() {
+        return department;
     }
 
     @Override
@@ -1,36 +1,475 @@
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import javax.management.JMException;
 
 public class EmailApp {
 
     private static final String ADMIN_KEY = "admin123";
+    private static final byte[] ADMIN_KEY_BYTES = ADMIN_KEY.getBytes(StandardCharsets.UTF_8);
     private static final int MAX_CAPACITY = 50_000;
+    private static final int PAGE_SIZE = 20;
 
-    private static ArrayList<Email> emailAccounts;
-    private static Scanner scanner;
+    private static TenantDirectory tenants;
+    private static Tenant tenant;
+    private static AccountRegistry registry;
+    private static AccountJournal journal;
+    private static AuditLog audit;
+    private static MetricsExporter metrics;
+    private static CommandInput input;
 
     public static void main(String[] args) {
-        scanner = new Scanner(System.in);
+        String tenantId = TenantDirectory.DEFAULT_ID;
+        if (args.length > 1 && "--tenant".equals(args[0])) {
+            tenantId = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
         try {
-            emailAccounts = initializeAccounts();
-            displayWelcome();
-            runMainMenu();
+            tenants = TenantDirectory.open(AccountJournal.defaultDirectory());
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not read tenant catalog: " + e.getMessage());
+            return;
+        }
+        // Tenant administration never loads account data
+        if (args.length > 0 && "--tenants".equals(args[0])) {
+            listTenants();
+            return;
+        }
+        if (args.length > 0 && "--add-tenant".equals(args[0])) {
+            addTenant(args);
+            return;
+        }
+
+        if (Metrics.ENABLED) {
+            try {
+                metrics = MetricsExporter.start();
+            } catch (JMException e) {
+                ConsoleUI.printError("Could not register metrics MBean: " + e.getMessage());
+            }
+        }
+        try {
+            registry = initializeAccounts(tenantId);
+        } catch (IllegalArgumentException e) {
+            ConsoleUI.printError(e.getMessage());
+            closeStorage();
+            return;
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not load account storage: " + e.getMessage());
+            closeStorage();
+            return;
+        }
+
+        try {
+            if (args.length > 0 && "--import".equals(args[0])) {
+                runImport(args);
+                return;
+            }
+            if (args.length > 0 && "--serve".equals(args[0])) {
+                runServer(args);
+                return;
+            }
+            if (args.length > 0 && "--http".equals(args[0])) {
+                runHttpApi(args);
+                return;
+            }
+            if (args.length > 0 && "--reset-passwords".equals(args[0])) {
+                runBulkReset(args);
+                return;
+            }
+            if (args.length > 0 && "--audit".equals(args[0])) {
+                runAuditQuery(args);
+                return;
+            }
+            if (args.length > 0 && "--set-state".equals(args[0])) {
+                runSetState(args);
+                return;
+            }
+            if (args.length > 0 && "--sweep".equals(args[0])) {
+                runSweep();
+                return;
+            }
+            if (args.length > 0 && "--script".equals(args[0])) {
+                runScript(args);
+                return;
+            }
+
+            input = CommandInput.console();
+            try {
+                displayWelcome();
+                runMainMenu();
+            } finally {
+                input.close();
+            }
         } finally {
-            scanner.close();
+            closeStorage();
         }
     }
 
-    private static ArrayList<Email> initializeAccounts() {
-        ArrayList<Email> accounts = new ArrayList<>();
-        accounts.add(new Email("Rose", "Taylor", "dev"));
-        accounts.add(new Email("Ryan", "Smith", "sales"));
-        accounts.add(new Email("Thomas", "Brown", "acct"));
-        accounts.add(new Email("Olivia", "Jones", "sales"));
-        accounts.add(new Email("Michael", "Anderson", "dev"));
-        accounts.add(new Email("Jennifer", "Davis", "acct"));
+    /**
+     * Recovers the tenant's saved accounts; seeds the test accounts on the default tenant's first launch.
+     */
+    private static AccountRegistry initializeAccounts(String tenantId) throws IOException {
+        tenant = tenants.get(tenantId);
+        AccountRegistry accounts = tenant.accounts();
+        journal = tenant.journal();
+        audit = tenant.audit();
+
+        if (accounts.isEmpty() && tenant == tenants.getDefault()) {
+            accounts.create("Rose", "Taylor", "dev");
+            accounts.create("Ryan", "Smith", "sales");
+            accounts.create("Thomas", "Brown", "acct");
+            accounts.create("Olivia", "Jones", "sales");
+            accounts.create("Michael", "Anderson", "dev");
+            accounts.create("Jennifer", "Davis", "acct");
+        }
         return accounts;
     }
 
+    private static void closeStorage() {
+        if (metrics != null) {
+            metrics.close();
+        }
+        try {
+            tenants.close();
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not save account storage: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Batch mode: --tenants
+     */
+    private static void listTenants() {
+        ConsoleUI.printTitle("TENANTS (" + tenants.size() + ")");
+        ConsoleUI.printTenantTable(tenants.all());
+    }
+
+    /**
+     * Batch mode: --add-tenant <id> <domain> [code:Label,code:Label,...]
+     */
+    private static void addTenant(String[] args) {
+        String usage = "Usage: java EmailApp --add-tenant <id> <domain> [code:Label,code:Label,...]";
+        if (args.length < 3 || args.length > 4) {
+            ConsoleUI.printError(usage);
+            return;
+        }
+
+        List<String> departments = (args.length == 4) ? List.of(args[3].split(",")) : List.of();
+        try {
+            Tenant added = tenants.add(args[1], args[2], departments);
+            ConsoleUI.printSuccess("Tenant added");
+            ConsoleUI.printField("Tenant", added.getId());
+            ConsoleUI.printField("Domain", added.getDomain());
+            ConsoleUI.printField("Data Directory", added.getDirectory().toString());
+            ConsoleUI.printField("Example Address", AddressAllocator.baseAddress("Mary", "Smith",
+                    added.getDepartments().get(0), added.getDomain()));
+        } catch (IllegalArgumentException e) {
+            ConsoleUI.printError(e.getMessage() + "\n  " + usage);
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not save tenant catalog: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Batch mode: --import <hires.csv> <credentials.csv>
+     */
+    private static void runImport(String[] args) {
+        if (args.length != 3) {
+            ConsoleUI.printError("Usage: java EmailApp --import <hires.csv> <credentials.csv>");
+            return;
+        }
+
+        ConsoleUI.printTitle("BULK ACCOUNT IMPORT");
+
+        PasswordGenerator.shared().enablePool(4_096);
+        try {
+            BulkProvisioner.Result result = new BulkProvisioner(registry)
+                    .provision(Path.of(args[1]), Path.of(args[2]));
+
+            ConsoleUI.printSuccess("Import finished");
+            ConsoleUI.printField("Accounts Created", result.getCreated());
+            ConsoleUI.printField("Duplicate Addresses", result.getDuplicates());
+            ConsoleUI.printField("Invalid Rows", result.getInvalid());
+            ConsoleUI.printField("Elapsed", result.getElapsedMillis() + " ms");
+            ConsoleUI.printField("Credentials File", args[2]);
+        } catch (IOException e) {
+            ConsoleUI.printError("Import failed: " + e.getMessage());
+        } finally {
+            PasswordGenerator.shared().disablePool();
+        }
+        ConsoleUI.printSeparator();
+    }
+
+    /**
+     * Batch mode: --reset-passwords <department:CODE | address:GLOB | list:FILE> <credentials.csv>
+     * Reads the admin key from the first line of standard input.
+     */
+    private static void runBulkReset(String[] args) {
+        String usage = "Usage: java EmailApp --reset-passwords <department:CODE | address:GLOB | list:FILE> <credentials.csv>";
+        if (args.length != 3) {
+            ConsoleUI.printError(usage);
+            return;
+        }
+
+        ConsoleUI.printTitle("BULK PASSWORD RESET");
+        ConsoleUI.printPrompt("Enter Admin Key: ");
+        input = CommandInput.console();
+        try {
+            if (!input.hasNextLine() || !LoginGuard.shared().verifyAdminKey(ADMIN_KEY_BYTES,
+                    InputValidator.getPasswordInput(input), LoginGuard.CONSOLE)) {
+                ConsoleUI.printError("Access denied- Invalid admin key-");
+                return;
+            }
+        } catch (TooManyAttemptsException e) {
+            ConsoleUI.printError(e.getMessage());
+            return;
+        }
+
+        PasswordGenerator.shared().enablePool(4_096);
+        try {
+            BulkPasswordReset.Filter filter = parseResetFilter(args[1]);
+            BulkPasswordReset.Result result = new BulkPasswordReset(registry, journal).reset(filter, Path.of(args[2]),
+                    (done, elapsedNanos) -> ConsoleUI.printProgress("Processed", done, done / (elapsedNanos / 1e9)));
+            ConsoleUI.printProgressDone();
+
+            ConsoleUI.printSuccess("Reset finished");
+            ConsoleUI.printField("Passwords Reset", result.getReset());
+            ConsoleUI.printField("Not Found", result.getNotFound());
+            ConsoleUI.printField("Elapsed", result.getElapsedMillis() + " ms");
+            ConsoleUI.printField("Throughput", String.format("%,.0f accounts/s", result.getThroughput()));
+            ConsoleUI.printField("Credentials File", args[2]);
+        } catch (IllegalArgumentException e) {
+            ConsoleUI.printError(e.getMessage() + "\n  " + usage);
+        } catch (IOException e) {
+            ConsoleUI.printProgressDone();
+            ConsoleUI.printError("Reset failed: " + e.getMessage());
+        } finally {
+            PasswordGenerator.shared().disablePool();
+        }
+        ConsoleUI.printSeparator();
+    }
+
+    private static BulkPasswordReset.Filter parseResetFilter(String spec) throws IOException {
+        int colon = spec.indexOf(':');
+        String kind = (colon < 0) ? "" : spec.substring(0, colon);
+        String value = spec.substring(colon + 1);
+        return switch (kind) {
+            case "department" -> BulkPasswordReset.Filter.department(value);
+            case "address" -> BulkPasswordReset.Filter.addressPattern(value);
+            case "list" -> BulkPasswordReset.Filter.addresses(Files.readAllLines(Path.of(value)).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .toList());
+            default -> throw new IllegalArgumentException("Unknown filter: " + spec);
+        };
+    }
+
+    /**
+     * Batch mode: --script <commands.txt | ->
+     * Replays main-menu input line by line, without screen clearing or ENTER pauses.
+     * Output is buffered and written in large blocks rather than flushed per line.
+     */
+    private static void runScript(String[] args) {
+        if (args.length != 2) {
+            ConsoleUI.printError("Usage: java EmailApp --script <commands.txt | ->");
+            return;
+        }
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, Charset.defaultCharset()));
+        ConsoleUI.setScripted(true);
+        try {
+            input = "-".equals(args[1]) ? CommandInput.script(System.in) : CommandInput.script(Path.of(args[1]));
+            runMainMenu();
+        } catch (NoSuchElementException e) {
+            // The script ended without choosing Exit
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not read script: " + e.getMessage());
+        } finally {
+            if (input != null) {
+                input.close();
+            }
+            ConsoleUI.setScripted(false);
+            System.out.flush();
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Batch mode: --audit <address | all> [from] [to]
+     * Dates are ISO local dates or date-times; from is inclusive, to is exclusive.
+     */
+    private static void runAuditQuery(String[] args) {
+        String usage = "Usage: java EmailApp --audit <address | all> [from] [to]";
+        if (args.length < 2 || args.length > 4) {
+            ConsoleUI.printError(usage);
+            return;
+        }
+
+        Email account = null;
+        if (!"all".equals(args[1])) {
+            account = registry.findByAddress(args[1]);
+            if (account == null) {
+                ConsoleUI.printError("Account not found: " + args[1]);
+                return;
+            }
+        }
+        try {
+            long from = (args.length > 2) ? parseAuditTime(args[2]) : Long.MIN_VALUE;
+            long to = (args.length > 3) ? parseAuditTime(args[3]) : Long.MAX_VALUE;
+            List<AuditLog.Event> events = audit.query(account, from, to);
+
+            ConsoleUI.printTitle("AUDIT LOG");
+            ConsoleUI.printAuditTable(events, registry);
+            ConsoleUI.printField("Events", events.size());
+        } catch (DateTimeParseException e) {
+            ConsoleUI.printError("Invalid date: " + e.getParsedString() + "\n  " + usage);
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not read audit log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Batch mode: --set-state <address> <active | locked | suspended | deleted>
+     */
+    private static void runSetState(String[] args) {
+        String usage = "Usage: java EmailApp --set-state <address> <active | locked | suspended | deleted>";
+        if (args.length != 3) {
+            ConsoleUI.printError(usage);
+            return;
+        }
+        Email account = registry.findByAddress(args[1]);
+        if (account == null) {
+            ConsoleUI.printError("Account not found: " + args[1]);
+            return;
+        }
+        try {
+            AccountState previous = account.getState();
+            registry.setState(account, AccountState.parse(args[2]));
+            ConsoleUI.printSuccess(account.getEmailAddress() + ": " + previous + " -> " + account.getState());
+        } catch (IllegalArgumentException e) {
+            ConsoleUI.printError(e.getMessage() + "\n  " + usage);
+        }
+    }
+
+    /**
+     * Batch mode: --sweep. Expires passwords that are due now instead of waiting for the background sweep.
+     */
+    private static void runSweep() {
+        LifecycleSweeper sweeper;
+        try {
+            sweeper = tenant.sweeper();
+        } catch (IOException e) {
+            ConsoleUI.printError("Could not load account storage: " + e.getMessage());
+            return;
+        }
+        int expired = sweeper.sweep();
+        ConsoleUI.printTitle("LIFECYCLE SWEEP");
+        ConsoleUI.printField("Max Password Age", days(sweeper.getMaxPasswordAgeMillis()));
+        ConsoleUI.printField("Dormancy Period", days(sweeper.getDormantMillis()));
+        ConsoleUI.printField("Accounts Expired", expired);
+        ConsoleUI.printField("Still Scheduled", sweeper.scheduled());
+    }
+
+    private static String days(long millis) {
+        return (millis == 0) ? "off" : TimeUnit.MILLISECONDS.toDays(millis) + " days";
+    }
+
+    private static long parseAuditTime(String value) {
+        LocalDateTime time = (value.indexOf('T') < 0)
+                ? LocalDate.parse(value).atStartOfDay()
+                : LocalDateTime.parse(value);
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Headless mode: --serve [port]. Runs until the process is stopped.
+     */
+    private static void runServer(String[] args) {
+        int port;
+        try {
+            port = (args.length > 1) ? Integer.parseInt(args[1]) : AccountServer.DEFAULT_PORT;
+        } catch (NumberFormatException e) {
+            ConsoleUI.printError("Usage: java EmailApp --serve [port]");
+            return;
+        }
+
+        try (AccountServer server = new AccountServer(registry, ADMIN_KEY, port)) {
+            onShutdown(server::close);
+
+            ConsoleUI.printTitle("ACCOUNT SERVER");
+            ConsoleUI.printField("Listening On", "127.0.0.1:" + server.getPort());
+            ConsoleUI.printField("Accounts Loaded", registry.size());
+            ConsoleUI.printSeparator();
+            server.serve();
+        } catch (IOException e) {
+            ConsoleUI.printError("Server failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Headless mode: --http [port]. Serves the JSON admin API until the process is stopped.
+     */
+    private static void runHttpApi(String[] args) {
+        int port;
+        try {
+            port = (args.length > 1) ? Integer.parseInt(args[1]) : AccountHttpApi.DEFAULT_PORT;
+        } catch (NumberFormatException e) {
+            ConsoleUI.printError("Usage: java EmailApp --http [port]");
+            return;
+        }
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        try (AccountHttpApi api = new AccountHttpApi(registry, ADMIN_KEY, port, threads)) {
+            CountDownLatch stopped = new CountDownLatch(1);
+            onShutdown(stopped::countDown);
+            api.start();
+
+            ConsoleUI.printTitle("ACCOUNT ADMIN API");
+            ConsoleUI.printField("Listening On", "http://127.0.0.1:" + api.getPort() + "/accounts");
+            ConsoleUI.printField("Accounts Loaded", registry.size());
+            ConsoleUI.printSeparator();
+            stopped.await();
+        } catch (IOException e) {
+            ConsoleUI.printError("Admin API failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * On Ctrl-C, runs stop and then waits for main to finish, so storage is closed cleanly.
+     */
+    private static void onShutdown(Runnable stop) {
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop.run();
+            try {
+                mainThread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
     /**
      * Displays welcome screen with test accounts and admin key.
      */
@@ -39,18 +478,21 @@ public class EmailApp {
         ConsoleUI.printTitle("EMAIL MANAGEMENT SYSTEM");
         ConsoleUI.printSection("TEST ACCOUNTS - SAVE THESE PASSWORDS");
 
-        ConsoleUI.printPasswordTable(emailAccounts);
+        ConsoleUI.printPasswordTable(registry, 0, PAGE_SIZE);
+        for (Email account : registry.page(0, PAGE_SIZE)) {
+            account.clearOneTimePassword();
+        }
 
         ConsoleUI.printSection("ADMIN KEY");
         System.out.println("  Key: admin123 (Use in Option 6 for password reset)");
 
         ConsoleUI.printSection("TIPS");
-        System.out.println("  - Passwords shown on startup & in Option 7");
+        System.out.println("  - Passwords are shown only once, at creation or reset");
         System.out.println("  - Admin key available in Option 7");
         System.out.println("  - Password format: Word+Word+Symbol+Year-Digits");
 
         ConsoleUI.pauseForInput();
-        InputValidator.waitForEnter(scanner);
+        InputValidator.waitForEnter(input);
     }
 
     /**
@@ -58,9 +500,14 @@ public class EmailApp {
      */
     private static void runMainMenu() {
         int choice;
+        boolean firstTime = true;
         do {
-            displayMainMenu();
-            choice = InputValidator.getMenuChoice(scanner, 1, 8);
+            // A script sees the full menu once; after that only the prompt is repeated
+            if (firstTime || !input.isScripted()) {
+                displayMainMenu();
+            }
+            firstTime = false;
+            choice = InputValidator.getMenuChoice(input, 1, 9);
 
             try {
                 switch (choice) {
@@ -71,13 +518,14 @@ public class EmailApp {
                     case 5 -> displayAllAccounts();
                     case 6 -> adminResetPassword();
                     case 7 -> viewPasswordReference();
-                    case 8 -> exitApplication();
+                    case 8 -> displayDepartmentSummary();
+                    case 9 -> exitApplication();
                 }
             } catch (IllegalArgumentException e) {
                 ConsoleUI.printError(e.getMessage());
                 pressEnterToContinue();
             }
-        } while (choice != 8);
+        } while (choice != 9);
     }
 
     /**
@@ -85,7 +533,7 @@ public class EmailApp {
      */
     private static void displayMainMenu() {
         ConsoleUI.clearScreen();
-        ConsoleUI.printTitle("MAIN MENU");
+        ConsoleUI.printTitle((tenant == tenants.getDefault()) ? "MAIN MENU" : "MAIN MENU - " + tenant.getDomain());
         System.out.println("\n  1- Create New Email Account");
         System.out.println("  2- Change Password");
         System.out.println("  3- Set Alternate Email");
@@ -93,7 +541,8 @@ public class EmailApp {
         System.out.println("  5- Display All Accounts");
         System.out.println("  6- Admin Password Reset");
         System.out.println("  7- View Password Reference");
-        System.out.println("  8- Exit Application");
+        System.out.println("  8- Department Summary");
+        System.out.println("  9- Exit Application");
         System.out.println();
         ConsoleUI.printSeparator();
     }
@@ -106,29 +555,29 @@ public class EmailApp {
         ConsoleUI.printTitle("CREATE NEW EMAIL ACCOUNT");
 
         ConsoleUI.printPrompt("First Name: ");
-        String firstName = InputValidator.getNonEmptyInput(scanner);
+        String firstName = InputValidator.getNonEmptyInput(input);
 
         ConsoleUI.printPrompt("Last Name:  ");
-        String lastName = InputValidator.getNonEmptyInput(scanner);
+        String lastName = InputValidator.getNonEmptyInput(input);
 
         System.out.println("\n  Select Department:");
-        System.out.println("    1- Sales");
-        System.out.println("    2- Development");
-        System.out.println("    3- Accounting");
-        System.out.println("    4- None");
-        String department = InputValidator.getDepartmentChoice(scanner);
+        List<Department> departments = registry.getDepartments();
+        for (int i = 0; i < departments.size(); i++) {
+            System.out.println("    " + (i + 1) + "- " + registry.label(departments.get(i)));
+        }
+        String department = InputValidator.getDepartmentChoice(input, departments);
 
         try {
-            Email newAccount = new Email(firstName, lastName, department);
-            emailAccounts.add(newAccount);
+            Email newAccount = registry.create(firstName, lastName, department);
 
             ConsoleUI.printSeparator();
             ConsoleUI.printSuccess("Account Created Successfully!");
             System.out.println("\n  Account Details:");
             ConsoleUI.printField("Email", newAccount.getEmailAddress());
-            ConsoleUI.printField("Password", newAccount.getPassword());
+            ConsoleUI.printField("Password", newAccount.getOneTimePassword());
             ConsoleUI.printField("Department", department);
-            ConsoleUI.printNotice("SAVE THIS PASSWORD! View again in Option 7");
+            ConsoleUI.printNotice("SAVE THIS PASSWORD! It will not be shown again");
+            newAccount.clearOneTimePassword();
             ConsoleUI.printSeparator();
 
         } catch (IllegalArgumentException e) {
@@ -151,22 +600,23 @@ public class EmailApp {
             return;
         }
 
+        if (!requireActive(account)) {
+            return;
+        }
+
         ConsoleUI.printPrompt("Current Password: ");
-        String currentPassword = InputValidator.getPasswordInput(scanner);
+        String currentPassword = InputValidator.getPasswordInput(input);
 
-        if (!account.verifyPassword(currentPassword)) {
-            ConsoleUI.printError("Authentication failed- Password incorrect-");
-            pressEnterToContinue();
+        if (!authenticate(account, currentPassword)) {
             return;
         }
 
         ConsoleUI.printPrompt("New Password (12+ characters): ");
-        String newPassword = InputValidator.getNonEmptyInput(scanner);
+        String newPassword = InputValidator.getNonEmptyInput(input);
 
         try {
-            account.changePassword(newPassword);
+            registry.changePassword(account, newPassword);
             ConsoleUI.printSuccess("Password changed successfully!");
-            System.out.println("  View passwords anytime in Option 7");
         } catch (IllegalArgumentException e) {
             ConsoleUI.printError(e.getMessage());
         }
@@ -187,17 +637,19 @@ public class EmailApp {
             return;
         }
 
+        if (!requireActive(account)) {
+            return;
+        }
+
         ConsoleUI.printPrompt("Current Password: ");
-        String currentPassword = InputValidator.getPasswordInput(scanner);
+        String currentPassword = InputValidator.getPasswordInput(input);
 
-        if (!account.verifyPassword(currentPassword)) {
-            ConsoleUI.printError("Authentication failed- Password incorrect-");
-            pressEnterToContinue();
+        if (!authenticate(account, currentPassword)) {
             return;
         }
 
         ConsoleUI.printPrompt("Alternate Email (or press ENTER to skip): ");
-        String altEmail = InputValidator.getOptionalInput(scanner);
+        String altEmail = InputValidator.getOptionalInput(input);
 
         if (altEmail.isEmpty()) {
             System.out.println("\n  No changes made-");
@@ -206,9 +658,9 @@ public class EmailApp {
         }
 
         try {
-            account.setAlternateEmail(altEmail);
+            registry.setAlternateEmail(account, altEmail);
             ConsoleUI.printSuccess("Alternate email set successfully!");
-            ConsoleUI.printField("Alternate Email", altEmail);
+            ConsoleUI.printField("Alternate Email", account.getAlternateEmail());
         } catch (IllegalArgumentException e) {
             ConsoleUI.printError(e.getMessage());
         }
@@ -229,16 +681,18 @@ public class EmailApp {
             return;
         }
 
+        if (!requireActive(account)) {
+            return;
+        }
+
         ConsoleUI.printPrompt("Current Password: ");
-        String currentPassword = InputValidator.getPasswordInput(scanner);
+        String currentPassword = InputValidator.getPasswordInput(input);
 
-        if (!account.verifyPassword(currentPassword)) {
-            ConsoleUI.printError("Authentication failed- Password incorrect-");
-            pressEnterToContinue();
+        if (!authenticate(account, currentPassword)) {
             return;
         }
 
-        int capacity = InputValidator.getIntInput(scanner,
+        int capacity = InputValidator.getIntInput(input,
                 "New Capacity (1-" + MAX_CAPACITY + " MB): ", 1, MAX_CAPACITY);
 
         if (capacity == 0) {
@@ -247,7 +701,7 @@ public class EmailApp {
         }
 
         try {
-            account.setMailboxCapacity(capacity);
+            registry.setMailboxCapacity(account, capacity);
             ConsoleUI.printSuccess("Mailbox capacity updated!");
             ConsoleUI.printField("New Capacity", capacity + " MB");
         } catch (IllegalArgumentException e) {
@@ -262,17 +716,19 @@ public class EmailApp {
      */
     private static void displayAllAccounts() {
         ConsoleUI.clearScreen();
-        ConsoleUI.printTitle("ALL EMAIL ACCOUNTS (" + emailAccounts.size() + " total)");
+        ConsoleUI.printTitle("ALL EMAIL ACCOUNTS (" + registry.size() + " total)");
 
-        if (emailAccounts.isEmpty()) {
+        if (registry.isEmpty()) {
             System.out.println("\n  No accounts found-");
         } else {
             System.out.println();
-            ConsoleUI.printAccountsTable(emailAccounts);
+            if (!showPages((offset, limit) -> ConsoleUI.printAccountsTable(registry, offset, limit))) {
+                return;
+            }
         }
 
         ConsoleUI.pauseForInput();
-        InputValidator.waitForEnter(scanner);
+        InputValidator.waitForEnter(input);
     }
 
     /**
@@ -284,11 +740,17 @@ public class EmailApp {
 
         ConsoleUI.printSection("ADMIN KEY REQUIRED");
         ConsoleUI.printPrompt("Enter Admin Key: ");
-        String adminKey = InputValidator.getPasswordInput(scanner);
+        String adminKey = InputValidator.getPasswordInput(input);
 
-        if (!adminKey.equals(ADMIN_KEY)) {
-            ConsoleUI.printError("Access denied- Invalid admin key-");
-            System.out.println("  Hint: Check Option 7 for admin key");
+        try {
+            if (!LoginGuard.shared().verifyAdminKey(ADMIN_KEY_BYTES, adminKey, LoginGuard.CONSOLE)) {
+                ConsoleUI.printError("Access denied- Invalid admin key-");
+                System.out.println("  Hint: Check Option 7 for admin key");
+                pressEnterToContinue();
+                return;
+            }
+        } catch (TooManyAttemptsException e) {
+            ConsoleUI.printError(e.getMessage());
             pressEnterToContinue();
             return;
         }
@@ -299,13 +761,25 @@ public class EmailApp {
             return;
         }
 
-        account.resetPassword();
+        AccountState previousState = account.getState();
+        String newPassword;
+        try {
+            newPassword = registry.resetPassword(account);
+        } catch (IllegalArgumentException e) {
+            ConsoleUI.printError(e.getMessage());
+            pressEnterToContinue();
+            return;
+        }
+        account.clearOneTimePassword();
         ConsoleUI.printSeparator();
         ConsoleUI.printSuccess("Password reset successfully!");
         System.out.println("\n  Account Details:");
         ConsoleUI.printField("Email", account.getEmailAddress());
-        ConsoleUI.printField("New Password", account.getPassword());
-        ConsoleUI.printNotice("SAVE THIS PASSWORD! View again in Option 7");
+        ConsoleUI.printField("New Password", newPassword);
+        if (previousState == AccountState.LOCKED) {
+            ConsoleUI.printField("State", "LOCKED -> " + account.getState());
+        }
+        ConsoleUI.printNotice("SAVE THIS PASSWORD! It will not be shown again");
         ConsoleUI.printSeparator();
 
         pressEnterToContinue();
@@ -319,7 +793,11 @@ public class EmailApp {
         ConsoleUI.printTitle("PASSWORD REFERENCE");
 
         ConsoleUI.printSection("ACCOUNT PASSWORDS");
-        ConsoleUI.printPasswordTable(emailAccounts);
+        if (!showPages((offset, limit) -> ConsoleUI.printPasswordTable(registry, offset, limit))) {
+            return;
+        }
+        ConsoleUI.printNotice("Passwords are stored as salted hashes and shown only at creation or reset");
+        System.out.println("  Use Option 6 to issue a new password for an account");
 
         ConsoleUI.printSection("ADMIN KEY");
         System.out.println("  admin123 (Use in Option 6 for password reset)");
@@ -327,11 +805,24 @@ public class EmailApp {
         System.out.println();
         ConsoleUI.printSeparator();
         ConsoleUI.pauseForInput();
-        InputValidator.waitForEnter(scanner);
+        InputValidator.waitForEnter(input);
+    }
+
+    /**
+     * Option 8: Per-department totals.
+     */
+    private static void displayDepartmentSummary() {
+        ConsoleUI.clearScreen();
+        ConsoleUI.printTitle("DEPARTMENT SUMMARY (" + registry.size() + " accounts)");
+        System.out.println();
+        ConsoleUI.printDepartmentTable(registry);
+        System.out.println();
+        ConsoleUI.printQuotaAlerts(registry.getQuotas());
+        pressEnterToContinue();
     }
 
     /**
-     * Option 8: Exit application.
+     * Option 9: Exit application.
      */
     private static void exitApplication() {
         ConsoleUI.clearScreen();
@@ -344,22 +835,100 @@ public class EmailApp {
      * Displays account selection menu.
      */
     private static Email selectAccount() {
-        if (emailAccounts.isEmpty()) {
+        if (registry.isEmpty()) {
             ConsoleUI.printError("No accounts available-");
             return null;
         }
 
-        System.out.println("\n  Select Account (passwords shown for reference):\n");
-        ConsoleUI.printSelectTable(emailAccounts);
+        ConsoleUI.printPrompt("Search by name or email (ENTER to list all): ");
+        String query = InputValidator.getOptionalInput(input);
+        if (!query.isEmpty()) {
+            return selectFromSearch(query);
+        }
+
+        System.out.println("\n  Select Account:\n");
 
-        int choice = InputValidator.getMenuChoice(scanner, 0, emailAccounts.size());
+        int offset = 0;
+        while (true) {
+            int total = registry.size();
+            ConsoleUI.printSelectTable(registry, offset, PAGE_SIZE);
 
+            boolean hasMorePages = offset + PAGE_SIZE < total;
+            int choice = InputValidator.getPagedChoice(input, total, hasMorePages);
+
+            if (choice == InputValidator.NEXT_PAGE) {
+                offset += PAGE_SIZE;
+                continue;
+            }
+            if (choice == 0) {
+                System.out.println("\n  Selection cancelled-");
+                return null;
+            }
+            return registry.get(choice - 1);
+        }
+    }
+
+    /**
+     * Shows the best PAGE_SIZE matches for a query and lets the user pick one.
+     */
+    private static Email selectFromSearch(String query) {
+        List<Email> matches = registry.search(query, PAGE_SIZE);
+        if (matches.isEmpty()) {
+            ConsoleUI.printError("No accounts match \"" + query + "\"-");
+            return null;
+        }
+
+        System.out.println("\n  Matching Accounts:\n");
+        ConsoleUI.printSelectTable(matches);
+        int choice = InputValidator.getPagedChoice(input, matches.size(), false);
         if (choice == 0) {
             System.out.println("\n  Selection cancelled-");
             return null;
         }
+        return matches.get(choice - 1);
+    }
+
+    /**
+     * Renders a table PAGE_SIZE rows at a time; returns false if the user stopped early.
+     */
+    private static boolean showPages(BiConsumer<Integer, Integer> renderPage) {
+        int total = registry.size();
+        int pages = Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+
+        for (int page = 1; page <= pages; page++) {
+            renderPage.accept((page - 1) * PAGE_SIZE, PAGE_SIZE);
+            if (page < pages && !InputValidator.continuePaging(input, page, pages)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Checks the password through the login guard, so repeated failures lock the account and console out
+    private static boolean authenticate(Email account, String password) {
+        try {
+            if (LoginGuard.shared().verifyPassword(account, password, LoginGuard.CONSOLE)) {
+                return true;
+            }
+            ConsoleUI.printError("Authentication failed- Password incorrect-");
+        } catch (TooManyAttemptsException e) {
+            ConsoleUI.printError(e.getMessage());
+        }
+        pressEnterToContinue();
+        return false;
+    }
 
-        return emailAccounts.get(choice - 1);
+    // Locked, suspended and deleted accounts cannot sign in; says why instead of asking for a password
+    private static boolean requireActive(Email account) {
+        AccountState state = account.getState();
+        if (state == AccountState.ACTIVE) {
+            return true;
+        }
+        ConsoleUI.printError("Account is " + state + (state == AccountState.LOCKED
+                ? "- Password is older than the maximum age; ask an admin to reset it (Option 6)-"
+                : "-"));
+        pressEnterToContinue();
+        return false;
     }
 
     /**
@@ -367,6 +936,6 @@ public class EmailApp {
      */
     private static void pressEnterToContinue() {
         ConsoleUI.pauseForInput();
-        InputValidator.waitForEnter(scanner);
+        InputValidator.waitForEnter(input);
     }
 }
\ No newline at end of file
@@ -1,21 +1,26 @@
-import java.util.Scanner;
+import java.util.List;
 
 public class InputValidator {
 
-    public static int getMenuChoice(Scanner scanner, int min, int max) {
+    // Returned by getPagedChoice when the user asks for the next page
+    public static final int NEXT_PAGE = -1;
+
+    private static final Metrics.Timer PARSE_DEPARTMENT_TIMER = Metrics.timer("parse_department");
+    private static final Metrics.Counter INVALID_INPUT = Metrics.counter("invalid_input");
+
+    public static int getMenuChoice(CommandInput input, int min, int max) {
         while (true) {
             ConsoleUI.printMenuPrompt(min, max);
 
-            if (!scanner.hasNextInt()) {
-                scanner.nextLine();
+            int choice = input.nextInt();
+            if (choice == CommandInput.NOT_A_NUMBER) {
+                INVALID_INPUT.increment();
                 ConsoleUI.printError("Please enter a valid number-");
                 continue;
             }
 
-            int choice = scanner.nextInt();
-            scanner.nextLine();
-
             if (choice < min || choice > max) {
+                INVALID_INPUT.increment();
                 ConsoleUI.printError("Please enter a number between " + min + " and " + max + "-");
                 continue;
             }
@@ -24,23 +29,66 @@ public class InputValidator {
         }
     }
 
+    /**
+     * Reads an account number (0 to cancel) from a paged list.
+     * ENTER alone returns NEXT_PAGE when more pages follow.
+     */
+    public static int getPagedChoice(CommandInput input, int max, boolean hasMorePages) {
+        while (true) {
+            ConsoleUI.printPagedPrompt(max, hasMorePages);
+            String line = input.nextLine().trim();
+
+            if (line.isEmpty() && hasMorePages) {
+                return NEXT_PAGE;
+            }
+
+            int choice;
+            try {
+                choice = Integer.parseInt(line);
+            } catch (NumberFormatException e) {
+                INVALID_INPUT.increment();
+                ConsoleUI.printError("Please enter a valid number-");
+                continue;
+            }
+
+            if (choice < 0 || choice > max) {
+                INVALID_INPUT.increment();
+                ConsoleUI.printError("Please enter a number between 0 and " + max + "-");
+                continue;
+            }
+
+            return choice;
+        }
+    }
+
+    /**
+     * Asks whether to show the next page: ENTER continues, Q stops.
+     * Scripts always see every page.
+     */
+    public static boolean continuePaging(CommandInput input, int page, int pages) {
+        if (input.isScripted()) {
+            return true;
+        }
+        ConsoleUI.printPageFooter(page, pages);
+        return !input.nextLine().trim().equalsIgnoreCase("q");
+    }
+
     /**
      * Reads and validates an integer input.
      */
-    public static int getIntInput(Scanner scanner, String prompt, int min, int max) {
+    public static int getIntInput(CommandInput input, String prompt, int min, int max) {
         while (true) {
             ConsoleUI.printPrompt(prompt);
 
-            if (!scanner.hasNextInt()) {
-                scanner.nextLine();
+            int value = input.nextInt();
+            if (value == CommandInput.NOT_A_NUMBER) {
+                INVALID_INPUT.increment();
                 ConsoleUI.printError("Please enter a valid number-");
                 continue;
             }
 
-            int value = scanner.nextInt();
-            scanner.nextLine();
-
             if (value < min || value > max) {
+                INVALID_INPUT.increment();
                 ConsoleUI.printError("Please enter a number between " + min + " and " + max + "-");
                 continue;
             }
@@ -52,59 +100,79 @@ public class InputValidator {
     /**
      * Reads and validates non-empty input.
      */
-    public static String getNonEmptyInput(Scanner scanner) {
+    public static String getNonEmptyInput(CommandInput input) {
         while (true) {
-            String input = scanner.nextLine().trim();
+            String line = input.nextLine().trim();
 
-            if (input.isEmpty()) {
+            if (line.isEmpty()) {
+                INVALID_INPUT.increment();
                 ConsoleUI.printPrompt("Input cannot be empty- Try again: ");
                 continue;
             }
 
-            return input;
+            return line;
         }
     }
 
     /**
-     * Waits for user to press ENTER key.
+     * Waits for user to press ENTER key; scripts do not pause.
      */
-    public static void waitForEnter(Scanner scanner) {
-        scanner.nextLine();
+    public static void waitForEnter(CommandInput input) {
+        if (!input.isScripted()) {
+            input.skipLine();
+        }
     }
 
     /**
      * Reads a password input.
      */
-    public static String getPasswordInput(Scanner scanner) {
-        return scanner.nextLine();
+    public static String getPasswordInput(CommandInput input) {
+        return input.nextLine();
     }
 
     /**
      * Reads optional input.
      */
-    public static String getOptionalInput(Scanner scanner) {
-        return scanner.nextLine().trim();
+    public static String getOptionalInput(CommandInput input) {
+        return input.nextLine().trim();
     }
 
     /**
      * Reads a department choice.
      */
-    public static String getDepartmentChoice(Scanner scanner) {
-        int choice = getMenuChoice(scanner, 1, 4);
-        return switch (choice) {
-            case 1 -> "sales";
-            case 2 -> "dev";
-            case 3 -> "acct";
-            default -> "none";
-        };
+    public static String getDepartmentChoice(CommandInput input) {
+        return getDepartmentChoice(input, Department.standardDepartments());
+    }
+
+    /**
+     * Reads a choice from a numbered department menu.
+     */
+    public static String getDepartmentChoice(CommandInput input, List<Department> departments) {
+        int choice = getMenuChoice(input, 1, departments.size());
+        return departments.get(choice - 1).getCode();
+    }
+
+    /**
+     * Maps a department name or code (e.g. "dev", "Development") to its internal code.
+     */
+    public static String parseDepartment(String value) {
+        long start = Metrics.start();
+        try {
+            return Department.parse(value).getCode();
+        } catch (IllegalArgumentException e) {
+            INVALID_INPUT.increment();
+            throw e;
+        } finally {
+            PARSE_DEPARTMENT_TIMER.stop(start);
+        }
     }
 
     /**
      * Consumes remaining input.
      */
-    public static void clearBuffer(Scanner scanner) {
-        if (scanner.hasNextLine()) {
-            scanner.nextLine();
+    public static void clearBuffer(CommandInput input) {
+        if (input.hasNextLine()) {
+            input.skipLine();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,316 @@
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Locks accounts whose password is older than the maximum age, and optionally suspends
+ * accounts that have not changed for a dormancy period.
+ *
+ * Every ACTIVE account has an entry in a min-heap keyed by its next deadline: password
+ * change plus the maximum age, or last change plus the dormancy period if sooner. A sweep
+ * pops only the entries that are due, so it costs time in proportion to the accounts that
+ * expire rather than to the size of the registry. Entries are not moved when an account
+ * changes; a popped account whose deadline has moved on is pushed back with the new one. The
+ * deadline each account is scheduled for is kept alongside the heap, so an account that is
+ * scheduled again for a later time keeps its one entry, and an entry superseded by an
+ * earlier deadline is dropped when it pops; there is about one entry per account. Accounts
+ * leaving ACTIVE drop out and rejoin when they become ACTIVE again.
+ */
+public class LifecycleSweeper implements AccountListener, Closeable {
+
+    public static final String MAX_PASSWORD_AGE_PROPERTY = "email.password.maxAgeDays";
+    public static final String DORMANT_DAYS_PROPERTY = "email.account.dormantDays";
+    public static final String SWEEP_SECONDS_PROPERTY = "email.sweep.seconds";
+
+    public static final int DEFAULT_MAX_PASSWORD_AGE_DAYS = 90;
+    private static final int DEFAULT_SWEEP_SECONDS = 60;
+
+    // Entries popped per hold of the heap lock
+    private static final int BATCH = 4_096;
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final Metrics.Timer SWEEP_TIMER = Metrics.timer("lifecycle_sweep");
+    private static final Metrics.Counter LOCKED = Metrics.counter("accounts_locked");
+    private static final Metrics.Counter SUSPENDED = Metrics.counter("accounts_suspended");
+
+    private final AccountRegistry registry;
+    private final long maxPasswordAgeMillis;
+    private final long dormantMillis;
+    private final LongSupplier clock;
+
+    // Binary min-heap of (deadline, account id) in parallel arrays; guarded by this
+    private long[] deadlines = new long[1_024];
+    private int[] ids = new int[1_024];
+    private int size;
+    // The deadline of each account's live heap entry, by account id, or NEVER; guarded by this
+    private long[] scheduledAt = new long[0];
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * A sweeper over registry; 0 disables either policy. Call attach() before sweeping.
+     */
+    public LifecycleSweeper(AccountRegistry registry, long maxPasswordAgeMillis, long dormantMillis,
+                            LongSupplier clock) {
+        if (maxPasswordAgeMillis < 0 || dormantMillis < 0) {
+            throw new IllegalArgumentException("Ages must not be negative");
+        }
+        this.registry = registry;
+        this.maxPasswordAgeMillis = maxPasswordAgeMillis;
+        this.dormantMillis = dormantMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Attaches to registry with the ages from -Demail.password.maxAgeDays (default 90) and
+     * -Demail.account.dormantDays (default 0, off), and sweeps every -Demail.sweep.seconds
+     * (default 60) on a background thread.
+     */
+    public static LifecycleSweeper start(AccountRegistry registry) {
+        long day = TimeUnit.DAYS.toMillis(1);
+        LifecycleSweeper sweeper = new LifecycleSweeper(registry,
+                day * Integer.getInteger(MAX_PASSWORD_AGE_PROPERTY, DEFAULT_MAX_PASSWORD_AGE_DAYS),
+                day * Integer.getInteger(DORMANT_DAYS_PROPERTY, 0),
+                System::currentTimeMillis);
+        sweeper.attach();
+
+        int period = Math.max(1, Integer.getInteger(SWEEP_SECONDS_PROPERTY, DEFAULT_SWEEP_SECONDS));
+        sweeper.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lifecycle-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduler.scheduleWithFixedDelay(sweeper::sweepQuietly, period, period, TimeUnit.SECONDS);
+        return sweeper;
+    }
+
+    /**
+     * Subscribes to account changes and schedules every account already in the registry.
+     */
+    public void attach() {
+        // Subscribe first: an account created in between is already scheduled and is skipped here
+        registry.addListener(this);
+        List<Email> accounts = registry.snapshot();
+        synchronized (this) {
+            for (Email account : accounts) {
+                long deadline = deadline(account);
+                if (deadline != NEVER && claim(account.getAccountId(), deadline)) {
+                    append(deadline, account.getAccountId());
+                }
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+    }
+
+    /**
+     * Expires every account that is due now; returns how many were locked or suspended.
+     */
+    public int sweep() {
+        long start = Metrics.start();
+        long now = clock.getAsLong();
+        int[] due = new int[BATCH];
+        int expired = 0;
+        int count;
+        do {
+            count = 0;
+            synchronized (this) {
+                while (count < BATCH && size > 0 && deadlines[0] <= now) {
+                    int id = ids[0];
+                    if (scheduledAt[id] == deadlines[0]) {
+                        scheduledAt[id] = NEVER;
+                        due[count++] = id;
+                    }
+                    // otherwise superseded by an earlier entry for the same account
+                    removeFirst();
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (expire(registry.get(due[i]), now)) {
+                    expired++;
+                }
+            }
+        } while (count == BATCH);
+        SWEEP_TIMER.stop(start);
+        return expired;
+    }
+
+    /**
+     * Accounts waiting for a deadline.
+     */
+    public synchronized int scheduled() {
+        return size;
+    }
+
+    public long getMaxPasswordAgeMillis() {
+        return maxPasswordAgeMillis;
+    }
+
+    public long getDormantMillis() {
+        return dormantMillis;
+    }
+
+    /**
+     * Stops sweeping, letting a sweep in progress finish so its changes reach the journal.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            // Not shutdownNow: an interrupt would close the journal's channel mid-write
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        registry.removeListener(this);
+    }
+
+    // AccountListener: new and reactivated accounts need a deadline; other changes only move it later
+
+    @Override
+    public void onCreated(Email account) {
+        schedule(account);
+    }
+
+    @Override
+    public void onStateChanged(Email account, AccountState previousState) {
+        schedule(account);
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            System.err.println("Lifecycle sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Locks or suspends the account if it is still due, deciding under its lock; otherwise reschedules it
+    private boolean expire(Email account, long now) {
+        AccountState applied = registry.transition(account, a -> dueState(a, now));
+        if (applied == AccountState.LOCKED) {
+            LOCKED.increment();
+        } else if (applied == AccountState.SUSPENDED) {
+            SUSPENDED.increment();
+        } else {
+            schedule(account);
+        }
+        return applied != null;
+    }
+
+    private AccountState dueState(Email account, long now) {
+        if (account.getState() != AccountState.ACTIVE) {
+            return null;
+        }
+        if (maxPasswordAgeMillis > 0 && account.getPasswordChangedMillis() + maxPasswordAgeMillis <= now) {
+            return AccountState.LOCKED;
+        }
+        if (dormantMillis > 0 && account.getLastChangedMillis() + dormantMillis <= now) {
+            return AccountState.SUSPENDED;
+        }
+        return null;
+    }
+
+    private long deadline(Email account) {
+        if (account.getState() != AccountState.ACTIVE) {
+            return NEVER;
+        }
+        long deadline = NEVER;
+        if (maxPasswordAgeMillis > 0) {
+            deadline = account.getPasswordChangedMillis() + maxPasswordAgeMillis;
+        }
+        if (dormantMillis > 0) {
+            deadline = Math.min(deadline, account.getLastChangedMillis() + dormantMillis);
+        }
+        return deadline;
+    }
+
+    private void schedule(Email account) {
+        long deadline = deadline(account);
+        if (deadline == NEVER) {
+            return;
+        }
+        synchronized (this) {
+            if (claim(account.getAccountId(), deadline)) {
+                append(deadline, account.getAccountId());
+                siftUp(size - 1);
+            }
+        }
+    }
+
+    // Records deadline for id unless its live entry is due no later; false if no entry is needed
+    private boolean claim(int id, long deadline) {
+        if (id >= scheduledAt.length) {
+            int length = scheduledAt.length;
+            scheduledAt = Arrays.copyOf(scheduledAt, Math.max(id + 1, Math.max(1_024, length * 2)));
+            Arrays.fill(scheduledAt, length, scheduledAt.length, NEVER);
+        }
+        if (scheduledAt[id] <= deadline) {
+            return false; // that entry pops first and reschedules the account
+        }
+        scheduledAt[id] = deadline;
+        return true;
+    }
+
+    // Heap operations; caller holds this
+
+    private void append(long deadline, int id) {
+        if (size == deadlines.length) {
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        deadlines[size] = deadline;
+        ids[size] = id;
+        size++;
+    }
+
+    private void removeFirst() {
+        size--;
+        deadlines[0] = deadlines[size];
+        ids[0] = ids[size];
+        siftDown(0);
+    }
+
+    private void siftUp(int i) {
+        long deadline = deadlines[i];
+        int id = ids[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (deadlines[parent] <= deadline) {
+                break;
+            }
+            deadlines[i] = deadlines[parent];
+            ids[i] = ids[parent];
+            i = parent;
+        }
+        deadlines[i] = deadline;
+        ids[i] = id;
+    }
+
+    private void siftDown(int i) {
+        long deadline = deadlines[i];
+        int id = ids[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && deadlines[child + 1] < deadlines[child]) {
+                child++;
+            }
+            if (deadline <= deadlines[child]) {
+                break;
+            }
+            deadlines[i] = deadlines[child];
+            ids[i] = ids[child];
+            i = child;
+        }
+        deadlines[i] = deadline;
+        ids[i] = id;
+    }
+}
@@ -0,0 +1,133 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits password and admin-key guessing, per account and per source.
+ *
+ * A source is where attempts come from: a client IP address, or CONSOLE for the menus.
+ * Repeated failures against one account lock that account out of further attempts from
+ * anywhere. Repeated failures from one source lock that source out whichever accounts it
+ * tries. While either is locked out, the password is not checked at all, so guessing costs
+ * no hashing. The admin key is treated as one more account. A correct password clears its
+ * account's failures but not its source's, so one known password cannot be used to keep
+ * guessing at others.
+ *
+ * Limits come from -Demail.auth.maxFailures (per account, default 5),
+ * -Demail.auth.maxSourceFailures (default 50), -Demail.auth.windowSeconds (default 60),
+ * -Demail.auth.lockoutSeconds (first lockout, default 30; doubles on each repeat) and
+ * -Demail.auth.maxLockoutSeconds (default 3600).
+ */
+public final class LoginGuard {
+
+    public static final String CONSOLE = "console";
+
+    public static final String MAX_FAILURES_PROPERTY = "email.auth.maxFailures";
+    public static final String MAX_SOURCE_FAILURES_PROPERTY = "email.auth.maxSourceFailures";
+    public static final String WINDOW_SECONDS_PROPERTY = "email.auth.windowSeconds";
+    public static final String LOCKOUT_SECONDS_PROPERTY = "email.auth.lockoutSeconds";
+    public static final String MAX_LOCKOUT_SECONDS_PROPERTY = "email.auth.maxLockoutSeconds";
+
+    // Account keys are addresses, which never start with '@'
+    private static final String ADMIN_KEY_ACCOUNT = "@admin-key";
+    private static final int MAX_TRACKED = 100_000;
+
+    private static final Metrics.Counter FAILURES = Metrics.counter("auth_failed");
+    private static final Metrics.Counter LOCKOUTS = Metrics.counter("auth_lockouts");
+    private static final Metrics.Counter REJECTED = Metrics.counter("auth_rejected_locked_out");
+
+    private static final LoginGuard SHARED = fromSystemProperties();
+
+    private final SlidingWindowLimiter accounts;
+    private final SlidingWindowLimiter sources;
+
+    public LoginGuard(SlidingWindowLimiter accounts, SlidingWindowLimiter sources) {
+        this.accounts = accounts;
+        this.sources = sources;
+    }
+
+    /**
+     * The guard used by the console, AccountServer and AccountHttpApi.
+     */
+    public static LoginGuard shared() {
+        return SHARED;
+    }
+
+    public static LoginGuard fromSystemProperties() {
+        long window = TimeUnit.SECONDS.toMillis(Integer.getInteger(WINDOW_SECONDS_PROPERTY, 60));
+        long lockout = TimeUnit.SECONDS.toMillis(Integer.getInteger(LOCKOUT_SECONDS_PROPERTY, 30));
+        long maxLockout = TimeUnit.SECONDS.toMillis(Integer.getInteger(MAX_LOCKOUT_SECONDS_PROPERTY, 3_600));
+        return new LoginGuard(
+                new SlidingWindowLimiter(Integer.getInteger(MAX_FAILURES_PROPERTY, 5),
+                        window, lockout, maxLockout, MAX_TRACKED, System::currentTimeMillis),
+                new SlidingWindowLimiter(Integer.getInteger(MAX_SOURCE_FAILURES_PROPERTY, 50),
+                        window, lockout, maxLockout, MAX_TRACKED, System::currentTimeMillis));
+    }
+
+    /**
+     * Checks account's password for an attempt from source.
+     *
+     * @throws TooManyAttemptsException if the account or source is locked out
+     */
+    public boolean verifyPassword(Email account, String password, String source) {
+        String key = account.getEmailAddress();
+        checkAllowed(key, source);
+        if (account.verifyPassword(password)) {
+            succeeded(key);
+            return true;
+        }
+        failed(key, source);
+        return false;
+    }
+
+    /**
+     * Compares an admin key in constant time for an attempt from source.
+     *
+     * @throws TooManyAttemptsException if admin access or the source is locked out
+     */
+    public boolean verifyAdminKey(byte[] expected, String given, String source) {
+        checkAllowed(ADMIN_KEY_ACCOUNT, source);
+        if (given != null && MessageDigest.isEqual(expected, given.getBytes(StandardCharsets.UTF_8))) {
+            succeeded(ADMIN_KEY_ACCOUNT);
+            return true;
+        }
+        failed(ADMIN_KEY_ACCOUNT, source);
+        return false;
+    }
+
+    /**
+     * For callers that check the password themselves: throws if account may not be tried from source now.
+     */
+    public void checkAllowed(Email account, String source) {
+        checkAllowed(account.getEmailAddress(), source);
+    }
+
+    public void failed(Email account, String source) {
+        failed(account.getEmailAddress(), source);
+    }
+
+    public void succeeded(Email account) {
+        succeeded(account.getEmailAddress());
+    }
+
+    private void checkAllowed(String key, String source) {
+        long wait = Math.max(accounts.retryAfterMillis(key), sources.retryAfterMillis(source));
+        if (wait > 0) {
+            REJECTED.increment();
+            throw new TooManyAttemptsException(wait);
+        }
+    }
+
+    private void failed(String key, String source) {
+        FAILURES.increment();
+        long accountLockout = accounts.recordFailure(key);
+        long sourceLockout = sources.recordFailure(source);
+        if (accountLockout > 0 || sourceLockout > 0) {
+            LOCKOUTS.increment();
+        }
+    }
+
+    private void succeeded(String key) {
+        accounts.reset(key);
+    }
+}
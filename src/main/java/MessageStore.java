@@ -0,0 +1,593 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Local message store for staging: one directory per mailbox, keyed by email address.
+ *
+ * Messages are appended to segment files, each framed as [payload length][CRC32][payload]
+ * and numbered sequentially per mailbox. A segment is named after the id of its first
+ * message and rolled once it reaches SEGMENT_BYTES or a quarter of the mailbox capacity.
+ * Each mailbox keeps an in-memory offset index (two int arrays: payload position and
+ * length) rebuilt from the frame headers on first access, so a message is located without
+ * reading any other.
+ *
+ * Usage counts against the account's mailbox capacity through the registry's QuotaEngine.
+ * When a message does not fit, the store either evicts the oldest messages (deleting a
+ * segment once all of its messages are gone) or rejects the message. The id of the oldest
+ * live message is saved when a segment is deleted and on close. Fetches can stream a message
+ * to a channel with FileChannel.transferTo, without copying it through the heap. Writes are
+ * not synced per message; close() forces open segments.
+ */
+public class MessageStore implements Closeable {
+
+    public static final String DIR_NAME = "mail";
+    public static final int SEGMENT_BYTES = 4 * 1_024 * 1_024;
+
+    /**
+     * What to do with a message that does not fit the mailbox's capacity.
+     */
+    public enum OverflowPolicy {
+        EVICT_OLDEST, REJECT
+    }
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String HEAD_FILE = "head";
+    private static final int FRAME_HEADER = 8;
+    private static final long MEGABYTE = 1_024 * 1_024;
+    private static final int MAX_OPEN_SEGMENTS = 256;
+
+    private final Path dir;
+    private final AccountRegistry registry;
+    private final OverflowPolicy policy;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    // Mailboxes holding an open active segment, least recently used first
+    private final LinkedHashMap<Mailbox, Boolean> openSegments = new LinkedHashMap<>(64, 0.75f, true);
+
+    private MessageStore(Path dir, AccountRegistry registry, OverflowPolicy policy) {
+        this.dir = dir;
+        this.registry = registry;
+        this.policy = policy;
+    }
+
+    /**
+     * The "mail" directory under the account data directory.
+     */
+    public static Path defaultDirectory() {
+        return AccountJournal.defaultDirectory().resolve(DIR_NAME);
+    }
+
+    public static MessageStore open(Path dir, AccountRegistry registry, OverflowPolicy policy) throws IOException {
+        Files.createDirectories(dir);
+        return new MessageStore(dir, registry, policy);
+    }
+
+    /**
+     * Stores a message and returns its id within the mailbox.
+     */
+    public long append(String address, byte[] message) throws IOException {
+        return append(address, ByteBuffer.wrap(message));
+    }
+
+    public long append(String address, ByteBuffer message) throws IOException {
+        Email account = account(address);
+        int length = message.remaining();
+        if (length == 0) {
+            throw new IllegalArgumentException("Message is empty");
+        }
+        if (length + FRAME_HEADER > account.getMailboxCapacity() * MEGABYTE) {
+            throw new IllegalArgumentException("Message is larger than the mailbox capacity");
+        }
+
+        Mailbox mailbox = mailbox(account);
+        mailbox.lock.lock();
+        try {
+            makeRoom(mailbox, account, length + FRAME_HEADER);
+
+            long position;
+            try {
+                // Small mailboxes roll sooner, so deleted segments keep disk use near the capacity
+                long rollBytes = Math.min(SEGMENT_BYTES, account.getMailboxCapacity() * MEGABYTE / 4);
+                FileChannel channel = activeSegment(mailbox, rollBytes);
+                position = mailbox.activeBytes;
+                ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+                CRC32 crc = new CRC32();
+                crc.update(message.duplicate());
+                header.putInt(length).putInt((int) crc.getValue()).flip();
+
+                ByteBuffer[] frame = {header, message.duplicate()};
+                channel.position(position);
+                while (frame[1].hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException e) {
+                // Give the reserved space back; a partial frame is overwritten by the next append
+                long before = mailbox.liveBytes;
+                mailbox.liveBytes -= length + FRAME_HEADER;
+                registry.getQuotas().release(account, megabytes(before) - megabytes(mailbox.liveBytes));
+                throw e;
+            }
+
+            long id = mailbox.add((int) position + FRAME_HEADER, length);
+            mailbox.activeBytes = position + FRAME_HEADER + length;
+            return id;
+        } finally {
+            mailbox.release();
+        }
+    }
+
+    /**
+     * Reads a message, verifying its checksum.
+     */
+    public byte[] read(String address, long id) throws IOException {
+        Mailbox mailbox = mailbox(account(address));
+        mailbox.lock.lock();
+        try {
+            int slot = mailbox.slot(id);
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + mailbox.lengths[slot]);
+            try (SegmentChannel segment = segmentFor(mailbox, id)) {
+                segment.channel.read(frame, mailbox.positions[slot] - FRAME_HEADER);
+            }
+            frame.flip();
+            if (frame.remaining() < FRAME_HEADER + mailbox.lengths[slot]) {
+                throw new IOException("Message " + id + " is truncated");
+            }
+            int checksum = frame.getInt(4);
+            CRC32 crc = new CRC32();
+            crc.update(frame.position(FRAME_HEADER));
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Message " + id + " is corrupt");
+            }
+            return Arrays.copyOfRange(frame.array(), FRAME_HEADER, frame.limit());
+        } finally {
+            mailbox.release();
+        }
+    }
+
+    /**
+     * Copies a message to target straight from its segment file and returns the bytes sent.
+     */
+    public long transferTo(String address, long id, WritableByteChannel target) throws IOException {
+        Mailbox mailbox = mailbox(account(address));
+        mailbox.lock.lock();
+        try {
+            int slot = mailbox.slot(id);
+            long position = mailbox.positions[slot];
+            long remaining = mailbox.lengths[slot];
+            try (SegmentChannel segment = segmentFor(mailbox, id)) {
+                while (remaining > 0) {
+                    long sent = segment.channel.transferTo(position, remaining, target);
+                    if (sent <= 0) {
+                        throw new IOException("Message " + id + " is truncated");
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+            }
+            return mailbox.lengths[slot];
+        } finally {
+            mailbox.release();
+        }
+    }
+
+    /**
+     * Id of the oldest message still stored; equal to getNextId() when the mailbox is empty.
+     */
+    public long getFirstId(String address) throws IOException {
+        Mailbox mailbox = mailbox(account(address));
+        mailbox.lock.lock();
+        try {
+            return mailbox.firstId;
+        } finally {
+            mailbox.release();
+        }
+    }
+
+    public long getNextId(String address) throws IOException {
+        Mailbox mailbox = mailbox(account(address));
+        mailbox.lock.lock();
+        try {
+            return mailbox.nextId();
+        } finally {
+            mailbox.release();
+        }
+    }
+
+    /**
+     * Payload and framing bytes of the messages currently stored.
+     */
+    public long getUsedBytes(String address) throws IOException {
+        Mailbox mailbox = mailbox(account(address));
+        mailbox.lock.lock();
+        try {
+            return mailbox.liveBytes;
+        } finally {
+            mailbox.release();
+        }
+    }
+
+    /**
+     * Forces and closes every open segment.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Mailbox mailbox : mailboxes.values()) {
+            mailbox.lock.lock();
+            try {
+                mailbox.closeActive(true);
+                writeHead(mailbox);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                mailbox.lock.unlock();
+            }
+        }
+        synchronized (openSegments) {
+            openSegments.clear();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Capacity
+
+    // Caller holds the mailbox lock. Capacity is enforced in bytes; the quota counts whole megabytes used.
+    private void makeRoom(Mailbox mailbox, Email account, long frameBytes) throws IOException {
+        QuotaEngine quotas = registry.getQuotas();
+        while (true) {
+            long limit = quotas.getAllocated(account) * MEGABYTE;
+            int neededMb = megabytes(mailbox.liveBytes + frameBytes) - megabytes(mailbox.liveBytes);
+            if (mailbox.liveBytes + frameBytes <= limit && quotas.reserve(account, neededMb)) {
+                mailbox.liveBytes += frameBytes;
+                return;
+            }
+            if (policy == OverflowPolicy.REJECT || mailbox.isEmpty()) {
+                throw new IllegalArgumentException("Mailbox is full: " + account.getEmailAddress());
+            }
+            evictOldest(mailbox, account);
+        }
+    }
+
+    private void evictOldest(Mailbox mailbox, Email account) throws IOException {
+        long before = mailbox.liveBytes;
+        mailbox.liveBytes -= FRAME_HEADER + mailbox.lengths[mailbox.head];
+        mailbox.head++;
+        mailbox.firstId++;
+        registry.getQuotas().release(account, megabytes(before) - megabytes(mailbox.liveBytes));
+
+        // Drop segments that no longer hold a live message, except the one being written
+        boolean deleted = false;
+        while (mailbox.segments.size() > 1 && mailbox.segments.get(1) <= mailbox.firstId) {
+            Files.deleteIfExists(segmentPath(mailbox, mailbox.segments.remove(0)));
+            deleted = true;
+        }
+        if (deleted) {
+            writeHead(mailbox);
+        }
+    }
+
+    private static int megabytes(long bytes) {
+        return (int) (bytes / MEGABYTE);
+    }
+
+    // Mailboxes
+
+    private Email account(String address) {
+        Email account = registry.findByAddress(address);
+        if (account == null) {
+            throw new IllegalArgumentException("No such account: " + address);
+        }
+        return account;
+    }
+
+    private Mailbox mailbox(Email account) throws IOException {
+        String key = account.getEmailAddress().toLowerCase(Locale.ROOT);
+        Mailbox mailbox = mailboxes.get(key);
+        if (mailbox != null) {
+            return mailbox;
+        }
+        Mailbox loaded = new Mailbox(dir.resolve(directoryName(key)));
+        loaded.lock.lock();
+        try {
+            Mailbox existing = mailboxes.putIfAbsent(key, loaded);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                load(loaded, account);
+            } catch (IOException | RuntimeException e) {
+                mailboxes.remove(key, loaded);
+                throw e;
+            }
+        } finally {
+            loaded.lock.unlock();
+        }
+        return loaded;
+    }
+
+    // Rebuilds the offset index from frame headers; drops a torn frame at the tail
+    private void load(Mailbox mailbox, Email account) throws IOException {
+        Files.createDirectories(mailbox.dir);
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(mailbox.dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segments.sort(null);
+
+        long head = readHead(mailbox);
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        for (long first : segments) {
+            mailbox.startSegment(first);
+            try (FileChannel channel = FileChannel.open(segmentPath(mailbox, first),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long position = 0;
+                while (position + FRAME_HEADER <= size) {
+                    header.clear();
+                    channel.read(header, position);
+                    int length = header.getInt(0);
+                    if (length <= 0 || position + FRAME_HEADER + length > size) {
+                        break;
+                    }
+                    mailbox.add((int) position + FRAME_HEADER, length);
+                    mailbox.liveBytes += FRAME_HEADER + length;
+                    position += FRAME_HEADER + length;
+                }
+                if (position < size) {
+                    channel.truncate(position);
+                }
+                mailbox.activeBytes = position;
+            }
+        }
+
+        // Messages evicted before a restart stay in their segment until it is deleted
+        while (mailbox.firstId < head && !mailbox.isEmpty()) {
+            mailbox.liveBytes -= FRAME_HEADER + mailbox.lengths[mailbox.head];
+            mailbox.head++;
+            mailbox.firstId++;
+        }
+        if (mailbox.isEmpty()) {
+            mailbox.firstId = Math.max(mailbox.firstId, head);
+        }
+
+        // Count stored messages against the quota, evicting if capacity has since shrunk
+        QuotaEngine quotas = registry.getQuotas();
+        long limit = quotas.getAllocated(account) * MEGABYTE;
+        while (!mailbox.isEmpty() && mailbox.liveBytes > limit) {
+            mailbox.liveBytes -= FRAME_HEADER + mailbox.lengths[mailbox.head];
+            mailbox.head++;
+            mailbox.firstId++;
+        }
+        quotas.reserve(account, megabytes(mailbox.liveBytes));
+        if (mailbox.firstId != head) {
+            writeHead(mailbox);
+        }
+    }
+
+    private FileChannel activeSegment(Mailbox mailbox, long rollBytes) throws IOException {
+        if (mailbox.active != null && mailbox.activeBytes >= rollBytes) {
+            mailbox.closeActive(false);
+        }
+        if (mailbox.active == null) {
+            if (mailbox.segments.isEmpty() || mailbox.activeBytes >= rollBytes) {
+                mailbox.startSegment(mailbox.nextId());
+                mailbox.activeBytes = 0;
+            }
+            mailbox.active = FileChannel.open(segmentPath(mailbox, mailbox.lastSegment()),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        trackOpen(mailbox);
+        return mailbox.active;
+    }
+
+    private void trackOpen(Mailbox mailbox) throws IOException {
+        Mailbox victim = null;
+        synchronized (openSegments) {
+            openSegments.put(mailbox, Boolean.TRUE);
+            if (openSegments.size() > MAX_OPEN_SEGMENTS) {
+                Iterator<Mailbox> eldest = openSegments.keySet().iterator();
+                victim = eldest.next();
+                eldest.remove();
+            }
+        }
+        if (victim == null || victim == mailbox) {
+            return;
+        }
+        // Never wait on another mailbox's lock while holding our own; a busy victim closes itself
+        if (victim.lock.tryLock()) {
+            try {
+                victim.closeActive(false);
+            } finally {
+                victim.lock.unlock();
+            }
+        } else {
+            victim.closeRequested = true;
+        }
+    }
+
+    // Reads from the active segment share its channel; older segments are opened for the call
+    private SegmentChannel segmentFor(Mailbox mailbox, long id) throws IOException {
+        long first = mailbox.segmentOf(id);
+        if (first == mailbox.lastSegment()) {
+            return new SegmentChannel(activeSegmentForRead(mailbox), false);
+        }
+        return new SegmentChannel(FileChannel.open(segmentPath(mailbox, first), StandardOpenOption.READ), true);
+    }
+
+    private FileChannel activeSegmentForRead(Mailbox mailbox) throws IOException {
+        if (mailbox.active == null) {
+            mailbox.active = FileChannel.open(segmentPath(mailbox, mailbox.lastSegment()),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        trackOpen(mailbox);
+        return mailbox.active;
+    }
+
+    private static Path segmentPath(Mailbox mailbox, long firstId) {
+        return mailbox.dir.resolve(String.format("%020d%s", firstId, SEGMENT_SUFFIX));
+    }
+
+    private static long readHead(Mailbox mailbox) throws IOException {
+        Path file = mailbox.dir.resolve(HEAD_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        return (bytes.length == Long.BYTES) ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    private static void writeHead(Mailbox mailbox) throws IOException {
+        Files.write(mailbox.dir.resolve(HEAD_FILE),
+                ByteBuffer.allocate(Long.BYTES).putLong(mailbox.firstId).array());
+    }
+
+    private static String directoryName(String address) {
+        StringBuilder name = new StringBuilder(address.length());
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '@' || c == '.' || c == '-';
+            name.append(safe ? c : '_');
+        }
+        return name.toString();
+    }
+
+    // A channel that is closed after use only if it was opened for the call
+    private static final class SegmentChannel implements Closeable {
+        final FileChannel channel;
+        final boolean owned;
+
+        SegmentChannel(FileChannel channel, boolean owned) {
+            this.channel = channel;
+            this.owned = owned;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (owned) {
+                channel.close();
+            }
+        }
+    }
+
+    // Offset index and open segment of one mailbox; guarded by lock
+    private static final class Mailbox {
+        final Path dir;
+        final ReentrantLock lock = new ReentrantLock();
+
+        // First message id of each segment, oldest first
+        final List<Long> segments = new ArrayList<>();
+
+        // Live messages are slots head..count-1; slot head holds firstId
+        int[] positions = new int[16];
+        int[] lengths = new int[16];
+        int head;
+        int count;
+        long firstId;
+
+        long liveBytes;
+        long activeBytes;
+        FileChannel active;
+        volatile boolean closeRequested;
+
+        Mailbox(Path dir) {
+            this.dir = dir;
+        }
+
+        boolean isEmpty() {
+            return head == count;
+        }
+
+        long nextId() {
+            return firstId + (count - head);
+        }
+
+        long lastSegment() {
+            return segments.get(segments.size() - 1);
+        }
+
+        void startSegment(long firstMessageId) {
+            if (segments.isEmpty() && isEmpty()) {
+                firstId = firstMessageId;
+            }
+            segments.add(firstMessageId);
+        }
+
+        long add(int position, int length) {
+            if (count == positions.length) {
+                if (head > positions.length / 2) {
+                    // Reclaim evicted slots instead of growing
+                    int live = count - head;
+                    System.arraycopy(positions, head, positions, 0, live);
+                    System.arraycopy(lengths, head, lengths, 0, live);
+                    head = 0;
+                    count = live;
+                } else {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                    lengths = Arrays.copyOf(lengths, lengths.length * 2);
+                }
+            }
+            positions[count] = position;
+            lengths[count] = length;
+            count++;
+            return nextId() - 1;
+        }
+
+        int slot(long id) {
+            if (id < firstId || id >= nextId()) {
+                throw new IllegalArgumentException("No such message: " + id);
+            }
+            return head + (int) (id - firstId);
+        }
+
+        long segmentOf(long id) {
+            int index = segments.size() - 1;
+            while (index > 0 && segments.get(index) > id) {
+                index--;
+            }
+            return segments.get(index);
+        }
+
+        void closeActive(boolean force) throws IOException {
+            closeRequested = false;
+            if (active != null) {
+                if (force) {
+                    active.force(false);
+                }
+                active.close();
+                active = null;
+            }
+        }
+
+        // Unlocks, first closing the segment if another thread asked while we held the lock
+        void release() throws IOException {
+            try {
+                if (closeRequested) {
+                    closeActive(false);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
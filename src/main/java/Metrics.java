@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide operation timers and event counters.
+ *
+ * Instrumentation is off unless the JVM starts with -Demail.metrics=true. ENABLED is a
+ * static final constant, so with metrics off the JIT folds every start()/stop() pair
+ * away and instrumented code pays nothing. Timers and counters are created once and kept
+ * in static fields at the call site:
+ *
+ *   private static final Metrics.Timer VERIFY = Metrics.timer("verify_password");
+ *   long start = Metrics.start();
+ *   ...
+ *   VERIFY.stop(start);
+ *
+ * MetricsExporter publishes everything registered here.
+ */
+public final class Metrics {
+
+    public static final String ENABLED_PROPERTY = "email.metrics";
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the timer with this name, creating it on first use.
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Start time for Timer.stop(); 0 when metrics are disabled.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Registered timers sorted by name.
+     */
+    public static List<Timer> timers() {
+        List<Timer> all = new ArrayList<>(TIMERS.values());
+        all.sort(null);
+        return Collections.unmodifiableList(all);
+    }
+
+    public static List<Counter> counters() {
+        List<Counter> all = new ArrayList<>(COUNTERS.values());
+        all.sort(null);
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Latency histogram and call count for one operation.
+     */
+    public static final class Timer implements Comparable<Timer> {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Records the time since start, as returned by Metrics.start().
+         */
+        public void stop(long start) {
+            if (ENABLED) {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        public LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            return name.compareTo(other.name);
+        }
+    }
+
+    /**
+     * Monotonic event count, striped across threads.
+     */
+    public static final class Counter implements Comparable<Counter> {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increment() {
+            if (ENABLED) {
+                count.increment();
+            }
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        public int compareTo(Counter other) {
+            return name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes Metrics three ways: a periodic log line, a JMX MBean and Prometheus-style text.
+ *
+ * Every interval the exporter turns counts into per-second rates over that interval; all
+ * three views report the latest rates. The MBean (EmailManagementSystem:type=Metrics) has
+ * attributes named "<timer>.count", ".ratePerSecond", ".p50Micros", ".p99Micros",
+ * ".p999Micros", ".maxMicros", and "<counter>.count" / ".ratePerSecond".
+ */
+public class MetricsExporter implements Closeable {
+
+    public static final String LOG_INTERVAL_PROPERTY = "email.metrics.log.seconds";
+    public static final String OBJECT_NAME = "EmailManagementSystem:type=Metrics";
+
+    private static final int DEFAULT_INTERVAL_SECONDS = 10;
+
+    private final int intervalSeconds;
+    private final PrintStream log;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectName objectName;
+
+    // Count at the previous tick and the rate over the last interval, per metric name
+    private final Map<String, Long> previousCounts = new ConcurrentHashMap<>();
+    private final Map<String, Double> rates = new ConcurrentHashMap<>();
+
+    private MetricsExporter(int intervalSeconds, PrintStream log) throws JMException {
+        this.intervalSeconds = intervalSeconds;
+        this.log = log;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-exporter");
+            t.setDaemon(true);
+            return t;
+        });
+        this.objectName = new ObjectName(OBJECT_NAME);
+    }
+
+    /**
+     * Registers the MBean and starts the rate ticker. Logs to stderr every
+     * -Demail.metrics.log.seconds seconds when that is set; rates use the same interval.
+     */
+    public static MetricsExporter start() throws JMException {
+        int logSeconds = Integer.getInteger(LOG_INTERVAL_PROPERTY, 0);
+        int interval = (logSeconds > 0) ? logSeconds : DEFAULT_INTERVAL_SECONDS;
+        MetricsExporter exporter = new MetricsExporter(interval, (logSeconds > 0) ? System.err : null);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(exporter.objectName)) {
+            server.unregisterMBean(exporter.objectName);
+        }
+        server.registerMBean(exporter.new MetricsMBean(), exporter.objectName);
+        exporter.scheduler.scheduleAtFixedRate(exporter::tick, interval, interval, TimeUnit.SECONDS);
+        return exporter;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ignored) {
+            // already unregistered
+        }
+    }
+
+    private void tick() {
+        for (Metrics.Timer timer : Metrics.timers()) {
+            updateRate(timer.getName(), timer.snapshot().getCount());
+        }
+        for (Metrics.Counter counter : Metrics.counters()) {
+            updateRate(counter.getName(), counter.get());
+        }
+        if (log != null) {
+            log.println(logLine());
+        }
+    }
+
+    private void updateRate(String name, long count) {
+        Long previous = previousCounts.put(name, count);
+        rates.put(name, (count - ((previous == null) ? 0 : previous)) / (double) intervalSeconds);
+    }
+
+    private double rate(String name) {
+        return rates.getOrDefault(name, 0.0);
+    }
+
+    /**
+     * One line covering every timer and counter that has recorded anything.
+     */
+    public String logLine() {
+        StringBuilder line = new StringBuilder("metrics");
+        for (Metrics.Timer timer : Metrics.timers()) {
+            LatencyHistogram.Snapshot s = timer.snapshot();
+            if (s.getCount() == 0) {
+                continue;
+            }
+            line.append(String.format(Locale.ROOT, " %s[n=%d %.1f/s p50=%s p99=%s max=%s]",
+                    timer.getName(), s.getCount(), rate(timer.getName()),
+                    duration(s.percentileNanos(0.50)), duration(s.percentileNanos(0.99)),
+                    duration(s.getMaxNanos())));
+        }
+        for (Metrics.Counter counter : Metrics.counters()) {
+            if (counter.get() > 0) {
+                line.append(String.format(Locale.ROOT, " %s[n=%d %.1f/s]",
+                        counter.getName(), counter.get(), rate(counter.getName())));
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     */
+    public static void writeText(Appendable out) throws IOException {
+        out.append("# HELP email_operation_seconds Duration of account operations.\n");
+        out.append("# TYPE email_operation_seconds summary\n");
+        for (Metrics.Timer timer : Metrics.timers()) {
+            LatencyHistogram.Snapshot s = timer.snapshot();
+            String op = "op=\"" + timer.getName() + "\"";
+            for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+                out.append("email_operation_seconds{").append(op)
+                   .append(",quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                   .append(seconds(s.percentileNanos(quantile))).append('\n');
+            }
+            out.append("email_operation_seconds_sum{").append(op).append("} ")
+               .append(seconds(s.getSumNanos())).append('\n');
+            out.append("email_operation_seconds_count{").append(op).append("} ")
+               .append(Long.toString(s.getCount())).append('\n');
+        }
+        out.append("# HELP email_events_total Account events and failures.\n");
+        out.append("# TYPE email_events_total counter\n");
+        for (Metrics.Counter counter : Metrics.counters()) {
+            out.append("email_events_total{event=\"").append(counter.getName()).append("\"} ")
+               .append(Long.toString(counter.get())).append('\n');
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String duration(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+    }
+
+    // Attributes are listed from the metrics registered at the time of each call
+    private class MetricsMBean implements DynamicMBean {
+
+        private static final String[] TIMER_FIELDS =
+                {"count", "ratePerSecond", "p50Micros", "p99Micros", "p999Micros", "maxMicros"};
+        private static final String[] COUNTER_FIELDS = {"count", "ratePerSecond"};
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            int dot = attribute.lastIndexOf('.');
+            if (dot > 0) {
+                String name = attribute.substring(0, dot);
+                String field = attribute.substring(dot + 1);
+                for (Metrics.Timer timer : Metrics.timers()) {
+                    if (timer.getName().equals(name)) {
+                        return timerField(timer, field);
+                    }
+                }
+                for (Metrics.Counter counter : Metrics.counters()) {
+                    if (counter.getName().equals(name) && field.equals("count")) {
+                        return (double) counter.get();
+                    }
+                    if (counter.getName().equals(name) && field.equals("ratePerSecond")) {
+                        return rate(name);
+                    }
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        private Object timerField(Metrics.Timer timer, String field) throws AttributeNotFoundException {
+            LatencyHistogram.Snapshot s = timer.snapshot();
+            return switch (field) {
+                case "count" -> (double) s.getCount();
+                case "ratePerSecond" -> rate(timer.getName());
+                case "p50Micros" -> s.percentileNanos(0.50) / 1e3;
+                case "p99Micros" -> s.percentileNanos(0.99) / 1e3;
+                case "p999Micros" -> s.percentileNanos(0.999) / 1e3;
+                case "maxMicros" -> s.getMaxNanos() / 1e3;
+                default -> throw new AttributeNotFoundException(timer.getName() + "." + field);
+            };
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException ignored) {
+                    // omitted, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("No operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Metrics.Timer timer : Metrics.timers()) {
+                for (String field : TIMER_FIELDS) {
+                    attributes.add(attribute(timer.getName() + "." + field));
+                }
+            }
+            for (Metrics.Counter counter : Metrics.counters()) {
+                for (String field : COUNTER_FIELDS) {
+                    attributes.add(attribute(counter.getName() + "." + field));
+                }
+            }
+            return new MBeanInfo(MetricsExporter.class.getName(), "Account operation metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo attribute(String name) {
+            return new MBeanAttributeInfo(name, "double", name, true, false, false);
+        }
+    }
+}
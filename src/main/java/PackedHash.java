@@ -0,0 +1,79 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Binary form of an encoded password hash, for keeping in memory.
+ *
+ * A PBKDF2 hash "pbkdf2-sha256$iterations$salt$hash" is about 85 characters of text, most
+ * of it Base64. Packed, it is the iteration count and the raw salt and hash bytes, a third
+ * smaller and without a String around it. unpack gives back the exact text, so journals,
+ * snapshots and PasswordHasher.verify see no difference. Any other encoding is kept as its
+ * UTF-8 bytes.
+ */
+final class PackedHash {
+
+    private static final String PBKDF2_PREFIX = "pbkdf2-sha256$";
+
+    private static final byte TEXT = 0;
+    private static final byte PBKDF2 = 1;
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    private PackedHash() {
+    }
+
+    static byte[] pack(String encodedHash) {
+        byte[] packed = packPbkdf2(encodedHash);
+        if (packed != null) {
+            return packed;
+        }
+        byte[] text = encodedHash.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[text.length + 1];
+        result[0] = TEXT;
+        System.arraycopy(text, 0, result, 1, text.length);
+        return result;
+    }
+
+    static String unpack(byte[] packed) {
+        if (packed[0] == TEXT) {
+            return new String(packed, 1, packed.length - 1, StandardCharsets.UTF_8);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(packed, 1, packed.length - 1);
+        int iterations = buffer.getInt();
+        byte[] salt = new byte[buffer.get() & 0xFF];
+        buffer.get(salt);
+        byte[] hash = new byte[buffer.remaining()];
+        buffer.get(hash);
+        return PBKDF2_PREFIX + iterations + "$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(hash);
+    }
+
+    // Null unless the text is exactly what unpack would rebuild from the parsed parts
+    private static byte[] packPbkdf2(String encodedHash) {
+        if (!encodedHash.startsWith(PBKDF2_PREFIX)) {
+            return null;
+        }
+        String[] parts = encodedHash.substring(PBKDF2_PREFIX.length()).split("\\$", -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        int iterations;
+        byte[] salt;
+        byte[] hash;
+        try {
+            iterations = Integer.parseInt(parts[0]);
+            salt = DECODER.decode(parts[1]);
+            hash = DECODER.decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (salt.length > 0xFF) {
+            return null;
+        }
+        byte[] packed = ByteBuffer.allocate(6 + salt.length + hash.length)
+                .put(PBKDF2).putInt(iterations).put((byte) salt.length).put(salt).put(hash)
+                .array();
+        return encodedHash.equals(unpack(packed)) ? packed : null;
+    }
+}
@@ -0,0 +1,177 @@
+import java.security.SecureRandom;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Generates Word+Word+Symbol+Year-Digits passwords without shared hot spots.
+ * Each thread has its own SecureRandom and char buffer, the current year is cached
+ * until the next year boundary, and an optional pool is kept full by a background thread.
+ */
+public final class PasswordGenerator {
+
+    // Password generation components
+    private static final char[][] ADJECTIVES = words(
+        "Blue", "Green", "Silver", "Golden", "Crimson",
+        "Purple", "Azure", "Amber", "Emerald", "Ivory",
+        "Scarlet", "Violet", "Copper", "Bronze", "Pearl",
+        "Ruby", "Jade", "Topaz", "Coral", "Platinum"
+    );
+
+    private static final char[][] NOUNS = words(
+        "Sky", "Ocean", "Forest", "River", "Moon",
+        "Star", "Cloud", "Fire", "Stone", "Leaf",
+        "Wind", "Rain", "Snow", "Sun", "Wave",
+        "Mountain", "Valley", "Lake", "Desert", "Meadow"
+    );
+
+    private static final char[] SPECIAL_CHARS = {'@', '#', '$', '&', '!', '*', '%', '+', '='};
+
+    // One draw covers adjective, noun, symbol and two digits
+    private static final int COMBINATIONS = ADJECTIVES.length * NOUNS.length * SPECIAL_CHARS.length * 100;
+
+    private static final int MAX_LENGTH = 8 + 8 + 1 + 4 + 1 + 2;
+
+    private static final PasswordGenerator SHARED = new PasswordGenerator();
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private volatile CachedYear year = CachedYear.current();
+    private volatile Pool pool;
+
+    public static PasswordGenerator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a password, taking it from the pool when one is enabled and non-empty.
+     */
+    public String generate() {
+        Pool current = pool;
+        if (current != null) {
+            String pooled = current.queue.poll();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        return generateDirect();
+    }
+
+    /**
+     * Builds a fresh password on the calling thread.
+     */
+    public String generateDirect() {
+        int draw = RANDOM.get().nextInt(COMBINATIONS);
+        int digits = draw % 100;
+        draw /= 100;
+        char symbol = SPECIAL_CHARS[draw % SPECIAL_CHARS.length];
+        draw /= SPECIAL_CHARS.length;
+        char[] noun = NOUNS[draw % NOUNS.length];
+        char[] adjective = ADJECTIVES[draw / NOUNS.length];
+
+        char[] buf = BUFFER.get();
+        int pos = 0;
+        System.arraycopy(adjective, 0, buf, pos, adjective.length);
+        pos += adjective.length;
+        System.arraycopy(noun, 0, buf, pos, noun.length);
+        pos += noun.length;
+        buf[pos++] = symbol;
+
+        char[] yearDigits = currentYear().digits;
+        System.arraycopy(yearDigits, 0, buf, pos, yearDigits.length);
+        pos += yearDigits.length;
+
+        buf[pos++] = '-';
+        buf[pos++] = (char) ('0' + digits / 10);
+        buf[pos++] = (char) ('0' + digits % 10);
+        return new String(buf, 0, pos);
+    }
+
+    /**
+     * Starts a background thread that keeps up to capacity passwords ready.
+     */
+    public synchronized void enablePool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pool capacity must be at least 1");
+        }
+        disablePool();
+        pool = new Pool(this, capacity);
+    }
+
+    public synchronized void disablePool() {
+        if (pool != null) {
+            pool.stop();
+            pool = null;
+        }
+    }
+
+    public boolean isPoolEnabled() {
+        return pool != null;
+    }
+
+    private CachedYear currentYear() {
+        CachedYear cached = year;
+        if (System.currentTimeMillis() >= cached.validUntilMillis) {
+            cached = CachedYear.current();
+            year = cached;
+        }
+        return cached;
+    }
+
+    private static char[][] words(String... values) {
+        char[][] result = new char[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i].toCharArray();
+        }
+        return result;
+    }
+
+    /**
+     * Current year digits plus the instant the next year starts.
+     */
+    private static final class CachedYear {
+        final char[] digits;
+        final long validUntilMillis;
+
+        private CachedYear(int year, long validUntilMillis) {
+            this.digits = Integer.toString(year).toCharArray();
+            this.validUntilMillis = validUntilMillis;
+        }
+
+        static CachedYear current() {
+            ZoneId zone = ZoneId.systemDefault();
+            int value = Year.now(zone).getValue();
+            long nextYear = Year.of(value + 1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new CachedYear(value, nextYear);
+        }
+    }
+
+    /**
+     * Bounded queue of ready passwords; the refill thread blocks while it is full.
+     */
+    private static final class Pool {
+        final ArrayBlockingQueue<String> queue;
+        final Thread refill;
+
+        Pool(PasswordGenerator generator, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.refill = new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        queue.put(generator.generateDirect());
+                    }
+                } catch (InterruptedException e) {
+                    // Pool disabled
+                }
+            }, "password-pool-refill");
+            refill.setDaemon(true);
+            refill.start();
+        }
+
+        void stop() {
+            refill.interrupt();
+            queue.clear();
+        }
+    }
+}
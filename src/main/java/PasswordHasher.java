@@ -0,0 +1,17 @@
+/**
+ * Strategy for turning a plaintext password into a storable, salted hash.
+ * Encoded hashes carry their own parameters so the cost can change without
+ * invalidating existing accounts.
+ */
+public interface PasswordHasher {
+
+    /**
+     * Returns an encoded hash with a fresh random salt.
+     */
+    String hash(String password);
+
+    /**
+     * Checks a password against an encoded hash in constant time.
+     */
+    boolean verify(String password, String encodedHash);
+}
@@ -0,0 +1,272 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks used and allocated mailbox megabytes per account and enforces the limit.
+ *
+ * Each account has one 64-bit slot, addressed by its dense account id, holding allocated
+ * MB in the high half and used MB in the low half, so a reservation is checked and applied
+ * with a single compare-and-set. Slots live in fixed-size chunks of heap or direct
+ * (-Demail.quota.offheap=true) buffers. Accounts that are full or near their limit are kept
+ * in separate sets, updated only when an account crosses a threshold.
+ */
+public class QuotaEngine implements AccountListener {
+
+    public static final String OFF_HEAP_PROPERTY = "email.quota.offheap";
+    public static final int DEFAULT_NEAR_PERCENT = 90;
+
+    /**
+     * Where an account stands against its allocation.
+     */
+    public enum Level {
+        NORMAL, NEAR, OVER
+    }
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int SLOT_BYTES = Long.BYTES;
+
+    private static final VarHandle SLOT =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final AccountRegistry registry;
+    private final boolean offHeap;
+    private final int nearPercent;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private final Object growLock = new Object();
+
+    // Threshold index; membership is corrected under the account's stripe after a level change
+    private final Set<Integer> near = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> over = ConcurrentHashMap.newKeySet();
+    private final StripedLock indexLocks = new StripedLock();
+
+    public QuotaEngine(AccountRegistry registry) {
+        this(registry, Boolean.getBoolean(OFF_HEAP_PROPERTY), DEFAULT_NEAR_PERCENT);
+    }
+
+    public QuotaEngine(AccountRegistry registry, boolean offHeap, int nearPercent) {
+        if (nearPercent < 1 || nearPercent > 100) {
+            throw new IllegalArgumentException("Near-quota threshold must be between 1 and 100 percent");
+        }
+        this.registry = registry;
+        this.offHeap = offHeap;
+        this.nearPercent = nearPercent;
+    }
+
+    // AccountListener: keep the allocation in step with the account's capacity
+
+    @Override
+    public void onCreated(Email account) {
+        setAllocated(account.getAccountId(), account.getMailboxCapacity());
+    }
+
+    @Override
+    public void onMailboxCapacityChanged(Email account, int previousCapacity) {
+        setAllocated(account.getAccountId(), account.getMailboxCapacity());
+    }
+
+    /**
+     * Adds megabytes to the account's usage if they fit its allocation; returns false otherwise.
+     */
+    public boolean reserve(Email account, int megabytes) {
+        if (megabytes < 0) {
+            throw new IllegalArgumentException("Cannot reserve a negative amount");
+        }
+        int id = idOf(account);
+        ByteBuffer chunk = chunk(id);
+        int offset = offset(id);
+        while (true) {
+            long current = (long) SLOT.getVolatile(chunk, offset);
+            long used = used(current);
+            if (used + megabytes > allocated(current)) {
+                return false;
+            }
+            long updated = pack(allocated(current), used + megabytes);
+            if (SLOT.compareAndSet(chunk, offset, current, updated)) {
+                reindexIfChanged(id, current, updated);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns megabytes to the account's free space.
+     */
+    public void release(Email account, int megabytes) {
+        if (megabytes < 0) {
+            throw new IllegalArgumentException("Cannot release a negative amount");
+        }
+        int id = idOf(account);
+        ByteBuffer chunk = chunk(id);
+        int offset = offset(id);
+        while (true) {
+            long current = (long) SLOT.getVolatile(chunk, offset);
+            long used = used(current);
+            if (megabytes > used) {
+                throw new IllegalArgumentException("Cannot release " + megabytes + " MB; only " + used + " MB in use");
+            }
+            long updated = pack(allocated(current), used - megabytes);
+            if (SLOT.compareAndSet(chunk, offset, current, updated)) {
+                reindexIfChanged(id, current, updated);
+                return;
+            }
+        }
+    }
+
+    public int getUsed(Email account) {
+        return (int) used(slot(account));
+    }
+
+    public int getAllocated(Email account) {
+        return (int) allocated(slot(account));
+    }
+
+    public Level getLevel(Email account) {
+        return level(slot(account));
+    }
+
+    /**
+     * Accounts whose usage has reached their allocation, in creation order.
+     */
+    public List<Email> overQuota() {
+        return accounts(over);
+    }
+
+    /**
+     * Accounts at or above the near-quota threshold but not yet full, in creation order.
+     */
+    public List<Email> nearQuota() {
+        return accounts(near);
+    }
+
+    public int overQuotaCount() {
+        return over.size();
+    }
+
+    public int nearQuotaCount() {
+        return near.size();
+    }
+
+    public int getNearPercent() {
+        return nearPercent;
+    }
+
+    // Slot access
+
+    private void setAllocated(int id, int megabytes) {
+        ByteBuffer chunk = chunk(id);
+        int offset = offset(id);
+        while (true) {
+            long current = (long) SLOT.getVolatile(chunk, offset);
+            long updated = pack(megabytes, used(current));
+            if (SLOT.compareAndSet(chunk, offset, current, updated)) {
+                reindexIfChanged(id, current, updated);
+                return;
+            }
+        }
+    }
+
+    private long slot(Email account) {
+        int id = idOf(account);
+        return (long) SLOT.getVolatile(chunk(id), offset(id));
+    }
+
+    private void ensureCapacity(int id) {
+        int needed = (id >>> CHUNK_BITS) + 1;
+        if (chunks.length >= needed) {
+            return;
+        }
+        synchronized (growLock) {
+            ByteBuffer[] current = chunks;
+            if (current.length >= needed) {
+                return;
+            }
+            ByteBuffer[] grown = new ByteBuffer[Math.max(needed, current.length * 2)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            for (int i = current.length; i < grown.length; i++) {
+                int bytes = SLOT_BYTES << CHUNK_BITS;
+                grown[i] = (offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes))
+                        .order(ByteOrder.nativeOrder());
+            }
+            chunks = grown;
+        }
+    }
+
+    private ByteBuffer chunk(int id) {
+        ByteBuffer[] current = chunks;
+        int index = id >>> CHUNK_BITS;
+        if (index >= current.length) {
+            ensureCapacity(id);
+            current = chunks;
+        }
+        return current[index];
+    }
+
+    private static int offset(int id) {
+        return (id & CHUNK_MASK) * SLOT_BYTES;
+    }
+
+    private static int idOf(Email account) {
+        int id = account.getAccountId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Account is not registered: " + account.getEmailAddress());
+        }
+        return id;
+    }
+
+    // Threshold index
+
+    private void reindexIfChanged(int id, long before, long after) {
+        if (level(before) == level(after)) {
+            return;
+        }
+        // Re-read under the lock so the last reindex always reflects the latest slot value
+        indexLocks.run(id, () -> {
+            Level level = level((long) SLOT.getVolatile(chunk(id), offset(id)));
+            if (level == Level.OVER) over.add(id); else over.remove(id);
+            if (level == Level.NEAR) near.add(id); else near.remove(id);
+        });
+    }
+
+    private Level level(long slot) {
+        long allocated = allocated(slot);
+        long used = used(slot);
+        if (allocated == 0) {
+            return Level.NORMAL;
+        }
+        if (used >= allocated) {
+            return Level.OVER;
+        }
+        return (used * 100 >= allocated * nearPercent) ? Level.NEAR : Level.NORMAL;
+    }
+
+    private List<Email> accounts(Set<Integer> ids) {
+        Integer[] sorted = ids.toArray(new Integer[0]);
+        Arrays.sort(sorted);
+        List<Email> result = new ArrayList<>(sorted.length);
+        for (int id : sorted) {
+            result.add(registry.get(id));
+        }
+        return result;
+    }
+
+    private static long pack(long allocated, long used) {
+        return (allocated << 32) | (used & 0xFFFF_FFFFL);
+    }
+
+    private static long allocated(long slot) {
+        return slot >>> 32;
+    }
+
+    private static long used(long slot) {
+        return slot & 0xFFFF_FFFFL;
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts failures per key over a sliding window and locks a key out once it has too many.
+ *
+ * Each key's counter is a single long: the index of the current fixed window and the
+ * failure counts for it and the window before. The sliding count weights the previous
+ * window by how much of it still overlaps the last windowMillis, so no timestamp is kept
+ * per attempt. Reaching maxFailures locks the key out for baseLockout, twice as long on each
+ * further lockout up to maxLockout. The escalation is forgotten once a lockout has been over
+ * for maxLockout.
+ *
+ * A key gets an entry on its first failure, so checking a well-behaved key is one map
+ * lookup. The map is bounded: past maxEntries it is trimmed by evicting idle entries first,
+ * then entries that are not locked out, and only then locked-out ones.
+ */
+public class SlidingWindowLimiter {
+
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final int maxFailures;
+    private final long windowMillis;
+    private final long baseLockoutMillis;
+    private final long maxLockoutMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public SlidingWindowLimiter(int maxFailures, long windowMillis, long baseLockoutMillis,
+                                long maxLockoutMillis, int maxEntries, LongSupplier clock) {
+        // Windows of a second or more keep the window index within 32 bits
+        if (maxFailures < 1 || maxFailures > MAX_COUNT || windowMillis < 1_000 || baseLockoutMillis < 1
+                || maxLockoutMillis < baseLockoutMillis || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid rate limit settings");
+        }
+        this.maxFailures = maxFailures;
+        this.windowMillis = windowMillis;
+        this.baseLockoutMillis = baseLockoutMillis;
+        this.maxLockoutMillis = maxLockoutMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Milliseconds until key may try again; 0 when it is not locked out.
+     */
+    public long retryAfterMillis(String key) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return 0;
+        }
+        return Math.max(0, counter.lockedUntil - clock.getAsLong());
+    }
+
+    /**
+     * Counts a failure for key; returns the length of the lockout it started, or 0.
+     */
+    public long recordFailure(String key) {
+        long now = clock.getAsLong();
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> new Counter());
+            if (counters.size() > maxEntries) {
+                evict(now);
+            }
+        }
+        return counter.fail(now);
+    }
+
+    /**
+     * Forgets key's failures and lockout escalation.
+     */
+    public void reset(String key) {
+        counters.remove(key);
+    }
+
+    /**
+     * Keys currently tracked.
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    // Trims the map below maxEntries; one thread at a time, others carry on over the limit
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = maxEntries - maxEntries / 8;
+            long window = now / windowMillis;
+            for (int pass = 0; pass < 3 && counters.size() > target; pass++) {
+                Iterator<Map.Entry<String, Counter>> entries = counters.entrySet().iterator();
+                while (entries.hasNext() && counters.size() > target) {
+                    // state is read without the counter's lock; a stale value only changes which entry goes
+                    Counter counter = entries.next().getValue();
+                    boolean lockedOut = counter.lockedUntil > now;
+                    boolean idle = !lockedOut && (counter.state >>> 32) < window - 1;
+                    if (pass == 2 || (pass == 1 && !lockedOut) || idle) {
+                        entries.remove();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // state: window index (high 32 bits), current window count, previous window count (16 bits each)
+    private final class Counter {
+        long state;
+        int level;
+        volatile long lockedUntil;
+
+        synchronized long fail(long now) {
+            long window = now / windowMillis;
+            long stateWindow = state >>> 32;
+            int current = (int) (state >>> 16) & MAX_COUNT;
+            int previous = (int) state & MAX_COUNT;
+            if (window != stateWindow) {
+                previous = (window == stateWindow + 1) ? current : 0;
+                current = 0;
+            }
+            current = Math.min(current + 1, MAX_COUNT);
+            state = (window << 32) | ((long) current << 16) | previous;
+
+            double overlap = 1.0 - (double) (now % windowMillis) / windowMillis;
+            if (current + previous * overlap < maxFailures) {
+                return 0;
+            }
+            if (now - lockedUntil > maxLockoutMillis) {
+                level = 0;
+            }
+            int doublings = Math.min(level, Long.numberOfLeadingZeros(baseLockoutMillis) - 1);
+            long lockout = Math.min(maxLockoutMillis, baseLockoutMillis << doublings);
+            level++;
+            lockedUntil = now + lockout;
+            // Counting starts over once the lockout has been served
+            state = window << 32;
+            return lockout;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of strings that repeat across accounts, such as first and last names.
+ *
+ * A directory of a million accounts has far fewer distinct names, so accounts holding the
+ * pooled instance share one String and its bytes instead of each keeping a copy. Entries
+ * are never removed; the pool grows with the vocabulary, not with the number of accounts.
+ */
+public final class StringPool {
+
+    private static final StringPool NAMES = new StringPool();
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+
+    /**
+     * The pool shared by all accounts for their names.
+     */
+    public static StringPool names() {
+        return NAMES;
+    }
+
+    /**
+     * Returns the pooled instance equal to value, pooling value itself if it is new.
+     */
+    public String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = pool.putIfAbsent(value, value);
+        return (existing == null) ? value : existing;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Builds fixed-width table rows in one reusable buffer and writes them to a buffered,
+ * non-autoflushing writer. Cells are left-aligned and padded like printf's %-Ns;
+ * text longer than the cell is cut and marked with "---", as ConsoleUI.truncate does.
+ */
+public class TableRenderer {
+
+    private static final String ELLIPSIS = "---";
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(160);
+
+    public TableRenderer(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Renderer writing straight to the process's stdout, bypassing System.out's per-line flushing.
+     */
+    public static TableRenderer forConsole() {
+        return new TableRenderer(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Charset.defaultCharset()),
+                1 << 16));
+    }
+
+    /**
+     * Writes a whole line, such as a border or header.
+     */
+    public TableRenderer line(String text) {
+        row.append(text);
+        return endLine();
+    }
+
+    /**
+     * Appends "| value " padded (or truncated) to width.
+     */
+    public TableRenderer cell(String value, int width) {
+        row.append("| ");
+        appendFitted(value, width);
+        row.append(' ');
+        return this;
+    }
+
+    /**
+     * Appends a "First Last" name cell without building the joined string.
+     */
+    public TableRenderer cell(String first, String last, int width) {
+        row.append("| ");
+        int length = first.length() + 1 + last.length();
+        if (length <= width) {
+            row.append(first).append(' ').append(last);
+            pad(width - length);
+        } else {
+            int keep = width - ELLIPSIS.length();
+            if (keep <= first.length()) {
+                row.append(first, 0, keep);
+            } else {
+                row.append(first).append(' ');
+                row.append(last, 0, keep - first.length() - 1);
+            }
+            row.append(ELLIPSIS);
+        }
+        row.append(' ');
+        return this;
+    }
+
+    /**
+     * Appends a left-aligned number cell; wider numbers extend the cell like printf does.
+     */
+    public TableRenderer cell(long value, int width) {
+        row.append("| ");
+        int start = row.length();
+        row.append(value);
+        pad(width - (row.length() - start));
+        row.append(' ');
+        return this;
+    }
+
+    /**
+     * Closes the row with "|" and hands it to the writer.
+     */
+    public TableRenderer endRow() {
+        row.append('|');
+        return endLine();
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void appendFitted(String value, int width) {
+        if (value == null) {
+            pad(width);
+        } else if (value.length() <= width) {
+            row.append(value);
+            pad(width - value.length());
+        } else {
+            row.append(value, 0, width - ELLIPSIS.length()).append(ELLIPSIS);
+        }
+    }
+
+    private void pad(int count) {
+        for (int i = 0; i < count; i++) {
+            row.append(' ');
+        }
+    }
+
+    private TableRenderer endLine() {
+        row.append(System.lineSeparator());
+        try {
+            out.append(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        row.setLength(0);
+        return this;
+    }
+}
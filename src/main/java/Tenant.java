@@ -0,0 +1,146 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One hosted subsidiary: its own mail domain, department menu and account partition.
+ *
+ * The partition is a separate AccountRegistry with its own journal and audit log in the
+ * tenant's directory, so accounts, indexes, locks and files are never shared between
+ * tenants. It is recovered from disk on first access rather than at startup, and from then
+ * on its own LifecycleSweeper expires the tenant's passwords.
+ */
+public final class Tenant implements Closeable {
+
+    private final String id;
+    private final String domain;
+    private final Map<Department, String> departments;
+    private final Path directory;
+
+    // Set once by open(); read without locking afterwards
+    private volatile Partition partition;
+
+    // departments maps each offered department to this tenant's label for it, in menu order
+    Tenant(String id, String domain, Map<Department, String> departments, Path directory) {
+        this.id = id;
+        this.domain = domain;
+        this.departments = Collections.unmodifiableMap(new LinkedHashMap<>(departments));
+        this.directory = directory;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    /**
+     * Departments offered for new accounts, in menu order.
+     */
+    public List<Department> getDepartments() {
+        return List.copyOf(departments.keySet());
+    }
+
+    /**
+     * This tenant's menu label for one of its departments.
+     */
+    public String getLabel(Department department) {
+        return departments.getOrDefault(department, department.getLabel());
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * True once the partition has been loaded.
+     */
+    public boolean isOpen() {
+        return partition != null;
+    }
+
+    /**
+     * The tenant's accounts, recovering them from disk on first access.
+     */
+    public AccountRegistry accounts() throws IOException {
+        return open().registry;
+    }
+
+    public AccountJournal journal() throws IOException {
+        return open().journal;
+    }
+
+    public AuditLog audit() throws IOException {
+        return open().audit;
+    }
+
+    public LifecycleSweeper sweeper() throws IOException {
+        return open().sweeper;
+    }
+
+    /**
+     * Saves and closes the partition if it was loaded; a later access loads it again.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        Partition open = partition;
+        if (open == null) {
+            return;
+        }
+        partition = null;
+        open.sweeper.close();
+        try {
+            open.audit.close();
+        } finally {
+            open.journal.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + domain + ")";
+    }
+
+    private Partition open() throws IOException {
+        Partition open = partition;
+        if (open != null) {
+            return open;
+        }
+        // Locks only this tenant, so loading one tenant never holds up another
+        synchronized (this) {
+            if (partition == null) {
+                AccountRegistry registry = new AccountRegistry(domain, departments);
+                AccountJournal journal = AccountJournal.open(directory, registry);
+                AuditLog audit;
+                try {
+                    audit = AuditLog.open(directory.resolve(AuditLog.DIR_NAME), registry);
+                } catch (IOException | RuntimeException e) {
+                    journal.close();
+                    throw e;
+                }
+                partition = new Partition(registry, journal, audit, LifecycleSweeper.start(registry));
+            }
+            return partition;
+        }
+    }
+
+    private static final class Partition {
+        final AccountRegistry registry;
+        final AccountJournal journal;
+        final AuditLog audit;
+        final LifecycleSweeper sweeper;
+
+        Partition(AccountRegistry registry, AccountJournal journal, AuditLog audit, LifecycleSweeper sweeper) {
+            this.registry = registry;
+            this.journal = journal;
+            this.audit = audit;
+            this.sweeper = sweeper;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * All hosted tenants, keyed by id and by mail domain.
+ *
+ * The catalog is one line per tenant in tenants.csv under the data directory:
+ * id,domain,code:Label|code:Label|... Reading it touches no account data, since each
+ * tenant loads its own partition on first access. Labels belong to the tenant, so two
+ * tenants may name the same department code differently. The default tenant (company-com
+ * with the standard departments) is always present and keeps its data directly in the data
+ * directory; every other tenant lives in tenants/&lt;id&gt;.
+ */
+public class TenantDirectory implements Closeable {
+
+    public static final String DEFAULT_ID = "default";
+    public static final String CATALOG_FILE = "tenants.csv";
+    public static final String TENANTS_DIR = "tenants";
+
+    private static final String CATALOG_HEADER = "# id,domain,departments (code:Label|code:Label)";
+    private static final Pattern ID = Pattern.compile("[a-z0-9]+(-[a-z0-9]+)*");
+
+    private final Path dataDir;
+    private final ConcurrentHashMap<String, Tenant> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Tenant> byDomain = new ConcurrentHashMap<>();
+
+    private TenantDirectory(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * Reads the tenant catalog in dataDir; no tenant's accounts are loaded.
+     */
+    public static TenantDirectory open(Path dataDir) throws IOException {
+        TenantDirectory tenants = new TenantDirectory(dataDir);
+        tenants.register(new Tenant(DEFAULT_ID, AddressAllocator.DOMAIN,
+                Department.labelled(Department.standardDepartments()), dataDir));
+
+        Path catalog = dataDir.resolve(CATALOG_FILE);
+        if (Files.exists(catalog)) {
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(catalog, StandardCharsets.UTF_8)) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    Tenant tenant = parse(line, dataDir);
+                    tenants.checkNew(tenant);
+                    tenants.register(tenant);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(catalog + " line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return tenants;
+    }
+
+    /**
+     * Adds a tenant and saves the catalog. Departments are code:Label pairs; accounts with
+     * no department are always allowed.
+     */
+    public synchronized Tenant add(String id, String domain, List<String> departments) throws IOException {
+        Tenant tenant = tenant(id, domain, departments, dataDir);
+        checkNew(tenant);
+
+        List<Tenant> catalog = new ArrayList<>(all());
+        catalog.add(tenant);
+        save(catalog);
+        register(tenant);
+        return tenant;
+    }
+
+    public Tenant get(String id) {
+        Tenant tenant = byId.get(id.trim().toLowerCase(Locale.ROOT));
+        if (tenant == null) {
+            throw new IllegalArgumentException("Unknown tenant: " + id);
+        }
+        return tenant;
+    }
+
+    /**
+     * The tenant hosting an address such as mary-smith@dev-acme-com, or null if none does.
+     */
+    public Tenant forAddress(String address) {
+        String domain = address.substring(address.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+        while (true) {
+            Tenant tenant = byDomain.get(domain);
+            if (tenant != null) {
+                return tenant;
+            }
+            // Strip a department prefix: dev-acme-com, then acme-com
+            int dash = domain.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            domain = domain.substring(dash + 1);
+        }
+    }
+
+    public Tenant getDefault() {
+        return byId.get(DEFAULT_ID);
+    }
+
+    /**
+     * Every tenant, default first, then by id.
+     */
+    public List<Tenant> all() {
+        List<Tenant> tenants = new ArrayList<>(byId.values());
+        tenants.sort(Comparator.comparing((Tenant t) -> !DEFAULT_ID.equals(t.getId())).thenComparing(Tenant::getId));
+        return tenants;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Closes every tenant partition that was loaded, reporting the first failure.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Tenant tenant : byId.values()) {
+            try {
+                tenant.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkNew(Tenant tenant) {
+        if (byId.containsKey(tenant.getId())) {
+            throw new IllegalArgumentException("Tenant already exists: " + tenant.getId());
+        }
+        if (overlaps(tenant.getDomain())) {
+            throw new IllegalArgumentException("Domain already hosted: " + tenant.getDomain());
+        }
+    }
+
+    // A new domain must not be, or look like a department address of, a hosted one (or vice versa)
+    private boolean overlaps(String domain) {
+        if (forAddress("@" + domain) != null) {
+            return true;
+        }
+        for (String hosted : byDomain.keySet()) {
+            if (hosted.endsWith("-" + domain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void register(Tenant tenant) {
+        byId.put(tenant.getId(), tenant);
+        byDomain.put(tenant.getDomain(), tenant);
+    }
+
+    private static Tenant parse(String line, Path dataDir) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("expected id,domain,departments");
+        }
+        List<String> departments = new ArrayList<>();
+        for (String department : fields[2].split("\\|")) {
+            if (!department.isBlank()) {
+                departments.add(department);
+            }
+        }
+        return tenant(fields[0], fields[1], departments, dataDir);
+    }
+
+    private static Tenant tenant(String id, String domain, List<String> departmentSpecs, Path dataDir) {
+        String key = id.trim().toLowerCase(Locale.ROOT);
+        String host = domain.trim().toLowerCase(Locale.ROOT);
+        if (!ID.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid tenant id: " + id);
+        }
+        if (!ID.matcher(host).matches() || host.indexOf('-') < 0) {
+            throw new IllegalArgumentException("Invalid domain (expected a form like acme-com): " + domain);
+        }
+
+        Map<Department, String> departments = new LinkedHashMap<>();
+        for (String spec : departmentSpecs) {
+            int colon = spec.indexOf(':');
+            String code = (colon < 0) ? spec : spec.substring(0, colon);
+            String label = (colon < 0) ? code : spec.substring(colon + 1);
+            if (!ID.matcher(code.trim().toLowerCase(Locale.ROOT)).matches()) {
+                throw new IllegalArgumentException("Invalid department code: " + code);
+            }
+            if (label.indexOf(',') >= 0 || label.indexOf('|') >= 0) {
+                throw new IllegalArgumentException("Department label cannot contain ',' or '|': " + label);
+            }
+            if (label.isBlank()) {
+                throw new IllegalArgumentException("Department label is required: " + spec);
+            }
+            Department department = Department.of(code);
+            if (department != Department.NONE && departments.putIfAbsent(department, label.trim()) != null) {
+                throw new IllegalArgumentException("Department listed twice: " + department.getCode());
+            }
+        }
+        departments.put(Department.NONE, Department.NONE.getLabel());
+        return new Tenant(key, host, departments, dataDir.resolve(TENANTS_DIR).resolve(key));
+    }
+
+    // Rewrites the catalog in full and moves it into place, so a crash leaves the old or the new one
+    private void save(Collection<Tenant> tenants) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(CATALOG_HEADER);
+        for (Tenant tenant : tenants) {
+            if (DEFAULT_ID.equals(tenant.getId())) {
+                continue;
+            }
+            StringBuilder departments = new StringBuilder();
+            for (Department department : tenant.getDepartments()) {
+                if (department == Department.NONE) {
+                    continue;
+                }
+                if (departments.length() > 0) {
+                    departments.append('|');
+                }
+                departments.append(department.getCode()).append(':').append(tenant.getLabel(department));
+            }
+            lines.add(tenant.getId() + "," + tenant.getDomain() + "," + departments);
+        }
+
+        Files.createDirectories(dataDir);
+        Path tmp = dataDir.resolve(CATALOG_FILE + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, dataDir.resolve(CATALOG_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Thrown instead of checking a password or admin key while the account or client is locked
+ * out after repeated failures.
+ */
+public class TooManyAttemptsException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    public TooManyAttemptsException(long retryAfterMillis) {
+        super("Too many failed attempts; try again in " + seconds(retryAfterMillis) + " seconds");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * The wait rounded up to whole seconds, as for a Retry-After header.
+     */
+    public long getRetryAfterSeconds() {
+        return seconds(retryAfterMillis);
+    }
+
+    private static long seconds(long millis) {
+        return Math.max(1, (millis + 999) / 1_000);
+    }
+}